@@ -0,0 +1,648 @@
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.IntPredicate;
+import java.util.function.IntSupplier;
+import java.util.function.IntUnaryOperator;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Escenarios de los benchmarks JMH. JMH no permite benchmarks en el paquete por defecto y desde un paquete con nombre no se
+ * pueden usar las clases del proyecto, así que cada escenario se prepara aquí y se entrega a los benchmarks como una interfaz
+ * funcional del JDK. Los benchmarks los obtienen con benchmarks.Escenarios.crear, que invoca estos métodos por reflexión
+ * una sola vez durante la preparación, por lo que la medición no incluye la reflexión
+ *
+ * @author : Juan Pablo García Plaza Pérez - Jose Ángel Concha Carrasco
+ * @grupo : Wild True
+ */
+
+public class EscenariosBenchmark {
+
+    private static final int VALOR_BASE = 36 * 36 * 36;                 // Primer identificador de los productos de un escenario
+    private static final int CANTIDAD_INICIAL = 1 << 24;                // Stock de cada producto y unidades de cada recarga
+    private static final int CANTIDAD_RECARGA = 1 << 16;                // Por debajo de esta cantidad se vuelve a llenar el stock
+    private static final int COMENTARIOS_POR_PRODUCTO = 4096;           // Comentarios de autores distintos antes de cambiar de producto
+    private static final int CADENAS_IDENTIFICADOR = 4096;              // Identificadores distintos decodificados en bucle
+    private static final String[] CATEGORIAS = {"monitor", "teclado", "raton", "portatil", "auriculares", "altavoz",
+            "microfono", "webcam", "impresora", "router", "disco", "memoria", "procesador", "grafica", "placa", "fuente",
+            "caja", "ventilador", "silla", "tableta"};
+    private static final String[] ADJETIVOS = {"gaming", "profesional", "inalambrico", "compacto", "ergonomico", "silencioso",
+            "portatil", "curvo", "mecanico", "optico", "rgb", "ultraligero", "reforzado", "modular", "externo", "interno"};
+
+    /**
+     * Flujo de salida que descarta todo lo que se escribe, para que los mensajes a los usuarios no midan la consola
+     */
+    private static class Descarte extends OutputStream {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    }
+
+    /**
+     * Destino de informes que solo cuenta los caracteres recibidos
+     */
+    private static class ContadorCaracteres implements Appendable {
+        private long caracteres;
+
+        @Override
+        public Appendable append(CharSequence csq) {
+            this.caracteres += csq.length();
+            return this;
+        }
+
+        @Override
+        public Appendable append(CharSequence csq, int start, int end) {
+            this.caracteres += end - start;
+            return this;
+        }
+
+        @Override
+        public Appendable append(char c) {
+            this.caracteres++;
+            return this;
+        }
+    }
+
+    /**
+     * Genera un producto de prueba con un stock que no se agota durante la medición
+     *
+     * @param decimal Entero decimal del identificador del producto
+     * @return Producto nuevo
+     */
+    static Producto producto(int decimal) {
+        FABRICANTES[] fabricantes = FABRICANTES.values();
+        PRIORIDAD_PRODUCTO[] prioridades = PRIORIDAD_PRODUCTO.values();
+        Calendar fecha = new GregorianCalendar(2015 + decimal % 10, decimal % 12, 1 + decimal % 28);
+
+        return new Producto(new Identificador(decimal), "Producto " + decimal + " modelo " + Integer.toString(decimal, 36),
+                fabricantes[decimal % fabricantes.length], prioridades[decimal % prioridades.length], fecha,
+                decimal % 7 == 0, CANTIDAD_INICIAL, 1);
+    }
+
+    /**
+     * Genera un inventario independiente con un número de productos. Los mensajes y errores se registran en un registro de
+     * eventos que los descarta, de forma que no se mide la escritura por consola
+     *
+     * @param productos Número de productos del inventario
+     * @return GestorStock con los productos agregados
+     */
+    public static GestorStock inventario(int productos) {
+        GestorStock gestor = GestorStock.crearInstancia();
+        gestor.activarRegistroEventos(new Descarte(), 1 << 12, POLITICA_REGISTRO.DESCARTAR);
+
+        List<Producto> lote = new ArrayList<>(productos);
+        for (int i = 0; i < productos; i++)
+            lote.add(producto(VALOR_BASE + i));
+        gestor.agregarProductos(lote);
+        return gestor;
+    }
+
+    /**
+     * Recupera los productos de un inventario generado con inventario(int) en el orden de sus identificadores
+     *
+     * @param gestor    Inventario del escenario
+     * @param productos Número de productos del inventario
+     * @return Vector con los productos
+     */
+    private static Producto[] productos(GestorStock gestor, int productos) {
+        Producto[] resultado = new Producto[productos];
+        for (int i = 0; i < productos; i++)
+            resultado[i] = gestor.recuperarProducto(new Identificador(VALOR_BASE + i).valorDe());
+
+        return resultado;
+    }
+
+    /**
+     * Genera un inventario con el índice decimal y mide la memoria del heap que retiene por producto, incluidos los propios
+     * productos. Con el inventario columnar los productos se vinculan a sus filas y dejan de guardar su cantidad y su fecha
+     * como objetos, así que la diferencia entre ambas variantes es el ahorro real. El resultado se muestra en la salida del
+     * benchmark
+     *
+     * @param productos Número de productos del inventario
+     * @param columnar  Indica si se activa el inventario columnar
+     * @return GestorStock con los productos agregados
+     */
+    public static GestorStock inventarioColumnar(int productos, boolean columnar) {
+        long antes = memoriaUsada();
+        GestorStock gestor = GestorStock.crearInstancia();
+        gestor.activarRegistroEventos(new Descarte(), 1 << 12, POLITICA_REGISTRO.DESCARTAR);
+        if (columnar)
+            gestor.activarInventarioColumnar();
+        else
+            gestor.activarIndiceDecimal();
+
+        List<Producto> lote = new ArrayList<>(productos);
+        for (int i = 0; i < productos; i++)
+            lote.add(producto(VALOR_BASE + i));
+        gestor.agregarProductos(lote);
+        lote = null;
+        long medida = memoriaUsada() - antes;
+
+        InventarioColumnar columnas = gestor.getInventarioColumnar();
+        System.out.printf("%nInventario %s con %d productos: memoria medida %.1f MiB (%.1f bytes por producto), columnas %.1f MiB%n",
+                columnar ? "columnar" : "de objetos", productos, medida / 1048576.0, (double) medida / productos,
+                columnas == null ? 0.0 : columnas.getBytesReservados() / 1048576.0);
+        return gestor;
+    }
+
+    /**
+     * Recuento de las unidades en stock de todo el inventario
+     *
+     * @param gestor Inventario generado con inventario(int) o inventarioColumnar(int, boolean)
+     * @return Función que devuelve las unidades totales en stock
+     */
+    public static LongSupplier unidadesEnStock(Object gestor) {
+        GestorStock inventario = (GestorStock) gestor;
+        return () -> inventario.unidadesEnStock(null);
+    }
+
+    /**
+     * Venta de una unidad de un producto del inventario. Si el stock del producto baja demasiado se recarga, de forma que la
+     * medición siempre recorre el camino de una venta servida. Aunque varios hilos recarguen a la vez el stock no desborda
+     *
+     * @param gestor    Inventario generado con inventario(int)
+     * @param productos Número de productos del inventario
+     * @return Función que vende una unidad del producto con el índice recibido
+     */
+    public static IntPredicate venta(Object gestor, int productos) {
+        GestorStock inventario = (GestorStock) gestor;
+        Producto[] catalogo = productos(inventario, productos);
+
+        return indice -> {
+            Producto producto = catalogo[indice];
+            if (producto.getCantidad() < CANTIDAD_RECARGA)
+                producto.ajustarCantidad(CANTIDAD_INICIAL);
+            return inventario.venderProducto(1, producto);
+        };
+    }
+
+    /**
+     * Alta y baja de un favorito de un cliente nuevo del inventario
+     *
+     * @param gestor    Inventario generado con inventario(int)
+     * @param productos Número de productos del inventario
+     * @return Función que añade como favorito el producto con el índice recibido y lo vuelve a quitar
+     */
+    public static IntPredicate favoritos(Object gestor, int productos) {
+        GestorStock inventario = (GestorStock) gestor;
+        Producto[] catalogo = productos(inventario, productos);
+        String[] aliases = aliases(productos);
+        Cliente cliente = new Cliente("Cliente favoritos", 30, "Madrid", inventario);
+
+        return indice -> cliente.agregarFavorito(catalogo[indice], aliases[indice]) && cliente.eliminarFavorito(aliases[indice]);
+    }
+
+    /**
+     * Pedido de una unidad de un favorito de un cliente nuevo del inventario
+     *
+     * @param gestor    Inventario generado con inventario(int)
+     * @param favoritos Número de favoritos del cliente, tomados de los primeros productos del inventario
+     * @return Función que pide una unidad del favorito con el índice recibido
+     */
+    public static IntPredicate pedidos(Object gestor, int favoritos) {
+        GestorStock inventario = (GestorStock) gestor;
+        Producto[] catalogo = productos(inventario, favoritos);
+        String[] aliases = aliases(favoritos);
+        Cliente cliente = new Cliente("Cliente pedidos", 30, "Madrid", inventario);
+        for (int i = 0; i < favoritos; i++)
+            cliente.agregarFavorito(catalogo[i], aliases[i]);
+
+        return indice -> {
+            Producto producto = catalogo[indice];
+            if (producto.getCantidad() < CANTIDAD_RECARGA)
+                producto.ajustarCantidad(CANTIDAD_INICIAL);
+            return cliente.pedirProducto(aliases[indice]);
+        };
+    }
+
+    /**
+     * Genera los alias de los favoritos de un cliente
+     *
+     * @param numero Número de alias
+     * @return Vector con un alias distinto para cada índice
+     */
+    private static String[] aliases(int numero) {
+        String[] aliases = new String[numero];
+        for (int i = 0; i < numero; i++)
+            aliases[i] = "favorito-" + i;
+
+        return aliases;
+    }
+
+    /**
+     * Codificación de enteros a identificadores sobre un vector reutilizado, sin reservar memoria
+     *
+     * @return Función que codifica el entero recibido y devuelve el número de cifras escritas
+     */
+    public static IntUnaryOperator codificarIdentificador() {
+        char[] cifras = new char[8];
+        return numero -> Identificador.codificar(numero, cifras, 0);
+    }
+
+    /**
+     * Decodificación de cadenas de identificador a su entero decimal
+     *
+     * @return Función que decodifica la cadena con el índice recibido, módulo el número de cadenas preparadas
+     */
+    public static IntUnaryOperator decodificarIdentificador() {
+        String[] cadenas = new String[CADENAS_IDENTIFICADOR];
+        for (int i = 0; i < cadenas.length; i++)
+            cadenas[i] = new Identificador(VALOR_BASE + i * 104729).valorDe();
+
+        return indice -> Identificador.decodificar(cadenas[indice & (CADENAS_IDENTIFICADOR - 1)]);
+    }
+
+    /**
+     * Generación de identificadores con una secuencia independiente de la compartida. Cuando la secuencia se agota se sustituye
+     * por otra nueva, de forma que la medición puede durar lo necesario sin quedarse sin identificadores
+     *
+     * @return Función que genera el siguiente identificador de la secuencia
+     */
+    public static Supplier<Object> generarIdentificador() {
+        AtomicReference<GeneradorIdentificador> secuencia = new AtomicReference<>(GeneradorIdentificador.crearInstancia(VALOR_BASE, 1));
+
+        return () -> {
+            while (true) {
+                GeneradorIdentificador generador = secuencia.get();
+                try {
+                    return generador.generarIdentificador();
+                } catch (IllegalStateException e) {
+                    secuencia.compareAndSet(generador, GeneradorIdentificador.crearInstancia(VALOR_BASE, 1));
+                }
+            }
+        };
+    }
+
+    /**
+     * Reserva de bloques de identificadores consecutivos, como en una importación masiva. Cuando la secuencia se agota se
+     * sustituye por otra nueva
+     *
+     * @param tamano Número de identificadores de cada bloque
+     * @return Función que reserva el siguiente bloque y devuelve su primer valor
+     */
+    public static IntSupplier reservarBloque(int tamano) {
+        AtomicReference<GeneradorIdentificador> secuencia = new AtomicReference<>(GeneradorIdentificador.crearInstancia(VALOR_BASE, 1));
+
+        return () -> {
+            while (true) {
+                GeneradorIdentificador generador = secuencia.get();
+                try {
+                    return generador.reservarBloque(tamano);
+                } catch (IllegalStateException e) {
+                    secuencia.compareAndSet(generador, GeneradorIdentificador.crearInstancia(VALOR_BASE, 1));
+                }
+            }
+        };
+    }
+
+    /**
+     * Publicación de comentarios de autores distintos sobre un producto sin inventario. Cada cierto número de comentarios se
+     * pasa a un producto nuevo, para que la medición no dependa de cuántos comentarios acumula un mismo producto
+     *
+     * @return Función que publica el comentario con el índice recibido, módulo el número de comentarios preparados
+     */
+    public static IntPredicate comentar() {
+        Comentario[] comentarios = new Comentario[COMENTARIOS_POR_PRODUCTO];
+        for (int i = 0; i < comentarios.length; i++)
+            comentarios[i] = new Comentario("autor-" + i, "Comentario " + i + " sobre el producto, buena calidad y envío rápido", 1 + i % 5);
+
+        Producto[] actual = {producto(VALOR_BASE)};
+        return indice -> {
+            int posicion = indice & (COMENTARIOS_POR_PRODUCTO - 1);
+            if (posicion == 0)
+                actual[0] = producto(VALOR_BASE);
+            return actual[0].comentar(comentarios[posicion]);
+        };
+    }
+
+    /**
+     * Genera un índice textual con los nombres de un número de productos y mide cuánta memoria del heap ocupa, comparándola
+     * con IndiceTextual.memoriaEstimada. Los productos se crean antes de la primera medición para que la diferencia sea solo
+     * la del índice. El resultado se muestra en la salida del benchmark
+     *
+     * @param productos Número de productos a indexar
+     * @return Índice textual con los productos indexados
+     */
+    public static IndiceTextual indiceTextual(int productos) {
+        List<Producto> catalogo = new ArrayList<>(productos);
+        for (int i = 0; i < productos; i++)
+            catalogo.add(productoDescriptivo(VALOR_BASE + i));
+
+        long antes = memoriaUsada();
+        IndiceTextual indice = new IndiceTextual();
+        for (Producto producto : catalogo)
+            indice.indexarProducto(producto);
+        long medida = memoriaUsada() - antes;
+
+        System.out.printf("%nÍndice textual con %d productos: %d claves, %d apariciones, memoria medida %.1f MiB, estimada %.1f MiB%n",
+                productos, indice.numeroClaves(), indice.numeroApariciones(), medida / 1048576.0, indice.memoriaEstimada() / 1048576.0);
+        return indice;
+    }
+
+    /**
+     * Búsqueda de texto libre sobre un índice textual
+     *
+     * @param indice Índice generado con indiceTextual(int)
+     * @param limite Número máximo de resultados de cada búsqueda
+     * @return Función que busca la consulta recibida y devuelve los productos encontrados
+     */
+    public static Function<String, Object> buscarTexto(Object indice, int limite) {
+        IndiceTextual indiceTextual = (IndiceTextual) indice;
+        return consulta -> indiceTextual.buscar(consulta, limite);
+    }
+
+    /**
+     * Genera un producto con un nombre formado por su fabricante, una categoría, un adjetivo y un código de modelo, de forma
+     * que el vocabulario se parece al de un catálogo real y cada palabra aparece en una fracción distinta de los productos
+     *
+     * @param decimal Entero decimal del identificador del producto
+     * @return Producto nuevo
+     */
+    private static Producto productoDescriptivo(int decimal) {
+        FABRICANTES[] fabricantes = FABRICANTES.values();
+        return new Producto(new Identificador(decimal), nombreDescriptivo(decimal), fabricantes[decimal % fabricantes.length],
+                PRIORIDAD_PRODUCTO.MEDIA, new GregorianCalendar(2020, 0, 1), false, CANTIDAD_INICIAL, 1);
+    }
+
+    /**
+     * Compone el nombre de un producto a partir de su fabricante, una categoría, un adjetivo y un código de modelo
+     *
+     * @param decimal Entero del que se deriva el nombre
+     * @return Nombre del producto
+     */
+    private static String nombreDescriptivo(int decimal) {
+        FABRICANTES[] fabricantes = FABRICANTES.values();
+        return fabricantes[decimal % fabricantes.length] + " " + CATEGORIAS[decimal % CATEGORIAS.length] + " "
+                + ADJETIVOS[(decimal / CATEGORIAS.length) % ADJETIVOS.length] + " " + Integer.toString(decimal, 36);
+    }
+
+    /**
+     * Escribe un catálogo CSV en el formato de ImportadorCatalogo, en un fichero temporal que se borra al terminar. Las filas
+     * no llevan identificador, por lo que la importación los reserva por bloques
+     *
+     * @param filas Número de filas del catálogo
+     * @return Fichero con el catálogo
+     * @throws IOException Si no se puede escribir el fichero
+     */
+    public static File catalogoCsv(int filas) throws IOException {
+        FABRICANTES[] fabricantes = FABRICANTES.values();
+        PRIORIDAD_PRODUCTO[] prioridades = PRIORIDAD_PRODUCTO.values();
+        File fichero = File.createTempFile("benchmark-catalogo", ".csv");
+        fichero.deleteOnExit();
+
+        try (Writer salida = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(fichero), StandardCharsets.UTF_8), 1 << 16)) {
+            salida.write("# identificador;nombre;fabricante;prioridad;fechaLanzamiento;esReacondicionado;cantidad;stockMinimo\n");
+            StringBuilder fila = new StringBuilder(128);
+            for (int i = 0; i < filas; i++) {
+                fila.setLength(0);
+                fila.append(';').append(nombreDescriptivo(i)).append(';').append(fabricantes[i % fabricantes.length])
+                        .append(';').append(prioridades[i % prioridades.length]).append(';').append(2010 + i % 15)
+                        .append('-').append(i % 9 + 10).append('-').append(i % 18 + 10).append(';').append(i % 7 == 0)
+                        .append(';').append(i % 100).append(';').append(i % 10).append('\n');
+                salida.append(fila);
+            }
+        }
+        return fichero;
+    }
+
+    /**
+     * Importación de un catálogo CSV en un inventario con ImportadorCatalogo
+     *
+     * @param gestor  Inventario en el que importar, normalmente vacío
+     * @param fichero Catálogo generado con catalogoCsv
+     * @return Función que importa el catálogo y devuelve el número de filas leídas
+     */
+    public static LongSupplier importar(Object gestor, Object fichero) {
+        ImportadorCatalogo importador = new ImportadorCatalogo((GestorStock) gestor);
+
+        return () -> {
+            try {
+                return importador.importar((File) fichero).getFilas();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        };
+    }
+
+    /**
+     * Mide la memoria ocupada del heap después de forzar varias recolecciones seguidas
+     *
+     * @return Bytes ocupados del heap
+     */
+    private static long memoriaUsada() {
+        Runtime runtime = Runtime.getRuntime();
+        long usada = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            usada = Math.min(usada, runtime.totalMemory() - runtime.freeMemory());
+        }
+
+        return usada;
+    }
+
+    /**
+     * Generación del informe completo del inventario, página a página, sobre un destino que descarta la salida
+     *
+     * @param gestor   Inventario generado con inventario(int)
+     * @param completo Indica si se escriben los detalles completos de cada producto
+     * @return Función que escribe el informe y devuelve el número de caracteres escritos
+     */
+    public static LongSupplier informe(Object gestor, boolean completo) {
+        GestorStock inventario = (GestorStock) gestor;
+
+        return () -> {
+            ContadorCaracteres destino = new ContadorCaracteres();
+            try {
+                int cursor = -1;
+                do {
+                    cursor = inventario.escribirInforme(destino, completo, null, null, cursor, 1024);
+                } while (cursor != -1);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            return destino.caracteres;
+        };
+    }
+
+    /**
+     * Genera los productos que se codifican en los escenarios de FormatoBinario, cada uno con varios comentarios de autores
+     * que se repiten entre productos, y muestra el tamaño de su codificación junto al del texto de sus detalles completos
+     *
+     * @param productos   Número de productos
+     * @param comentarios Número de comentarios de cada producto
+     * @return Lista de productos
+     */
+    public static List<Producto> productosCodificables(int productos, int comentarios) {
+        List<Producto> lista = new ArrayList<>(productos);
+        for (int i = 0; i < productos; i++) {
+            Producto producto = productoDescriptivo(VALOR_BASE + i);
+            for (int j = 0; j < comentarios; j++)
+                producto.comentar(new Comentario("cliente-" + (i * 7 + j * 13) % 500, "Comentario " + j + " sobre el producto " + i,
+                        1 + (i + j) % 5));
+            lista.add(producto);
+        }
+
+        long bytesTexto = 0;
+        for (Producto producto : lista)
+            bytesTexto += producto.detallesCompletos().getBytes(StandardCharsets.UTF_8).length + 1;
+        int bytesBinario = FormatoBinario.codificar(lista, Collections.<Cliente>emptyList()).remaining();
+        System.out.printf("%nCodificación de %d productos con %d comentarios: %d bytes (%.1f por producto), detalles en texto %d bytes (%.1f por producto)%n",
+                productos, comentarios, bytesBinario, bytesBinario / (double) productos, bytesTexto, bytesTexto / (double) productos);
+        return lista;
+    }
+
+    /**
+     * Codificación de productos con FormatoBinario
+     *
+     * @param productos Productos generados con productosCodificables
+     * @return Función que codifica los productos y devuelve el búfer resultante
+     */
+    @SuppressWarnings("unchecked")
+    public static Supplier<ByteBuffer> codificarProductos(Object productos) {
+        List<Producto> lista = (List<Producto>) productos;
+        return () -> FormatoBinario.codificar(lista, Collections.<Cliente>emptyList());
+    }
+
+    /**
+     * Decodificación completa de todos los productos, con sus comentarios, de un búfer de FormatoBinario
+     *
+     * @param datos Búfer generado con codificarProductos
+     * @return Función que decodifica todos los productos y devuelve la suma de sus cantidades
+     */
+    public static LongSupplier decodificarProductos(ByteBuffer datos) {
+        return () -> {
+            FormatoBinario lector = FormatoBinario.abrir(datos.duplicate());
+            long total = 0;
+            for (int i = 0; i < lector.getNumeroProductos(); i++)
+                total += lector.leerProducto(i).getCantidad();
+            return total;
+        };
+    }
+
+    /**
+     * Lectura de las cantidades en stock de un búfer de FormatoBinario directamente sobre el búfer, sin decodificar los productos
+     *
+     * @param datos Búfer generado con codificarProductos
+     * @return Función que lee la cantidad de todos los productos y devuelve su suma
+     */
+    public static LongSupplier leerCantidades(ByteBuffer datos) {
+        return () -> {
+            FormatoBinario lector = FormatoBinario.abrir(datos.duplicate());
+            long total = 0;
+            for (int i = 0; i < lector.getNumeroProductos(); i++)
+                total += lector.leerCantidadProducto(i);
+            return total;
+        };
+    }
+
+    /**
+     * Genera un registro de eventos sobre un destino
+     *
+     * @param destino   Tipo de destino: "descarte" para un flujo que descarta la salida o "fichero" para un fichero temporal
+     * @param capacidad Número de eventos que caben en la cola del registro
+     * @param politica  Nombre de la política del registro cuando la cola está llena
+     * @return Registro de eventos en marcha
+     * @throws IOException Si no se puede crear el fichero temporal
+     */
+    public static RegistroEventos registroEventos(String destino, int capacidad, String politica) throws IOException {
+        return new RegistroEventos(destino(destino), capacidad, POLITICA_REGISTRO.valueOf(politica));
+    }
+
+    /**
+     * Registro de un mensaje a un usuario a través de un registro de eventos, como hace Cliente.informarUsuario cuando el
+     * inventario tiene el registro activado
+     *
+     * @param registro Registro generado con registroEventos
+     * @return Función que registra el mensaje con el índice recibido, módulo el número de mensajes preparados
+     */
+    public static IntPredicate registrarMensaje(Object registro) {
+        RegistroEventos eventos = (RegistroEventos) registro;
+        String[] mensajes = mensajes();
+
+        return indice -> eventos.registrarMensaje("Cliente", mensajes[indice & (mensajes.length - 1)]);
+    }
+
+    /**
+     * Escritura directa de un mensaje a un usuario con un PrintStream que vuelca cada línea, como hace Cliente.informarUsuario
+     * con System.out cuando el inventario no tiene el registro activado
+     *
+     * @param destino Tipo de destino: "descarte" o "fichero", como en registroEventos
+     * @return Función que imprime el mensaje con el índice recibido, módulo el número de mensajes preparados
+     * @throws IOException Si no se puede crear el fichero temporal
+     */
+    public static IntPredicate imprimirMensaje(String destino) throws IOException {
+        PrintStream salida = new PrintStream(destino(destino), true, "UTF-8");
+        String[] mensajes = mensajes();
+
+        return indice -> {
+            salida.println("[Cliente] " + mensajes[indice & (mensajes.length - 1)]);
+            return true;
+        };
+    }
+
+    /**
+     * Genera los mensajes que se registran en los escenarios del registro de eventos
+     *
+     * @return Vector de mensajes. Su longitud es una potencia de dos
+     */
+    private static String[] mensajes() {
+        String[] mensajes = new String[1024];
+        for (int i = 0; i < mensajes.length; i++)
+            mensajes[i] = "Pedido de " + (1 + i % 5) + " unidades de 'favorito-" + i + "' realizado";
+
+        return mensajes;
+    }
+
+    /**
+     * Abre el flujo de salida de un escenario
+     *
+     * @param destino "descarte" para un flujo que descarta la salida o "fichero" para un fichero temporal
+     * @return Flujo de salida
+     * @throws IOException Si no se puede crear el fichero temporal
+     */
+    private static OutputStream destino(String destino) throws IOException {
+        if (destino.equals("descarte"))
+            return new Descarte();
+
+        File fichero = File.createTempFile("benchmark-eventos", ".log");
+        fichero.deleteOnExit();
+        return new FileOutputStream(fichero);
+    }
+
+    /**
+     * Detiene las tareas en segundo plano de un inventario o de un registro de eventos del escenario. De los registros se
+     * muestra además cuántos eventos se han registrado y descartado
+     *
+     * @param escenario Inventario generado con inventario(int) o registro generado con registroEventos
+     */
+    public static void cerrar(Object escenario) {
+        if (escenario instanceof GestorStock) {
+            ((GestorStock) escenario).detenerRegistroEventos();
+        } else if (escenario instanceof RegistroEventos) {
+            RegistroEventos registro = (RegistroEventos) escenario;
+            registro.detener();
+            System.out.printf("%nEventos registrados %d, descartados %d, escritos %d%n", registro.getEventosRegistrados(),
+                    registro.getEventosDescartados(), registro.getEventosEscritos());
+        }
+    }
+
+}
@@ -0,0 +1,58 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Latencia de IndiceTextual.buscar sobre los nombres de un catálogo de hasta un millón de productos, con percentiles. Las
+ * consultas van desde un código de modelo que identifica un único producto hasta un prefijo presente en uno de cada veinte
+ * productos. Al preparar el índice se muestra la memoria del heap que ocupa realmente junto a la estimada por el índice
+ *
+ * @author : Juan Pablo García Plaza Pérez - Jose Ángel Concha Carrasco
+ * @grupo : Wild True
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = "-Xmx4g")
+public class BusquedaTextoBenchmark {
+
+    @Param({"1000000"})
+    private int productos;                                              // Productos del índice
+
+    @Param({"2lk4", "asus monitor gaming", "teclado mecanico", "mon"})
+    private String consulta;
+
+    @Param({"20"})
+    private int limite;                                                 // Resultados como máximo de cada búsqueda
+
+    private Function<String, Object> buscar;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        Object indice = Escenarios.crear("indiceTextual", this.productos);
+        this.buscar = Escenarios.crear("buscarTexto", indice, this.limite);
+    }
+
+    @Benchmark
+    public Object buscar() {
+        return this.buscar.apply(this.consulta);
+    }
+
+}
@@ -0,0 +1,69 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntPredicate;
+
+/**
+ * Rendimiento de las operaciones de un cliente sobre sus favoritos: alta y baja de un favorito (Cliente.agregarFavorito
+ * seguido de Cliente.eliminarFavorito) y pedido de una unidad de un favorito (Cliente.pedirProducto)
+ *
+ * @author : Juan Pablo García Plaza Pérez - Jose Ángel Concha Carrasco
+ * @grupo : Wild True
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ClienteBenchmark {
+
+    @Param({"1000", "100000"})
+    private int productos;                                              // Tamaño del catálogo
+
+    @Param({"16"})
+    private int favoritos;                                              // Favoritos del cliente que hace los pedidos
+
+    private Object gestor;
+    private IntPredicate altaBajaFavorito;
+    private IntPredicate pedido;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        this.gestor = Escenarios.crear("inventario", this.productos);
+        this.altaBajaFavorito = Escenarios.crear("favoritos", this.gestor, this.productos);
+        this.pedido = Escenarios.crear("pedidos", this.gestor, this.favoritos);
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        Escenarios.crear("cerrar", this.gestor);
+    }
+
+    @Benchmark
+    public boolean agregarFavorito() {
+        return this.altaBajaFavorito.test(ThreadLocalRandom.current().nextInt(this.productos));
+    }
+
+    @Benchmark
+    public boolean pedirProducto() {
+        return this.pedido.test(ThreadLocalRandom.current().nextInt(this.favoritos));
+    }
+
+}
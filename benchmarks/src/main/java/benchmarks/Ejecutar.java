@@ -0,0 +1,41 @@
+package benchmarks;
+
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Punto de entrada de benchmarks.jar. Acepta las mismas opciones que el lanzador de JMH y añade siempre el perfilador 'gc',
+ * de forma que junto a cada resultado se muestra la memoria reservada por operación (gc.alloc.rate.norm)
+ *
+ * @author : Juan Pablo García Plaza Pérez - Jose Ángel Concha Carrasco
+ * @grupo : Wild True
+ */
+
+public class Ejecutar {
+
+    /**
+     * Ejecuta los benchmarks indicados en la línea de comandos
+     *
+     * @param args Opciones de JMH, por ejemplo una expresión regular con los benchmarks a ejecutar
+     * @throws Exception Si las opciones no son válidas o falla la ejecución de algún benchmark
+     */
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions opciones = new CommandLineOptions(args);
+        boolean conGc = opciones.getProfilers().stream().anyMatch(perfilador -> perfilador.getKlass().equals("gc"));
+        if (conGc || opciones.shouldHelp() || opciones.shouldList() || opciones.shouldListProfilers()) {
+            Main.main(args);
+            return;
+        }
+
+        Options configuracion = new OptionsBuilder()
+                .parent(opciones)
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(configuracion).run();
+    }
+
+}
@@ -0,0 +1,101 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntPredicate;
+
+/**
+ * Escalado de GestorStock.venderProducto con el número de hilos, de 1 a 32 hilos vendiendo a la vez productos elegidos al
+ * azar de todo el catálogo. Con un stock sin cerrojos globales el rendimiento total debe crecer casi en proporción al número
+ * de hilos mientras haya núcleos libres; en cada resultado se compara ops/us con el del benchmark de un hilo
+ *
+ * @author : Juan Pablo García Plaza Pérez - Jose Ángel Concha Carrasco
+ * @grupo : Wild True
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class EscaladoVentaBenchmark {
+
+    @Param({"100000"})
+    private int productos;                                              // Tamaño del catálogo
+
+    private Object gestor;
+    private IntPredicate venta;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        this.gestor = Escenarios.crear("inventario", this.productos);
+        this.venta = Escenarios.crear("venta", this.gestor, this.productos);
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        Escenarios.crear("cerrar", this.gestor);
+    }
+
+    /**
+     * Vende una unidad de un producto elegido al azar
+     *
+     * @return Booleano indicando si se ha servido la venta
+     */
+    private boolean vender() {
+        return this.venta.test(ThreadLocalRandom.current().nextInt(this.productos));
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean hilos01() {
+        return vender();
+    }
+
+    @Benchmark
+    @Threads(2)
+    public boolean hilos02() {
+        return vender();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean hilos04() {
+        return vender();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean hilos08() {
+        return vender();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public boolean hilos16() {
+        return vender();
+    }
+
+    @Benchmark
+    @Threads(32)
+    public boolean hilos32() {
+        return vender();
+    }
+
+}
@@ -0,0 +1,45 @@
+package benchmarks;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * Acceso desde los benchmarks a los escenarios de EscenariosBenchmark, que está en el paquete por defecto junto al resto del
+ * proyecto y por tanto solo se puede usar por reflexión. Solo se invoca durante la preparación de cada benchmark
+ *
+ * @author : Juan Pablo García Plaza Pérez - Jose Ángel Concha Carrasco
+ * @grupo : Wild True
+ */
+
+final class Escenarios {
+
+    private static final String CLASE_ESCENARIOS = "EscenariosBenchmark";
+
+    private Escenarios() {
+    }
+
+    /**
+     * Prepara un escenario invocando el método de EscenariosBenchmark con el mismo nombre
+     *
+     * @param escenario  Nombre del método que prepara el escenario
+     * @param argumentos Argumentos del método. Los tipos primitivos se pasan envueltos
+     * @param <T>        Tipo devuelto por el método, normalmente una interfaz funcional del JDK
+     * @return Resultado del método
+     * @throws IllegalArgumentException Si no existe ningún escenario con ese nombre y número de argumentos
+     */
+    @SuppressWarnings("unchecked")
+    static <T> T crear(String escenario, Object... argumentos) {
+        try {
+            for (Method metodo : Class.forName(CLASE_ESCENARIOS).getMethods())
+                if (metodo.getName().equals(escenario) && metodo.getParameterCount() == argumentos.length)
+                    return (T) metodo.invoke(null, argumentos);
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException("Error al preparar el escenario " + escenario, e.getCause());
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("No se puede preparar el escenario " + escenario, e);
+        }
+
+        throw new IllegalArgumentException("No existe el escenario " + escenario + " con " + argumentos.length + " argumentos");
+    }
+
+}
@@ -0,0 +1,73 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Tamaño y velocidad de FormatoBinario: codificación de un catálogo con comentarios, decodificación completa de todos sus
+ * productos y lectura de las cantidades directamente sobre el búfer. Al preparar el catálogo se muestra el tamaño de la
+ * codificación junto al del texto de los detalles completos de los mismos productos
+ *
+ * @author : Juan Pablo García Plaza Pérez - Jose Ángel Concha Carrasco
+ * @grupo : Wild True
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class FormatoBinarioBenchmark {
+
+    @Param({"10000"})
+    private int productos;
+
+    @Param({"0", "5"})
+    private int comentarios;                                            // Comentarios de cada producto
+
+    private Supplier<ByteBuffer> codificar;
+    private LongSupplier decodificar;
+    private LongSupplier leerCantidades;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        Object lista = Escenarios.crear("productosCodificables", this.productos, this.comentarios);
+        this.codificar = Escenarios.crear("codificarProductos", lista);
+
+        ByteBuffer datos = this.codificar.get();
+        this.decodificar = Escenarios.crear("decodificarProductos", datos);
+        this.leerCantidades = Escenarios.crear("leerCantidades", datos);
+    }
+
+    @Benchmark
+    public ByteBuffer codificar() {
+        return this.codificar.get();
+    }
+
+    @Benchmark
+    public long decodificar() {
+        return this.decodificar.getAsLong();
+    }
+
+    @Benchmark
+    public long leerCantidades() {
+        return this.leerCantidades.getAsLong();
+    }
+
+}
@@ -0,0 +1,88 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Identificadores por segundo de GeneradorIdentificador con uno y con varios hilos compartiendo la secuencia, tanto de uno
+ * en uno (generarIdentificador) como por bloques (reservarBloque). En los benchmarks por bloques cada operación cuenta como
+ * un identificador, de forma que todos los resultados se leen en identificadores por segundo
+ *
+ * @author : Juan Pablo García Plaza Pérez - Jose Ángel Concha Carrasco
+ * @grupo : Wild True
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class GeneracionIdentificadoresBenchmark {
+
+    private static final int BLOQUE = 1024;                             // Identificadores reservados en cada bloque
+
+    private Supplier<Object> generar;
+    private IntSupplier reservar;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        this.generar = Escenarios.crear("generarIdentificador");
+        this.reservar = Escenarios.crear("reservarBloque", BLOQUE);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Object generarUnHilo() {
+        return this.generar.get();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Object generarOchoHilos() {
+        return this.generar.get();
+    }
+
+    @Benchmark
+    @Threads(32)
+    public Object generarTreintaYDosHilos() {
+        return this.generar.get();
+    }
+
+    @Benchmark
+    @Threads(1)
+    @OperationsPerInvocation(BLOQUE)
+    public int reservarBloqueUnHilo() {
+        return this.reservar.getAsInt();
+    }
+
+    @Benchmark
+    @Threads(8)
+    @OperationsPerInvocation(BLOQUE)
+    public int reservarBloqueOchoHilos() {
+        return this.reservar.getAsInt();
+    }
+
+    @Benchmark
+    @Threads(32)
+    @OperationsPerInvocation(BLOQUE)
+    public int reservarBloqueTreintaYDosHilos() {
+        return this.reservar.getAsInt();
+    }
+
+}
@@ -0,0 +1,78 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntUnaryOperator;
+import java.util.function.Supplier;
+
+/**
+ * Rendimiento de la conversión entre enteros e identificadores en base 36 (Identificador.codificar y
+ * Identificador.decodificar) y de la generación de identificadores nuevos (GeneradorIdentificador.generarIdentificador)
+ *
+ * @author : Juan Pablo García Plaza Pérez - Jose Ángel Concha Carrasco
+ * @grupo : Wild True
+ */
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class IdentificadorBenchmark {
+
+    /**
+     * Estado de cada hilo para la codificación y la decodificación
+     */
+    @State(Scope.Thread)
+    public static class Conversion {
+        private IntUnaryOperator codificar;
+        private IntUnaryOperator decodificar;
+        private int siguiente;                                          // Entero a convertir en la siguiente invocación
+
+        @Setup(Level.Trial)
+        public void preparar() {
+            this.codificar = Escenarios.crear("codificarIdentificador");
+            this.decodificar = Escenarios.crear("decodificarIdentificador");
+        }
+    }
+
+    /**
+     * Secuencia de identificadores compartida por todos los hilos
+     */
+    @State(Scope.Benchmark)
+    public static class Secuencia {
+        private Supplier<Object> generar;
+
+        @Setup(Level.Trial)
+        public void preparar() {
+            this.generar = Escenarios.crear("generarIdentificador");
+        }
+    }
+
+    @Benchmark
+    public int codificar(Conversion estado) {
+        return estado.codificar.applyAsInt(estado.siguiente++ & Integer.MAX_VALUE);
+    }
+
+    @Benchmark
+    public int decodificar(Conversion estado) {
+        return estado.decodificar.applyAsInt(estado.siguiente++);
+    }
+
+    @Benchmark
+    public Object generarIdentificador(Secuencia secuencia) {
+        return secuencia.generar.get();
+    }
+
+}
@@ -0,0 +1,85 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Filas por segundo de ImportadorCatalogo al importar un catálogo CSV completo en un inventario vacío. Cada invocación
+ * importa el fichero entero en un inventario nuevo; el contador auxiliar 'filas' da el resultado en filas por segundo.
+ * Para el catálogo de diez millones de filas hace falta un heap mayor, por ejemplo:
+ * java -jar target/benchmarks.jar Importacion -p filas=10000000 -jvmArgsAppend -Xmx24g
+ *
+ * @author : Juan Pablo García Plaza Pérez - Jose Ángel Concha Carrasco
+ * @grupo : Wild True
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ImportacionBenchmark {
+
+    @Param({"1000000"})
+    private int filas;                                                  // Filas del catálogo
+
+    private Object fichero;
+    private Object gestor;
+    private LongSupplier importar;
+
+    /**
+     * Filas importadas por el hilo del benchmark. JMH las divide por el tiempo medido
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Filas {
+        public long filas;
+
+        @Setup(Level.Iteration)
+        public void reiniciar() {
+            this.filas = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void escribirCatalogo() {
+        this.fichero = Escenarios.crear("catalogoCsv", this.filas);
+    }
+
+    @Setup(Level.Invocation)
+    public void preparar() {
+        this.gestor = Escenarios.crear("inventario", 0);
+        this.importar = Escenarios.crear("importar", this.gestor, this.fichero);
+    }
+
+    @TearDown(Level.Invocation)
+    public void cerrar() {
+        Escenarios.crear("cerrar", this.gestor);
+        this.gestor = null;
+        this.importar = null;
+    }
+
+    @Benchmark
+    public long importar(Filas contador) {
+        long leidas = this.importar.getAsLong();
+        contador.filas += leidas;
+        return leidas;
+    }
+
+}
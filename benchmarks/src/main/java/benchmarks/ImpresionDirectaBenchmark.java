@@ -0,0 +1,59 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntPredicate;
+
+/**
+ * Coste para el hilo de negocio de informar a un usuario imprimiendo el mensaje directamente con un PrintStream que vuelca
+ * cada línea, como hace System.out. Es la referencia con la que comparar RegistroEventosBenchmark
+ *
+ * @author : Juan Pablo García Plaza Pérez - Jose Ángel Concha Carrasco
+ * @grupo : Wild True
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ImpresionDirectaBenchmark {
+
+    @Param({"descarte", "fichero"})
+    private String destino;
+
+    private IntPredicate imprimir;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        this.imprimir = Escenarios.crear("imprimirMensaje", this.destino);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean imprimirUnHilo() {
+        return this.imprimir.test(ThreadLocalRandom.current().nextInt());
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean imprimirOchoHilos() {
+        return this.imprimir.test(ThreadLocalRandom.current().nextInt());
+    }
+
+}
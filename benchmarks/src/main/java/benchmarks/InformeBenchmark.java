@@ -0,0 +1,61 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Tiempo de generación del informe completo del inventario con GestorStock.escribirInforme, página a página y sobre un
+ * destino que descarta la salida, de forma que solo se mide el recorrido del inventario y el formateo de los productos
+ *
+ * @author : Juan Pablo García Plaza Pérez - Jose Ángel Concha Carrasco
+ * @grupo : Wild True
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class InformeBenchmark {
+
+    @Param({"1000", "100000"})
+    private int productos;                                              // Tamaño del catálogo
+
+    @Param({"false", "true"})
+    private boolean completo;                                           // Detalles completos o básicos de cada producto
+
+    private Object gestor;
+    private LongSupplier informe;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        this.gestor = Escenarios.crear("inventario", this.productos);
+        this.informe = Escenarios.crear("informe", this.gestor, this.completo);
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        Escenarios.crear("cerrar", this.gestor);
+    }
+
+    @Benchmark
+    public long escribirInforme() {
+        return this.informe.getAsLong();
+    }
+
+}
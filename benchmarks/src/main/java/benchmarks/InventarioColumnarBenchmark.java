@@ -0,0 +1,62 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Memoria retenida por producto y tiempo del recuento de unidades en stock con el inventario de objetos y con el inventario
+ * columnar. La memoria se mide durante la preparación y se muestra en la salida; el benchmark mide el recorrido completo del
+ * inventario, que con las columnas no visita ningún objeto Producto
+ *
+ * @author : Juan Pablo García Plaza Pérez - Jose Ángel Concha Carrasco
+ * @grupo : Wild True
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = "-Xmx4g")
+public class InventarioColumnarBenchmark {
+
+    @Param({"100000", "1000000"})
+    private int productos;                                              // Tamaño del catálogo
+
+    @Param({"false", "true"})
+    private boolean columnar;                                           // Inventario de objetos o columnar
+
+    private Object gestor;
+    private LongSupplier unidades;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        this.gestor = Escenarios.crear("inventarioColumnar", this.productos, this.columnar);
+        this.unidades = Escenarios.crear("unidadesEnStock", this.gestor);
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        Escenarios.crear("cerrar", this.gestor);
+    }
+
+    @Benchmark
+    public long unidadesEnStock() {
+        return this.unidades.getAsLong();
+    }
+
+}
@@ -0,0 +1,75 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntPredicate;
+
+/**
+ * Coste para el hilo de negocio de informar a un usuario a través de un RegistroEventos, con uno y con varios hilos y sobre
+ * un destino que descarta la salida o sobre un fichero. Se compara con ImpresionDirectaBenchmark, que imprime los mismos
+ * mensajes directamente. Con la política DESCARTAR los mensajes que no caben en la cola no se esperan; al terminar cada
+ * prueba se muestra cuántos se han descartado
+ *
+ * @author : Juan Pablo García Plaza Pérez - Jose Ángel Concha Carrasco
+ * @grupo : Wild True
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class RegistroEventosBenchmark {
+
+    @Param({"descarte", "fichero"})
+    private String destino;
+
+    @Param({"DESCARTAR", "ESPERAR"})
+    private String politica;
+
+    @Param({"65536"})
+    private int capacidad;                                              // Eventos que caben en la cola del registro
+
+    private Object registro;
+    private IntPredicate registrar;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        this.registro = Escenarios.crear("registroEventos", this.destino, this.capacidad, this.politica);
+        this.registrar = Escenarios.crear("registrarMensaje", this.registro);
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        Escenarios.crear("cerrar", this.registro);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean registrarUnHilo() {
+        return this.registrar.test(ThreadLocalRandom.current().nextInt());
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean registrarOchoHilos() {
+        return this.registrar.test(ThreadLocalRandom.current().nextInt());
+    }
+
+}
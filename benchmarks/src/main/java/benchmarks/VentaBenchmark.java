@@ -0,0 +1,73 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntPredicate;
+
+/**
+ * Rendimiento de GestorStock.venderProducto con un solo hilo y con varios hilos vendiendo a la vez, tanto repartidos por
+ * todo el catálogo como concentrados en un mismo producto
+ *
+ * @author : Juan Pablo García Plaza Pérez - Jose Ángel Concha Carrasco
+ * @grupo : Wild True
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class VentaBenchmark {
+
+    @Param({"1000", "100000"})
+    private int productos;                                              // Tamaño del catálogo
+
+    private Object gestor;
+    private IntPredicate venta;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        this.gestor = Escenarios.crear("inventario", this.productos);
+        this.venta = Escenarios.crear("venta", this.gestor, this.productos);
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        Escenarios.crear("cerrar", this.gestor);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean venderUnHilo() {
+        return this.venta.test(ThreadLocalRandom.current().nextInt(this.productos));
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean venderConcurrente() {
+        return this.venta.test(ThreadLocalRandom.current().nextInt(this.productos));
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean venderMismoProducto() {
+        return this.venta.test(0);
+    }
+
+}
@@ -0,0 +1,213 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Almacén de solo escritura al final, fuera del heap, para el autor y el texto de los comentarios de un inventario. Los
+ * comentarios se leen muy poco una vez publicados, por lo que en lugar de mantener un objeto Comentario y sus cadenas en el
+ * heap durante toda la vida del producto, cada producto guarda solo una referencia a su registro en la arena junto a la
+ * puntuación, y el Comentario se reconstruye cuando se necesita. Los registros se escriben en segmentos de memoria directa
+ * y nunca se mueven dentro de la arena, de forma que las lecturas no usan cerrojos. Los registros de los productos retirados
+ * solo se marcan como liberados; cuando el espacio liberado supera al ocupado, el inventario copia los comentarios vivos a
+ * una arena nueva y los segmentos de la anterior se devuelven al sistema al recolectarse
+ *
+ * @author : Juan Pablo García Plaza Pérez - Jose Ángel Concha Carrasco
+ * @grupo : Wild True
+ */
+
+public class ArenaComentarios {
+
+    public static final int BITS_REFERENCIA = 61;                       // Bits útiles de las referencias devueltas por escribir
+
+    private static final int TAMANO_SEGMENTO = 1 << 20;                 // Los registros mayores ocupan un segmento propio
+    private static final int MAXIMO_SEGMENTOS = 1 << (BITS_REFERENCIA - 32);
+    private static final long MASCARA_POSICION = 0xFFFFFFFFL;
+    private static final int AHORRO_FIJO = 24 + 2 * (24 + 16) + 4 - 8;  // Comentario, String y char[] del autor y del texto, hueco en la lista, menos la referencia
+
+    private volatile ByteBuffer[] segmentos;                            // Segmentos de memoria directa. Solo crece
+    private ByteBuffer actual;                                          // Cursor de escritura del último segmento
+    private volatile long comentarios;
+    private volatile long bytesFueraHeap;
+    private volatile long ahorroHeap;                                   // Estimación de los bytes de heap ahorrados
+    private volatile long bytesLiberados;                               // Bytes de registros liberados, aún sin recuperar
+    private HistogramaLatencias latenciaLecturas;
+
+    /**
+     * Constructor por defecto de la clase. Genera una arena vacía; los segmentos se reservan a medida que se escribe
+     */
+    public ArenaComentarios() {
+        this.segmentos = new ByteBuffer[0];
+        this.actual = null;
+        this.comentarios = 0;
+        this.bytesFueraHeap = 0;
+        this.ahorroHeap = 0;
+        this.bytesLiberados = 0;
+        this.latenciaLecturas = new HistogramaLatencias();
+    }
+
+    /**
+     * Escribe el autor y el texto de un comentario al final de la arena
+     *
+     * @param autor Autor del comentario
+     * @param texto Texto del comentario
+     * @return Referencia al registro escrito, menor que 2^BITS_REFERENCIA, con la que leerlo después
+     */
+    public synchronized long escribir(String autor, String texto) {
+        byte[] bytesAutor = autor.getBytes(StandardCharsets.UTF_8);
+        byte[] bytesTexto = texto.getBytes(StandardCharsets.UTF_8);
+        int longitud = 8 + bytesAutor.length + bytesTexto.length;
+
+        if (this.actual == null || this.actual.remaining() < longitud)
+            agregarSegmento(Math.max(TAMANO_SEGMENTO, longitud));
+
+        long referencia = ((long) (this.segmentos.length - 1) << 32) | this.actual.position();
+        this.actual.putInt(bytesAutor.length).put(bytesAutor).putInt(bytesTexto.length).put(bytesTexto);
+
+        // Los campos volátiles solo se escriben bajo el cerrojo de la arena, por lo que los incrementos no se pierden
+        this.comentarios++;
+        this.bytesFueraHeap += longitud;
+        this.ahorroHeap += AHORRO_FIJO + 2L * (autor.length() + texto.length());
+        return referencia;
+    }
+
+    /**
+     * Reconstruye un comentario a partir de su registro en la arena. No usa cerrojos
+     *
+     * @param referencia Referencia devuelta por escribir
+     * @param puntuacion Puntuación del comentario, que guarda el propio producto
+     * @return Comentario reconstruido
+     */
+    public Comentario leer(long referencia, int puntuacion) {
+        long inicio = System.nanoTime();
+        ByteBuffer lectura = this.segmentos[(int) (referencia >>> 32)].duplicate();
+        lectura.position((int) (referencia & MASCARA_POSICION));
+
+        String autor = leerCadena(lectura);
+        String texto = leerCadena(lectura);
+        Comentario comentario = new Comentario(autor, texto, puntuacion);
+        this.latenciaLecturas.registrar(System.nanoTime() - inicio);
+        return comentario;
+    }
+
+    /**
+     * Marca como liberado un registro que ya no se va a leer, descontándolo de las estadísticas de la arena. El espacio no
+     * se reutiliza; se recupera al compactar los comentarios vivos en una arena nueva
+     *
+     * @param referencia Referencia devuelta por escribir
+     */
+    public synchronized void liberar(long referencia) {
+        ByteBuffer lectura = this.segmentos[(int) (referencia >>> 32)].duplicate();
+        lectura.position((int) (referencia & MASCARA_POSICION));
+        int inicio = lectura.position();
+        String autor = leerCadena(lectura);
+        String texto = leerCadena(lectura);
+        int longitud = lectura.position() - inicio;
+
+        this.comentarios--;
+        this.bytesFueraHeap -= longitud;
+        this.ahorroHeap -= AHORRO_FIJO + 2L * (autor.length() + texto.length());
+        this.bytesLiberados += longitud;
+    }
+
+    /**
+     * Indica si merece la pena copiar los comentarios vivos a una arena nueva: se han liberado al menos un segmento
+     * completo y más bytes de los que siguen en uso
+     *
+     * @return true si conviene compactar la arena, false en caso contrario
+     */
+    public boolean convieneCompactar() {
+        long liberados = this.bytesLiberados;
+        return liberados >= TAMANO_SEGMENTO && liberados > this.bytesFueraHeap;
+    }
+
+    /**
+     * Consulta el número de comentarios escritos en la arena
+     *
+     * @return Número de comentarios
+     */
+    public long getComentarios() {
+        return this.comentarios;
+    }
+
+    /**
+     * Consulta los bytes ocupados por los registros fuera del heap
+     *
+     * @return Bytes escritos en la arena
+     */
+    public long getBytesFueraHeap() {
+        return this.bytesFueraHeap;
+    }
+
+    /**
+     * Consulta los bytes de registros liberados que la arena no ha recuperado
+     *
+     * @return Bytes liberados
+     */
+    public long getBytesLiberados() {
+        return this.bytesLiberados;
+    }
+
+    /**
+     * Consulta los bytes reservados para los segmentos, incluido el espacio aún sin escribir
+     *
+     * @return Bytes de memoria directa reservados
+     */
+    public long getBytesReservados() {
+        long total = 0;
+        for (ByteBuffer segmento : this.segmentos)
+            total += segmento.capacity();
+
+        return total;
+    }
+
+    /**
+     * Estima los bytes de heap que ocuparían los comentarios de la arena si se guardaran como objetos Comentario: el
+     * propio objeto, las cadenas del autor y del texto con dos bytes por carácter y su hueco en la lista del producto,
+     * descontando la referencia que sí guarda el producto. El producto no retiene ninguna de las dos cadenas: para evitar
+     * comentarios repetidos solo guarda el hash de cada autor, y sus detalles formateados en CacheDetalles no incluyen los
+     * comentarios de la arena
+     *
+     * @return Bytes de heap ahorrados aproximados
+     */
+    public long getAhorroHeap() {
+        return this.ahorroHeap;
+    }
+
+    /**
+     * Método accesor del atributo 'latenciaLecturas'
+     *
+     * @return Histograma de latencia de la reconstrucción de comentarios
+     */
+    public HistogramaLatencias getLatenciaLecturas() {
+        return this.latenciaLecturas;
+    }
+
+    /**
+     * Reserva un segmento nuevo y lo publica antes de escribir en él
+     *
+     * @param capacidad Bytes del segmento
+     */
+    private void agregarSegmento(int capacidad) {
+        if (this.segmentos.length == MAXIMO_SEGMENTOS)
+            throw new IllegalStateException("La arena de comentarios ha alcanzado su número máximo de segmentos");
+
+        ByteBuffer segmento = ByteBuffer.allocateDirect(capacidad);
+        ByteBuffer[] ampliados = Arrays.copyOf(this.segmentos, this.segmentos.length + 1);
+        ampliados[ampliados.length - 1] = segmento;
+        this.segmentos = ampliados;
+        this.actual = segmento.duplicate();
+    }
+
+    /**
+     * Lee una cadena UTF-8 precedida de su longitud en bytes
+     *
+     * @param lectura Búfer posicionado al comienzo de la cadena
+     * @return Cadena leída
+     */
+    private static String leerCadena(ByteBuffer lectura) {
+        byte[] bytes = new byte[lectura.getInt()];
+        lectura.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+}
\ No newline at end of file
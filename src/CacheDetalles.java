@@ -0,0 +1,175 @@
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Límite global de la memoria que ocupan los detalles formateados que los productos guardan para reutilizarlos. Cada producto
+ * guarda su propio formateo y se lo notifica a la caché, que lleva la cuenta de los caracteres ocupados. Cuando se supera la
+ * capacidad se descartan formateos siguiendo el algoritmo del reloj: los productos se recorren en el orden en que se
+ * guardaron y los que se han leído desde la última pasada reciben una segunda oportunidad. Sigue el patrón de diseño Singleton
+ *
+ * @author : Juan Pablo García Plaza Pérez - Jose Ángel Concha Carrasco
+ * @grupo : Wild True
+ */
+
+public class CacheDetalles {
+
+    private static final long CAPACIDAD_POR_DEFECTO = 16L << 20;        // Caracteres
+
+    private static volatile CacheDetalles instanciaActual;
+    private volatile long capacidad;
+    private AtomicLong ocupacion;                                       // Caracteres de los formateos guardados
+    private Queue<Producto> orden;                                      // Productos con formateo guardado, en orden de inserción
+    private AtomicBoolean liberando;                                    // Solo un hilo descarta formateos a la vez
+    private LongAdder aciertos;
+    private LongAdder fallos;
+    private LongAdder descartes;
+
+    /**
+     * Constructor parametrizado de la clase. Sigue el patrón de diseño Singleton
+     *
+     * @param capacidad Número máximo de caracteres que pueden ocupar los formateos guardados
+     */
+    private CacheDetalles(long capacidad) {
+        this.capacidad = capacidad;
+        this.ocupacion = new AtomicLong();
+        this.orden = new ConcurrentLinkedQueue<>();
+        this.liberando = new AtomicBoolean();
+        this.aciertos = new LongAdder();
+        this.fallos = new LongAdder();
+        this.descartes = new LongAdder();
+    }
+
+    /**
+     * Devuelve la única instancia de la clase que existe. Sigue el patrón de diseño Singleton
+     *
+     * @return Única instancia de la clase CacheDetalles
+     */
+    public static CacheDetalles recuperarInstancia() {
+        if (instanciaActual == null) {
+            synchronized (CacheDetalles.class) {
+                if (instanciaActual == null)
+                    instanciaActual = new CacheDetalles(CAPACIDAD_POR_DEFECTO);
+            }
+        }
+
+        return instanciaActual;
+    }
+
+    /**
+     * Cambia la capacidad de la caché. Si la nueva capacidad es menor que la ocupación se descartan formateos hasta respetarla.
+     * Con capacidad 0 los productos dejan de guardar sus formateos
+     *
+     * @param capacidad Número máximo de caracteres que pueden ocupar los formateos guardados
+     */
+    public void setCapacidad(long capacidad) {
+        this.capacidad = Math.max(0, capacidad);
+        liberar();
+    }
+
+    /**
+     * Método accesor del atributo 'capacidad'
+     *
+     * @return Número máximo de caracteres que pueden ocupar los formateos guardados
+     */
+    public long getCapacidad() {
+        return this.capacidad;
+    }
+
+    /**
+     * Consulta el número de caracteres que ocupan los formateos guardados
+     *
+     * @return Ocupación de la caché en caracteres
+     */
+    public long getOcupacion() {
+        return this.ocupacion.get();
+    }
+
+    /**
+     * Consulta el número de lecturas de detalles resueltas con un formateo guardado
+     *
+     * @return Número de aciertos
+     */
+    public long getAciertos() {
+        return this.aciertos.sum();
+    }
+
+    /**
+     * Consulta el número de lecturas de detalles que han tenido que formatear el producto
+     *
+     * @return Número de fallos
+     */
+    public long getFallos() {
+        return this.fallos.sum();
+    }
+
+    /**
+     * Consulta el número de formateos descartados por falta de capacidad
+     *
+     * @return Número de descartes
+     */
+    public long getDescartes() {
+        return this.descartes.sum();
+    }
+
+    /**
+     * Indica si los productos deben guardar sus formateos
+     *
+     * @return Booleano indicando si la caché está activa
+     */
+    public boolean estaActiva() {
+        return this.capacidad > 0;
+    }
+
+    /**
+     * Registra una lectura de detalles
+     *
+     * @param acierto Indica si se ha resuelto con un formateo guardado
+     */
+    public void registrarLectura(boolean acierto) {
+        if (acierto)
+            this.aciertos.increment();
+        else
+            this.fallos.increment();
+    }
+
+    /**
+     * Anota que un producto ha guardado o sustituido su formateo y descarta otros formateos si se supera la capacidad
+     *
+     * @param producto  Producto que ha guardado el formateo
+     * @param nuevo     Indica si el producto no tenía ningún formateo guardado
+     * @param variacion Diferencia en caracteres respecto al formateo anterior
+     */
+    public void anotar(Producto producto, boolean nuevo, long variacion) {
+        if (nuevo)
+            this.orden.add(producto);
+        if (this.ocupacion.addAndGet(variacion) > this.capacidad)
+            liberar();
+    }
+
+    /**
+     * Descarta formateos hasta que la ocupación no supere la capacidad. Si otro hilo ya está descartando no hace nada
+     */
+    private void liberar() {
+        if (!this.liberando.compareAndSet(false, true))
+            return;
+
+        try {
+            Producto producto;
+            while (this.ocupacion.get() > this.capacidad && (producto = this.orden.poll()) != null) {
+                if (this.capacidad > 0 && producto.renderizadoReciente()) {
+                    this.orden.add(producto);
+                    continue;
+                }
+
+                this.ocupacion.addAndGet(-producto.descartarRenderizado());
+                this.descartes.increment();
+            }
+        } finally {
+            this.liberando.set(false);
+        }
+    }
+
+}
\ No newline at end of file
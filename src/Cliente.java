@@ -1,5 +1,7 @@
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * TODO DESCRIPCION
@@ -13,8 +15,10 @@ public class Cliente {
     private String nombre;
     private Identificador identificador;
     private int edad;
+    private String localidad;
     private GestorStock empresaAsociada;
     private Map<String, Producto> productosFavoritos;
+    private Map<Producto, String> aliasFavoritos;                       // Índice inverso de productosFavoritos
 
     /**
      * Constructor parametrizado de la clase. Genera un cliente a partir de un nombre, una edad y una localidad de residencia
@@ -24,7 +28,38 @@ public class Cliente {
      * @param localidad Nombre de la localidad de residencia del cliente
      */
     public Cliente(String nombre, int edad, String localidad) {
-        // TODO - implement Cliente.Cliente
+        this(nombre, edad, localidad, GestorStock.recuperarInstancia());
+    }
+
+    /**
+     * Constructor parametrizado de la clase. Genera un cliente asociado a una instancia concreta de GestorStock
+     *
+     * @param nombre          Nombre completo del cliente
+     * @param edad            Edad actual del cliente
+     * @param localidad       Nombre de la localidad de residencia del cliente
+     * @param empresaAsociada Inventario sobre el que el cliente realiza sus pedidos
+     */
+    public Cliente(String nombre, int edad, String localidad, GestorStock empresaAsociada) {
+        this(GeneradorIdentificador.recuperarInstancia().generarIdentificador(), nombre, edad, localidad, empresaAsociada);
+    }
+
+    /**
+     * Constructor parametrizado de la clase. Restaura un cliente conservando el identificador que se le asignó al crearlo
+     *
+     * @param identificador   Identificador que se asignó al cliente cuando se creó
+     * @param nombre          Nombre completo del cliente
+     * @param edad            Edad actual del cliente
+     * @param localidad       Nombre de la localidad de residencia del cliente
+     * @param empresaAsociada Inventario sobre el que el cliente realiza sus pedidos
+     */
+    public Cliente(Identificador identificador, String nombre, int edad, String localidad, GestorStock empresaAsociada) {
+        this.nombre = nombre;
+        this.identificador = identificador;
+        this.edad = edad;
+        this.localidad = localidad;
+        this.empresaAsociada = empresaAsociada;
+        this.productosFavoritos = new HashMap<>();
+        this.aliasFavoritos = new ConcurrentHashMap<>();
     }
 
     /**
@@ -60,7 +95,16 @@ public class Cliente {
      * @return Localidad del cliente
      */
     public String getLocalidad() {
-        // TODO - implement Cliente.getLocalidad
+        return this.localidad;
+    }
+
+    /**
+     * Consulta la colección de productos favoritos del cliente
+     *
+     * @return Copia de la asociación entre cada alias y su producto favorito
+     */
+    public synchronized Map<String, Producto> getFavoritos() {
+        return new HashMap<>(this.productosFavoritos);
     }
 
     /**
@@ -70,8 +114,44 @@ public class Cliente {
      * @param alias    Nombre con el que recordar el producto favorito
      * @return Booleano indicando si se ha realizado correctamente la operación.
      */
-    public boolean agregarFavorito(Producto producto, String alias) {
-        // TODO - implement Cliente.agregarFavorito
+    public synchronized boolean agregarFavorito(Producto producto, String alias) {
+        if (producto == null || alias == null) {
+            informarUsuario("No se ha indicado el producto o el alias del favorito");
+            return false;
+        }
+        if (this.productosFavoritos.containsKey(alias) || this.aliasFavoritos.containsKey(producto)) {
+            informarUsuario("El producto o el alias '" + alias + "' ya están en la colección de favoritos");
+            return false;
+        }
+        if (!anadirFavorito(producto, alias)) {
+            informarUsuario("El producto '" + producto.getNombre() + "' no está en el inventario");
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Añade varios productos a la colección de favoritos en una sola operación, por ejemplo al importar los favoritos de
+     * otro sistema. Se omiten los productos o alias que ya están en la colección y los productos que no están en el inventario
+     *
+     * @param favoritos Asociación entre cada alias y el producto a añadir
+     * @return Número de favoritos añadidos
+     */
+    public synchronized int agregarFavoritos(Map<String, Producto> favoritos) {
+        int agregados = 0;
+        for (Map.Entry<String, Producto> favorito : favoritos.entrySet()) {
+            String alias = favorito.getKey();
+            Producto producto = favorito.getValue();
+            if (alias == null || producto == null || this.productosFavoritos.containsKey(alias) || this.aliasFavoritos.containsKey(producto))
+                continue;
+            if (anadirFavorito(producto, alias))
+                agregados++;
+        }
+
+        if (agregados < favoritos.size())
+            informarUsuario((favoritos.size() - agregados) + " favoritos no se han añadido por estar repetidos o fuera del inventario");
+        return agregados;
     }
 
     /**
@@ -82,7 +162,13 @@ public class Cliente {
      * @return Booleano indicando si se ha realizado correctamente la operación.
      */
     public boolean agregarFavorito(String identificador, String alias) {
-        // TODO - implement Cliente.agregarFavorito
+        Producto producto = this.empresaAsociada.recuperarProducto(identificador);
+        if (producto == null) {
+            informarUsuario("No existe ningún producto con identificador " + identificador);
+            return false;
+        }
+
+        return agregarFavorito(producto, alias);
     }
 
     /**
@@ -91,8 +177,62 @@ public class Cliente {
      * @param alias Alias que se le puso al producto favorito cuando se agregó a la colección
      * @return Booleano si se ha podido eliminar el producto o no. Devuelve false si el producto no existe en la colección de favoritos
      */
-    public boolean eliminarFavorito(String alias) {
-        // TODO - implement Cliente.eliminarFavorito
+    public synchronized boolean eliminarFavorito(String alias) {
+        if (!quitarFavorito(alias)) {
+            informarUsuario("No hay ningún favorito con el alias '" + alias + "'");
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Elimina varios productos de la colección de favoritos en una sola operación. Se omiten los alias que no existen
+     *
+     * @param aliases Alias de los favoritos a eliminar
+     * @return Número de favoritos eliminados
+     */
+    public synchronized int eliminarFavoritos(Collection<String> aliases) {
+        int eliminados = 0;
+        for (String alias : aliases)
+            if (quitarFavorito(alias))
+                eliminados++;
+
+        return eliminados;
+    }
+
+    /**
+     * Consulta el alias con el que se guardó un producto en la colección de favoritos
+     *
+     * @param producto Producto a consultar
+     * @return Alias del producto, o null si no es un favorito del cliente
+     */
+    public String aliasDe(Producto producto) {
+        return producto == null ? null : this.aliasFavoritos.get(producto);
+    }
+
+    /**
+     * Retira un producto de la colección de favoritos porque se ha eliminado del inventario. Lo invoca el GestorStock
+     * asociado, solo sobre los clientes que tenían el producto entre sus favoritos
+     *
+     * @param producto Producto eliminado del inventario
+     */
+    public synchronized void productoEliminado(Producto producto) {
+        String alias = this.aliasFavoritos.remove(producto);
+        if (alias != null && this.productosFavoritos.remove(alias, producto))
+            informarUsuario("El favorito '" + alias + "' se ha retirado porque ya no está en el inventario");
+    }
+
+    /**
+     * Avisa al cliente de que uno de sus productos favoritos vuelve a tener stock suficiente. Lo invoca el GestorStock
+     * asociado, solo sobre los clientes que tenían el producto entre sus favoritos
+     *
+     * @param producto Producto repuesto
+     */
+    public void productoRepuesto(Producto producto) {
+        String alias = this.aliasFavoritos.get(producto);
+        if (alias != null)
+            informarUsuario("El favorito '" + alias + "' vuelve a tener stock (" + producto.getCantidad() + " unidades)");
     }
 
     /**
@@ -102,7 +242,45 @@ public class Cliente {
      * @return Booleano indicando si se pudo hacer el pedido. Devuelve falso si no se encontró el producto en la colección de favoritos, o si no hay suficiente cantidad en stock del producto para satisfacer el pedido (en cuyo caso no realiza el pedido)
      */
     public boolean pedirProducto(String alias) {
-        // TODO - implement Cliente.pedirProducto
+        return pedirProducto(alias, 1);
+    }
+
+    /**
+     * Realiza el pedido de un número de unidades de un producto favorito
+     *
+     * @param alias    Alias con el que se guardó el producto favorito
+     * @param cantidad Número de unidades a pedir
+     * @return Booleano indicando si se pudo hacer el pedido. Devuelve falso si no se encontró el producto en la colección de favoritos, o si no hay suficiente cantidad en stock del producto para satisfacer el pedido (en cuyo caso no realiza el pedido)
+     */
+    public boolean pedirProducto(String alias, int cantidad) {
+        Producto producto = recuperarFavorito(alias);
+        if (producto == null) {
+            informarUsuario("No hay ningún favorito con el alias '" + alias + "'");
+            return false;
+        }
+
+        long inicio = System.nanoTime();
+        boolean servido = this.empresaAsociada.venderProducto(cantidad, producto);
+        notificarPedido(alias, cantidad, servido, System.nanoTime() - inicio);
+        return servido;
+    }
+
+    /**
+     * Registra la duración de un pedido en las métricas del inventario e informa al usuario de su resultado. También lo usa
+     * ServicioPedidos para los pedidos que resuelve sin pasar por pedirProducto
+     *
+     * @param alias        Alias del producto favorito pedido
+     * @param cantidad     Número de unidades pedidas
+     * @param servido      Indica si el pedido se ha servido
+     * @param nanosegundos Duración del pedido, desde que se solicita hasta que se resuelve
+     */
+    void notificarPedido(String alias, int cantidad, boolean servido, long nanosegundos) {
+        this.empresaAsociada.getMetricas().registrarPedido(nanosegundos);
+
+        if (!servido)
+            informarUsuario("No se ha podido realizar el pedido de '" + alias + "'");
+        else
+            informarUsuario("Pedido de " + cantidad + " unidades de '" + alias + "' realizado");
     }
 
     /**
@@ -111,17 +289,103 @@ public class Cliente {
      * @return Booleano indicando si se pudo realizar el pedido. Devuelve falso si alguno de los productos no se encuentra en stock y no se realiza el pedido de ningún producto
      */
     public boolean pedirUnidadFavoritos() {
-        // TODO - implement Cliente.pedirUnidadFavoritos
+        Map<Producto, Integer> lineas = new HashMap<>();
+        synchronized (this) {
+            for (Producto producto : this.productosFavoritos.values())
+                lineas.put(producto, 1);
+        }
+
+        if (lineas.isEmpty()) {
+            informarUsuario("La colección de favoritos está vacía");
+            return false;
+        }
+
+        // El pedido se resuelve en una única operación atómica sobre el inventario
+        if (!this.empresaAsociada.venderProductos(lineas)) {
+            informarUsuario("No se ha podido realizar el pedido de los favoritos");
+            return false;
+        }
+
+        informarUsuario("Pedido de una unidad de cada favorito realizado");
+        return true;
     }
 
     /**
-     * Publica un comentario sobre un producto. El producto debe estar entre los productos favoritos y un cliente solo puede publicar un comentario sobre un producto
+     * Publica un comentario sobre un producto. El producto debe estar entre los productos favoritos y un cliente solo puede publicar un comentario sobre un producto.
+     * Un comentario necesita un texto y una puntuación, así que esta versión no publica nada y solo informa de que deben
+     * indicarse con comentarProducto(alias, texto, puntuacion)
      *
      * @param alias Alias con el que se guardó el producto en la colección de favoritos
-     * @return Booleano indicando si se pudo publicar el comentario
+     * @return Booleano indicando si se pudo publicar el comentario. Siempre es false
      */
     public boolean comentarProducto(String alias) {
-        // TODO - implement Cliente.comentarProducto
+        informarUsuario("No se ha indicado el texto ni la puntuación del comentario sobre '" + alias + "'");
+        return false;
+    }
+
+    /**
+     * Publica un comentario con un texto y una puntuación sobre un producto favorito. Un cliente solo puede publicar un
+     * comentario sobre cada producto
+     *
+     * @param alias      Alias con el que se guardó el producto en la colección de favoritos
+     * @param texto      Cuerpo del comentario
+     * @param puntuacion Calificación del producto, entre 1 y 5 (ambos inclusive)
+     * @return Booleano indicando si se pudo publicar el comentario
+     */
+    public boolean comentarProducto(String alias, String texto, int puntuacion) {
+        Producto producto = recuperarFavorito(alias);
+        if (producto == null) {
+            informarUsuario("No hay ningún favorito con el alias '" + alias + "'");
+            return false;
+        }
+
+        if (!this.empresaAsociada.comentarProducto(producto, new Comentario(this.nombre, texto, puntuacion))) {
+            informarUsuario("No se ha podido publicar el comentario sobre '" + alias + "'");
+            return false;
+        }
+
+        informarUsuario("Comentario sobre '" + alias + "' publicado");
+        return true;
+    }
+
+    /**
+     * Guarda un favorito en la colección y en el índice de interesados del inventario. Debe invocarse con el cerrojo del
+     * cliente y tras comprobar que ni el producto ni el alias están ya en la colección
+     *
+     * @param producto Producto a añadir
+     * @param alias    Nombre con el que recordar el producto favorito
+     * @return Booleano indicando si se ha añadido. Devuelve falso si el producto no está en el inventario
+     */
+    private boolean anadirFavorito(Producto producto, String alias) {
+        if (!this.empresaAsociada.contieneProducto(producto))
+            return false;
+
+        this.productosFavoritos.put(alias, producto);
+        this.aliasFavoritos.put(producto, alias);
+        this.empresaAsociada.registrarInteresado(producto, this);
+
+        // Si el producto se ha eliminado mientras tanto puede que el inventario ya no avise a este cliente
+        if (!this.empresaAsociada.contieneProducto(producto)) {
+            quitarFavorito(alias);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Quita un favorito de la colección y del índice de interesados del inventario. Debe invocarse con el cerrojo del cliente
+     *
+     * @param alias Alias del favorito
+     * @return Booleano indicando si el alias estaba en la colección
+     */
+    private boolean quitarFavorito(String alias) {
+        Producto producto = alias == null ? null : this.productosFavoritos.remove(alias);
+        if (producto == null)
+            return false;
+
+        this.aliasFavoritos.remove(producto);
+        this.empresaAsociada.retirarInteresado(producto, this);
+        return true;
     }
 
     /**
@@ -130,17 +394,21 @@ public class Cliente {
      * @param alias Alias con el que se guardó el producto en la colección de favoritos
      * @return Producto favorito asociado al alias. Devuelve el valor null si el producto no pertenece a la colección de productos favoritos
      */
-    private Producto recuperarFavorito(String alias) {
-        // TODO - implement Cliente.recuperarFavorito
+    public synchronized Producto recuperarFavorito(String alias) {
+        return alias == null ? null : this.productosFavoritos.get(alias);
     }
 
     /**
-     * Informa por consola al usuario sobre el resultado de una determinada acción
+     * Informa al usuario sobre el resultado de una determinada acción, por consola o a través del registro de eventos si está activo
      *
      * @param mensaje Cadena formateada al mostrar al usuario por consola
      */
     private void informarUsuario(String mensaje) {
-        // TODO - implement Cliente.informarUsuario
+        RegistroEventos registro = this.empresaAsociada.getRegistroEventos();
+        if (registro != null)
+            registro.registrarMensaje(this.nombre, mensaje);
+        else
+            System.out.println("[" + this.nombre + "] " + mensaje);
     }
 
 }
\ No newline at end of file
@@ -19,7 +19,9 @@ public class Comentario {
      * @param puntuacion Calificación del producto
      */
     public Comentario(String autor, String texto, int puntuacion) {
-        // TODO - implement Comentario.Comentario
+        this.autor = autor;
+        this.texto = texto;
+        this.puntuacion = puntuacion;
     }
 
     /**
@@ -55,7 +57,18 @@ public class Comentario {
      * @return Cadena con el contenido del comentario formateado
      */
     public String comentarioCompleto() {
-        // TODO - implement Comentario.comentarioCompleto
+        StringBuilder destino = new StringBuilder();
+        comentarioCompleto(destino);
+        return destino.toString();
+    }
+
+    /**
+     * Añade los detalles del comentario formateados al final de un StringBuilder, sin crear cadenas intermedias
+     *
+     * @param destino StringBuilder al que se añade el comentario formateado
+     */
+    public void comentarioCompleto(StringBuilder destino) {
+        destino.append(this.autor).append(" (").append(this.puntuacion).append("/5): ").append(this.texto);
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,187 @@
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Control de épocas que permite leer el stock de todo el inventario en un mismo instante sin detener las ventas. Cada
+ * operación que modifica el stock se registra en la época actual y etiqueta con ella sus escrituras. Abrir una instantánea
+ * avanza la época y espera únicamente a que terminen las operaciones que ya estaban en curso en la época anterior; a partir
+ * de ahí cada producto conserva su cantidad previa la primera vez que se modifica en la época nueva, de forma que la
+ * instantánea lee siempre la cantidad que tenía el producto al cerrarse la época anterior.
+ * Las operaciones no deben anidarse en un mismo hilo: una operación registrada no debe llamar a otra que se registre, y cada
+ * operación debe terminar en el mismo hilo en el que comenzó.
+ * Los contadores de operaciones en curso están repartidos en franjas separadas por hilo, para que los hilos que venden a la
+ * vez no compitan por una misma línea de caché; solo al drenar una época se suman todas las franjas
+ *
+ * @author : Juan Pablo García Plaza Pérez - Jose Ángel Concha Carrasco
+ * @grupo : Wild True
+ */
+
+public class ControlEpocas {
+
+    private static final int FRANJAS = franjas();                       // Contadores por época, potencia de dos
+    private static final int SEPARACION = 16;                           // Posiciones entre franjas (128 bytes, dos líneas de caché)
+    private static final int ESPERAS_ACTIVAS = 64;                      // Comprobaciones cediendo el procesador antes de dormir
+    private static final long ESPERA_MAXIMA_NANOSEGUNDOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private AtomicLong epoca;                                           // Época de las operaciones que comienzan ahora
+    private AtomicLongArray[] activas;                                  // Operaciones en curso por franja, de las épocas pares e impares
+    private volatile long drenada;                                      // Última época cuyas operaciones han terminado todas
+    private int lectores;                                               // Instantáneas abiertas sobre la época anterior a la actual
+    private Queue<Thread> esperando;                                    // Operaciones dormidas hasta que se drene la época anterior
+
+    /**
+     * Constructor por defecto de la clase. Comienza en la época 1 sin operaciones en curso
+     */
+    public ControlEpocas() {
+        this.epoca = new AtomicLong(1);
+        this.activas = new AtomicLongArray[]{new AtomicLongArray(FRANJAS * SEPARACION), new AtomicLongArray(FRANJAS * SEPARACION)};
+        this.drenada = 0;
+        this.lectores = 0;
+        this.esperando = new ConcurrentLinkedQueue<>();
+    }
+
+    /**
+     * Registra el comienzo de una operación que modifica el stock. Si se acaba de abrir una instantánea, espera a que
+     * terminen las operaciones de la época anterior antes de devolver el control, lo que solo dura lo que tarde en
+     * completarse una operación ya empezada
+     *
+     * @return Época con la que la operación debe etiquetar sus escrituras y que debe pasarse a salir
+     */
+    public long entrar() {
+        int franja = franja();
+        while (true) {
+            long actual = this.epoca.get();
+            AtomicLongArray contadores = this.activas[(int) (actual & 1)];
+            contadores.incrementAndGet(franja);
+
+            // Si la época ha avanzado entre la lectura y el registro, la operación se registra de nuevo en la nueva
+            if (this.epoca.get() == actual) {
+                esperarEpocaAnterior(actual - 1);
+                return actual;
+            }
+            contadores.decrementAndGet(franja);
+        }
+    }
+
+    /**
+     * Registra el final de una operación iniciada con entrar. Debe invocarse desde el mismo hilo
+     *
+     * @param epoca Época devuelta por entrar
+     */
+    public void salir(long epoca) {
+        this.activas[(int) (epoca & 1)].decrementAndGet(franja());
+    }
+
+    /**
+     * Abre una instantánea del stock. Si ya hay otra abierta se comparte su mismo instante, sin esperar
+     *
+     * @return Época de la instantánea. Las cantidades leídas con ella son las que había al terminar esa época
+     */
+    public synchronized long abrirInstantanea() {
+        if (this.lectores++ > 0)
+            return this.drenada;
+
+        long anterior = this.epoca.getAndIncrement();
+        esperarOperaciones(anterior);
+        this.drenada = anterior;
+
+        // Las operaciones que se durmieron esperando a esta época se despiertan después de publicar que está drenada
+        Thread dormido;
+        while ((dormido = this.esperando.poll()) != null)
+            LockSupport.unpark(dormido);
+        return anterior;
+    }
+
+    /**
+     * Cierra una instantánea abierta con abrirInstantanea. Las cantidades conservadas dejan de hacer falta cuando se
+     * cierra la última, y la siguiente instantánea avanza de nuevo la época
+     */
+    public synchronized void cerrarInstantanea() {
+        if (this.lectores > 0)
+            this.lectores--;
+    }
+
+    /**
+     * Espera, al abrir una instantánea, a que terminen todas las operaciones registradas en la época que se cierra. Solo
+     * quedan las que ya estaban en curso cuando avanzó la época, ya que las nuevas se registran en la siguiente. Primero se
+     * cede el procesador y después se duerme cada vez más tiempo, hasta un máximo de 100 microsegundos
+     *
+     * @param epoca Época cuyas operaciones se esperan
+     */
+    private void esperarOperaciones(long epoca) {
+        long espera = 1000;
+        for (int intento = 0; operacionesEnCurso(epoca) != 0; intento++) {
+            if (intento < ESPERAS_ACTIVAS) {
+                Thread.yield();
+            } else {
+                LockSupport.parkNanos(this, espera);
+                espera = Math.min(espera * 2, ESPERA_MAXIMA_NANOSEGUNDOS);
+            }
+        }
+    }
+
+    /**
+     * Espera, al comenzar una operación, a que se drene la época anterior. Se deja de esperar en cuanto la época consta
+     * como drenada o no le quedan operaciones: el contador se reutiliza para la época dos veces posterior y un hilo que
+     * llegue tarde podría no verlo nunca a cero. Si la espera se alarga, el hilo se duerme hasta que la instantánea que
+     * avanzó la época lo despierte al terminar de drenarla
+     *
+     * @param epoca Época cuyas operaciones se esperan
+     */
+    private void esperarEpocaAnterior(long epoca) {
+        for (int intento = 0; this.drenada < epoca && operacionesEnCurso(epoca) != 0; intento++) {
+            if (intento < ESPERAS_ACTIVAS) {
+                Thread.yield();
+                continue;
+            }
+
+            // Solo una instantánea avanza la época, y despierta a los hilos encolados después de publicar 'drenada'
+            Thread actual = Thread.currentThread();
+            this.esperando.offer(actual);
+            while (this.drenada < epoca)
+                LockSupport.park(this);
+            this.esperando.remove(actual);
+            return;
+        }
+    }
+
+    /**
+     * Suma las operaciones en curso de una época en todas las franjas
+     *
+     * @param epoca Época a consultar
+     * @return Número de operaciones en curso registradas con la paridad de la época
+     */
+    private long operacionesEnCurso(long epoca) {
+        AtomicLongArray contadores = this.activas[(int) (epoca & 1)];
+        long total = 0;
+        for (int i = 0; i < FRANJAS * SEPARACION; i += SEPARACION)
+            total += contadores.get(i);
+
+        return total;
+    }
+
+    /**
+     * Calcula la posición del contador del hilo actual. Los identificadores de hilo son consecutivos, por lo que los hilos
+     * creados a la vez, como los de un mismo pool, quedan en franjas distintas
+     *
+     * @return Posición de la franja del hilo en los vectores de contadores
+     */
+    private static int franja() {
+        return ((int) Thread.currentThread().getId() & (FRANJAS - 1)) * SEPARACION;
+    }
+
+    /**
+     * Calcula el número de franjas: una potencia de dos de al menos el doble del número de procesadores, con un máximo de 64
+     *
+     * @return Número de franjas
+     */
+    private static int franjas() {
+        int procesadores = Runtime.getRuntime().availableProcessors();
+        return Math.min(64, Integer.highestOneBit(Math.max(1, procesadores) * 2 - 1) << 1);
+    }
+
+}
\ No newline at end of file
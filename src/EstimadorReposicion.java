@@ -0,0 +1,18 @@
+/**
+ * Estrategia que decide cuántas unidades se añaden al stock de un producto cuando se repone. Si un producto no tiene ninguna
+ * asignada, la cantidad repuesta depende de su stock mínimo y de su prioridad de reabastecimiento
+ *
+ * @author : Juan Pablo García Plaza Pérez - Jose Ángel Concha Carrasco
+ * @grupo : Wild True
+ */
+
+public interface EstimadorReposicion {
+
+    /**
+     * Calcula las unidades a reponer de un producto. Se invoca en el hilo que realiza la reposición, por lo que debe ser rápido
+     *
+     * @param producto Producto a reponer
+     * @return Unidades a reponer. Si no es mayor que 0 se usa la cantidad por defecto del producto
+     */
+    int unidadesReposicion(Producto producto);
+}
\ No newline at end of file
@@ -0,0 +1,521 @@
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Formato binario compacto y versionado para intercambiar productos, comentarios y clientes entre procesos.
+ *
+ * Los enteros se escriben como varint (7 bits por byte), las fechas como días desde 1970-01-01 en zigzag, los enumerados por
+ * su ordinal y los identificadores por su entero decimal. Los nombres de los autores, de los clientes y las localidades se
+ * guardan una sola vez en una tabla de cadenas y se referencian por su posición. Cada producto y cada cliente va precedido de
+ * la longitud de su registro, por lo que al abrir un búfer solo se localizan los registros, sin copiar ni decodificar nada;
+ * los atributos se leen directamente del búfer cuando se consultan.
+ *
+ * Estructura: mágico (4 bytes), versión (1 byte), tabla de cadenas, registros de productos y registros de clientes.
+ * Las lecturas comprueban longitudes, ordinales y referencias, de forma que una codificación corrupta provoca siempre una
+ * IllegalArgumentException en lugar de un producto con atributos arbitrarios o un error de otro tipo
+ *
+ * @author : Juan Pablo García Plaza Pérez - Jose Ángel Concha Carrasco
+ * @grupo : Wild True
+ */
+
+public class FormatoBinario {
+
+    private static final int MAGICO = 0x44504243;                       // "DPBC"
+    private static final byte VERSION = 1;
+    private static final byte REACONDICIONADO = 1;
+
+    private static final FABRICANTES[] fabricantes = FABRICANTES.values();
+    private static final PRIORIDAD_PRODUCTO[] prioridades = PRIORIDAD_PRODUCTO.values();
+
+    private ByteBuffer datos;
+    private int[] cadenas;                                              // Posición de cada cadena de la tabla
+    private String[] cadenasLeidas;                                     // Cadenas de la tabla ya decodificadas
+    private int[] productos;                                            // Posición de cada registro de producto
+    private int[] clientes;                                             // Posición de cada registro de cliente
+
+    /**
+     * Búfer de bytes ampliable en el que se compone la codificación
+     */
+    private static class Salida {
+        private byte[] bytes = new byte[256];
+        private int tamano;
+
+        private void asegurar(int adicionales) {
+            if (this.tamano + adicionales > this.bytes.length)
+                this.bytes = Arrays.copyOf(this.bytes, Math.max(this.bytes.length * 2, this.tamano + adicionales));
+        }
+
+        private void escribirByte(int valor) {
+            asegurar(1);
+            this.bytes[this.tamano++] = (byte) valor;
+        }
+
+        private void escribirVarint(int valor) {
+            asegurar(5);
+            while ((valor & ~0x7F) != 0) {
+                this.bytes[this.tamano++] = (byte) ((valor & 0x7F) | 0x80);
+                valor >>>= 7;
+            }
+            this.bytes[this.tamano++] = (byte) valor;
+        }
+
+        private void escribirCadena(String cadena) {
+            byte[] utf8 = cadena.getBytes(StandardCharsets.UTF_8);
+            escribirVarint(utf8.length);
+            escribirBytes(utf8, 0, utf8.length);
+        }
+
+        private void escribirBytes(byte[] origen, int desde, int longitud) {
+            asegurar(longitud);
+            System.arraycopy(origen, desde, this.bytes, this.tamano, longitud);
+            this.tamano += longitud;
+        }
+
+        private void escribirRegistro(Salida registro) {
+            escribirVarint(registro.tamano);
+            escribirBytes(registro.bytes, 0, registro.tamano);
+            registro.tamano = 0;
+        }
+    }
+
+    /**
+     * Constructor parametrizado de la clase. Localiza los registros de un búfer codificado sin decodificarlos
+     *
+     * @param datos Búfer con la codificación. Se lee desde su posición actual y no se modifica
+     */
+    private FormatoBinario(ByteBuffer datos) {
+        this.datos = datos.slice();
+    }
+
+    /**
+     * Codifica un conjunto de productos, con sus comentarios, y de clientes, con sus favoritos
+     *
+     * @param productos Productos a codificar
+     * @param clientes  Clientes a codificar
+     * @return Búfer con la codificación, listo para leerse
+     */
+    public static ByteBuffer codificar(Collection<Producto> productos, Collection<Cliente> clientes) {
+        return codificar(productos, clientes, null);
+    }
+
+    /**
+     * Codifica un conjunto de productos y de clientes tomando las cantidades en stock de una instantánea, de forma que la
+     * exportación corresponde a un mismo instante aunque se sigan realizando ventas mientras se codifica
+     *
+     * @param productos   Productos a codificar
+     * @param clientes    Clientes a codificar
+     * @param instantanea Instantánea de la que leer las cantidades. Si es null se codifican las cantidades actuales
+     * @return Búfer con la codificación, listo para leerse
+     */
+    public static ByteBuffer codificar(Collection<Producto> productos, Collection<Cliente> clientes, InstantaneaStock instantanea) {
+        return codificar(productos, clientes, instantanea, null, null);
+    }
+
+    /**
+     * Codifica un conjunto de productos con las cantidades en stock y el número de comentarios capturados previamente, por
+     * ejemplo los de un mismo instante del inventario. Solo se codifican los primeros comentarios de cada producto
+     *
+     * @param productos   Productos a codificar
+     * @param cantidades  Cantidad en stock de cada producto, en el mismo orden
+     * @param comentarios Número de comentarios a codificar de cada producto, en el mismo orden
+     * @return Búfer con la codificación, sin clientes, listo para leerse
+     */
+    public static ByteBuffer codificar(List<Producto> productos, int[] cantidades, int[] comentarios) {
+        return codificar(productos, Collections.<Cliente>emptyList(), null, cantidades, comentarios);
+    }
+
+    /**
+     * Codifica un conjunto de productos y de clientes
+     *
+     * @param productos   Productos a codificar
+     * @param clientes    Clientes a codificar
+     * @param instantanea Instantánea de la que leer las cantidades, o null
+     * @param cantidades  Cantidad de cada producto, o null para leerla de la instantánea o del propio producto
+     * @param comentarios Número de comentarios de cada producto, o null para codificarlos todos
+     * @return Búfer con la codificación, listo para leerse
+     */
+    private static ByteBuffer codificar(Collection<Producto> productos, Collection<Cliente> clientes, InstantaneaStock instantanea,
+                                        int[] cantidades, int[] comentarios) {
+        Map<String, Integer> tabla = new HashMap<>();
+        Salida cadenas = new Salida();
+        Salida cuerpo = new Salida();
+        Salida registro = new Salida();
+
+        int posicion = 0;
+        cuerpo.escribirVarint(productos.size());
+        for (Producto producto : productos) {
+            registro.escribirVarint(producto.getIdentificador().aDecimal());
+            if (cantidades != null)
+                registro.escribirVarint(cantidades[posicion]);
+            else
+                registro.escribirVarint(instantanea != null ? instantanea.getCantidad(producto) : producto.getCantidad());
+            registro.escribirVarint(producto.getStockMinimo());
+            registro.escribirByte(producto.getFabricante().ordinal());
+            registro.escribirByte(producto.getPrioridad().ordinal());
+            registro.escribirVarint(zigzag(producto.getDiaLanzamiento()));
+            registro.escribirByte(producto.getEsReacondicionado() ? REACONDICIONADO : 0);
+            registro.escribirCadena(producto.getNombre());
+
+            List<Comentario> publicados = comentarios != null ? producto.getComentarios(0, comentarios[posicion]) : producto.getComentarios();
+            registro.escribirVarint(publicados.size());
+            for (Comentario comentario : publicados) {
+                registro.escribirVarint(referencia(comentario.getAutor(), tabla, cadenas));
+                registro.escribirCadena(comentario.getTexto());
+                registro.escribirByte(comentario.getPuntuacion());
+            }
+            cuerpo.escribirRegistro(registro);
+            posicion++;
+        }
+
+        cuerpo.escribirVarint(clientes.size());
+        for (Cliente cliente : clientes) {
+            registro.escribirVarint(cliente.getIdentificador().aDecimal());
+            registro.escribirVarint(referencia(cliente.getNombre(), tabla, cadenas));
+            registro.escribirVarint(cliente.getEdad());
+            registro.escribirVarint(referencia(cliente.getLocalidad(), tabla, cadenas));
+
+            Map<String, Producto> favoritos = cliente.getFavoritos();
+            registro.escribirVarint(favoritos.size());
+            for (Map.Entry<String, Producto> favorito : favoritos.entrySet()) {
+                registro.escribirCadena(favorito.getKey());
+                registro.escribirVarint(favorito.getValue().getIdentificador().aDecimal());
+            }
+            cuerpo.escribirRegistro(registro);
+        }
+
+        Salida cabecera = new Salida();
+        cabecera.escribirVarint(tabla.size());
+
+        ByteBuffer destino = ByteBuffer.allocate(4 + 1 + cabecera.tamano + cadenas.tamano + cuerpo.tamano);
+        destino.putInt(MAGICO).put(VERSION);
+        destino.put(cabecera.bytes, 0, cabecera.tamano).put(cadenas.bytes, 0, cadenas.tamano).put(cuerpo.bytes, 0, cuerpo.tamano);
+        destino.flip();
+        return destino;
+    }
+
+    /**
+     * Abre un búfer codificado. Solo se recorren las longitudes de los registros para localizarlos
+     *
+     * @param datos Búfer con la codificación
+     * @return Lector de la codificación
+     * @throws IllegalArgumentException Si el búfer no contiene una codificación válida de una versión soportada
+     */
+    public static FormatoBinario abrir(ByteBuffer datos) {
+        FormatoBinario lector = new FormatoBinario(datos);
+        ByteBuffer origen = lector.datos.duplicate();
+
+        try {
+            if (origen.getInt() != MAGICO)
+                throw new IllegalArgumentException("El búfer no contiene productos codificados");
+            byte version = origen.get();
+            if (version != VERSION)
+                throw new IllegalArgumentException("Versión del formato binario no soportada (" + version + ")");
+
+            lector.cadenas = localizar(origen);
+            lector.cadenasLeidas = new String[lector.cadenas.length];
+            lector.productos = localizar(origen);
+            lector.clientes = localizar(origen);
+            return lector;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("La codificación está truncada", e);
+        }
+    }
+
+    /**
+     * Consulta el número de productos codificados
+     *
+     * @return Número de productos
+     */
+    public int getNumeroProductos() {
+        return this.productos.length;
+    }
+
+    /**
+     * Consulta el número de clientes codificados
+     *
+     * @return Número de clientes
+     */
+    public int getNumeroClientes() {
+        return this.clientes.length;
+    }
+
+    /**
+     * Lee el entero decimal del identificador de un producto sin decodificar el resto del registro
+     *
+     * @param indice Posición del producto
+     * @return Entero decimal del identificador
+     */
+    public int leerIdentificadorProducto(int indice) {
+        return leerVarint(registro(this.productos, indice));
+    }
+
+    /**
+     * Lee la cantidad en stock de un producto sin decodificar el resto del registro
+     *
+     * @param indice Posición del producto
+     * @return Cantidad en stock
+     */
+    public int leerCantidadProducto(int indice) {
+        ByteBuffer origen = registro(this.productos, indice);
+        leerVarint(origen);
+        return leerVarint(origen);
+    }
+
+    /**
+     * Decodifica un producto con sus comentarios. La secuencia de identificadores se avanza para no volver a generar
+     * el identificador del producto
+     *
+     * @param indice Posición del producto
+     * @return Producto decodificado, con su identificador original
+     * @throws IllegalArgumentException Si el registro del producto está truncado o corrupto
+     */
+    public Producto leerProducto(int indice) {
+        try {
+            ByteBuffer origen = registro(this.productos, indice);
+            int identificador = noNegativo(leerVarint(origen));
+            int cantidad = noNegativo(leerVarint(origen));
+            int stockMinimo = noNegativo(leerVarint(origen));
+            FABRICANTES fabricante = enumerado(fabricantes, origen.get());
+            PRIORIDAD_PRODUCTO prioridad = enumerado(prioridades, origen.get());
+            long dia = dezigzag(leerVarint(origen));
+            boolean esReacondicionado = (origen.get() & REACONDICIONADO) != 0;
+            String nombre = leerCadena(origen);
+
+            // Los comentarios se decodifican antes de crear el producto para no avanzar la secuencia con un registro corrupto
+            Comentario[] comentarios = new Comentario[longitud(leerVarint(origen), origen)];
+            for (int i = 0; i < comentarios.length; i++) {
+                String autor = cadena(leerVarint(origen));
+                String texto = leerCadena(origen);
+                byte puntuacion = origen.get();
+                if (puntuacion < 1 || puntuacion > 5)
+                    throw new IllegalArgumentException("Puntuación de comentario no válida (" + puntuacion + ")");
+                comentarios[i] = new Comentario(autor, texto, puntuacion);
+            }
+
+            GeneradorIdentificador.recuperarInstancia().avanzarHasta(identificador);
+            Producto producto = new Producto(new Identificador(identificador), nombre, fabricante, prioridad, Producto.fechaDesdeDia(dia),
+                    esReacondicionado, cantidad, stockMinimo);
+            for (Comentario comentario : comentarios)
+                producto.comentar(comentario);
+            return producto;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("El registro del producto " + indice + " está truncado", e);
+        }
+    }
+
+    /**
+     * Decodifica un cliente. Sus favoritos se buscan por identificador en el inventario indicado; los que no se encuentran
+     * se omiten
+     *
+     * @param indice          Posición del cliente
+     * @param empresaAsociada Inventario al que se asocia el cliente y en el que se buscan sus favoritos
+     * @return Cliente decodificado, con su identificador original
+     * @throws IllegalArgumentException Si el registro del cliente está truncado o corrupto
+     */
+    public Cliente leerCliente(int indice, GestorStock empresaAsociada) {
+        try {
+            ByteBuffer origen = registro(this.clientes, indice);
+            int identificador = noNegativo(leerVarint(origen));
+            String nombre = cadena(leerVarint(origen));
+            int edad = noNegativo(leerVarint(origen));
+            String localidad = cadena(leerVarint(origen));
+
+            String[] alias = new String[longitud(leerVarint(origen), origen)];
+            Producto[] favoritos = new Producto[alias.length];
+            for (int i = 0; i < alias.length; i++) {
+                alias[i] = leerCadena(origen);
+                favoritos[i] = empresaAsociada.recuperarProducto(new Identificador(noNegativo(leerVarint(origen))).valorDe());
+            }
+
+            GeneradorIdentificador.recuperarInstancia().avanzarHasta(identificador);
+            Cliente cliente = new Cliente(new Identificador(identificador), nombre, edad, localidad, empresaAsociada);
+            for (int i = 0; i < alias.length; i++)
+                if (favoritos[i] != null)
+                    cliente.agregarFavorito(favoritos[i], alias[i]);
+            return cliente;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("El registro del cliente " + indice + " está truncado", e);
+        }
+    }
+
+    /**
+     * Recupera una cadena de la tabla, decodificándola solo la primera vez que se pide. Todas las referencias a la misma
+     * cadena comparten la misma instancia de String
+     *
+     * @param indice Posición de la cadena en la tabla
+     * @return Cadena decodificada
+     */
+    private String cadena(int indice) {
+        if (indice < 0 || indice >= this.cadenas.length)
+            throw new IllegalArgumentException("Referencia a la tabla de cadenas no válida (" + indice + ")");
+
+        String cadena = this.cadenasLeidas[indice];
+        if (cadena == null) {
+            ByteBuffer origen = this.datos.duplicate();
+            origen.position(this.cadenas[indice]);
+            cadena = leerCadena(origen);
+            this.cadenasLeidas[indice] = cadena;
+        }
+        return cadena;
+    }
+
+    /**
+     * Sitúa una vista del búfer al principio del contenido de un registro
+     *
+     * @param posiciones Posiciones de los registros
+     * @param indice     Posición del registro
+     * @return Vista del búfer limitada al registro
+     */
+    private ByteBuffer registro(int[] posiciones, int indice) {
+        ByteBuffer origen = this.datos.duplicate();
+        origen.position(posiciones[indice]);
+        int longitud = longitud(leerVarint(origen), origen);
+        origen.limit(origen.position() + longitud);
+        return origen;
+    }
+
+    /**
+     * Localiza una secuencia de elementos precedidos de su longitud y avanza el búfer hasta el final de la secuencia
+     *
+     * @param origen Búfer situado en el número de elementos
+     * @return Posición de la longitud de cada elemento
+     */
+    private static int[] localizar(ByteBuffer origen) {
+        int[] posiciones = new int[longitud(leerVarint(origen), origen)];
+        for (int i = 0; i < posiciones.length; i++) {
+            posiciones[i] = origen.position();
+            int longitud = longitud(leerVarint(origen), origen);
+            origen.position(origen.position() + longitud);
+        }
+        return posiciones;
+    }
+
+    /**
+     * Comprueba que una longitud o un número de elementos leído del búfer no excede los bytes que quedan por leer, ya que
+     * cada byte o elemento ocupa al menos un byte. Así una longitud corrupta no provoca reservas de memoria desmesuradas
+     *
+     * @param longitud Longitud leída
+     * @param origen   Búfer situado a continuación de la longitud
+     * @return La misma longitud
+     * @throws IllegalArgumentException Si la longitud es negativa o excede el resto del búfer
+     */
+    private static int longitud(int longitud, ByteBuffer origen) {
+        if (longitud < 0 || longitud > origen.remaining())
+            throw new IllegalArgumentException("Longitud no válida en la codificación (" + longitud + ")");
+
+        return longitud;
+    }
+
+    /**
+     * Comprueba que un entero leído del búfer no es negativo
+     *
+     * @param valor Entero leído
+     * @return El mismo entero
+     * @throws IllegalArgumentException Si el entero es negativo
+     */
+    private static int noNegativo(int valor) {
+        if (valor < 0)
+            throw new IllegalArgumentException("Valor negativo no válido en la codificación (" + valor + ")");
+
+        return valor;
+    }
+
+    /**
+     * Recupera el valor de un enumerado a partir de su ordinal codificado
+     *
+     * @param valores Valores del enumerado
+     * @param ordinal Ordinal leído
+     * @param <T>     Tipo del enumerado
+     * @return Valor del enumerado
+     * @throws IllegalArgumentException Si el ordinal no corresponde a ningún valor
+     */
+    private static <T> T enumerado(T[] valores, int ordinal) {
+        if (ordinal < 0 || ordinal >= valores.length)
+            throw new IllegalArgumentException("Ordinal no válido en la codificación (" + ordinal + ")");
+
+        return valores[ordinal];
+    }
+
+    /**
+     * Añade una cadena a la tabla de cadenas si aún no está
+     *
+     * @param cadena  Cadena a referenciar
+     * @param tabla   Posición de cada cadena de la tabla
+     * @param cadenas Salida en la que se codifican las cadenas de la tabla
+     * @return Posición de la cadena en la tabla
+     */
+    private static int referencia(String cadena, Map<String, Integer> tabla, Salida cadenas) {
+        Integer posicion = tabla.get(cadena);
+        if (posicion == null) {
+            posicion = tabla.size();
+            tabla.put(cadena, posicion);
+            cadenas.escribirCadena(cadena);
+        }
+        return posicion;
+    }
+
+    /**
+     * Lee un entero escrito como varint
+     *
+     * @param origen Búfer del que leer
+     * @return Entero leído
+     */
+    private static int leerVarint(ByteBuffer origen) {
+        int valor = 0;
+        for (int desplazamiento = 0; desplazamiento < 35; desplazamiento += 7) {
+            byte actual = origen.get();
+            valor |= (actual & 0x7F) << desplazamiento;
+            if (actual >= 0)
+                return valor;
+        }
+        throw new IllegalArgumentException("Varint mal formado");
+    }
+
+    /**
+     * Lee una cadena escrita como su longitud en varint seguida de su codificación UTF-8
+     *
+     * @param origen Búfer del que leer
+     * @return Cadena leída
+     */
+    private static String leerCadena(ByteBuffer origen) {
+        int longitud = longitud(leerVarint(origen), origen);
+        String cadena;
+        if (origen.hasArray()) {
+            cadena = new String(origen.array(), origen.arrayOffset() + origen.position(), longitud, StandardCharsets.UTF_8);
+        } else {
+            byte[] bytes = new byte[longitud];
+            origen.duplicate().get(bytes);
+            cadena = new String(bytes, StandardCharsets.UTF_8);
+        }
+        origen.position(origen.position() + longitud);
+        return cadena;
+    }
+
+    /**
+     * Transforma un entero con signo para que los valores pequeños en valor absoluto ocupen pocos bytes como varint
+     *
+     * @param valor Entero con signo
+     * @return Entero transformado
+     */
+    private static int zigzag(long valor) {
+        return (int) ((valor << 1) ^ (valor >> 63));
+    }
+
+    /**
+     * Deshace la transformación de zigzag
+     *
+     * @param valor Entero transformado
+     * @return Entero con signo original
+     */
+    private static long dezigzag(int valor) {
+        return (valor >>> 1) ^ -(valor & 1);
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,105 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Generador de carga para el servicio de pedidos. Simula un número de clientes que eligen sus favoritos al azar entre los
+ * productos del inventario y realizan pedidos de esos favoritos uno detrás de otro: cada cliente envía su siguiente pedido
+ * cuando recibe la respuesta del anterior. Los clientes no ocupan ningún hilo mientras esperan, por lo que pueden simularse
+ * miles de ellos a la vez
+ *
+ * @author : Juan Pablo García Plaza Pérez - Jose Ángel Concha Carrasco
+ * @grupo : Wild True
+ */
+
+public class GeneradorCarga {
+
+    private GestorStock gestor;
+    private ServicioPedidos servicio;
+    private int numeroClientes;
+    private int favoritosPorCliente;
+    private int pedidosPorCliente;
+    private LongAdder servidos;
+    private LongAdder rechazados;
+
+    /**
+     * Constructor parametrizado de la clase
+     *
+     * @param gestor              Inventario del que se eligen los favoritos. Debe contener al menos un producto
+     * @param servicio            Servicio al que se envían los pedidos
+     * @param numeroClientes      Número de clientes simulados
+     * @param favoritosPorCliente Número de productos favoritos de cada cliente
+     * @param pedidosPorCliente   Número de pedidos que realiza cada cliente
+     */
+    public GeneradorCarga(GestorStock gestor, ServicioPedidos servicio, int numeroClientes, int favoritosPorCliente, int pedidosPorCliente) {
+        this.gestor = gestor;
+        this.servicio = servicio;
+        this.numeroClientes = numeroClientes;
+        this.favoritosPorCliente = favoritosPorCliente;
+        this.pedidosPorCliente = pedidosPorCliente;
+        this.servidos = new LongAdder();
+        this.rechazados = new LongAdder();
+    }
+
+    /**
+     * Genera los clientes, lanza todos sus pedidos y espera a que terminen
+     *
+     * @return Informe con el número de pedidos servidos y rechazados, el rendimiento y la latencia de los pedidos
+     */
+    public String ejecutar() {
+        List<Producto> catalogo = this.gestor.buscarProductos(null, null, null, null, false);
+        if (catalogo.isEmpty())
+            throw new IllegalStateException("El inventario no contiene ningún producto");
+
+        List<Cliente> clientes = new ArrayList<>(this.numeroClientes);
+        for (int i = 0; i < this.numeroClientes; i++) {
+            Cliente cliente = new Cliente("Cliente " + i, 18 + i % 60, "Cáceres", this.gestor);
+            for (int j = 0; j < this.favoritosPorCliente; j++)
+                cliente.agregarFavorito(catalogo.get(ThreadLocalRandom.current().nextInt(catalogo.size())), "favorito" + j);
+            clientes.add(cliente);
+        }
+
+        long inicio = System.nanoTime();
+        List<CompletableFuture<Void>> sesiones = new ArrayList<>(clientes.size());
+        for (Cliente cliente : clientes)
+            sesiones.add(pedir(cliente, this.pedidosPorCliente));
+        CompletableFuture.allOf(sesiones.toArray(new CompletableFuture<?>[0])).join();
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+
+        HistogramaLatencias latencias = this.servicio.getLatencias();
+        return "clientes " + this.numeroClientes + '\n'
+                + "pedidos_servidos " + this.servidos.sum() + '\n'
+                + "pedidos_rechazados " + this.rechazados.sum() + '\n'
+                + "pedidos_agrupados " + this.servicio.getPedidosAgrupados() + '\n'
+                + "pedidos_por_segundo " + (long) ((this.servidos.sum() + this.rechazados.sum()) / segundos) + '\n'
+                + "latencia_p50_ns " + latencias.percentil(50) + '\n'
+                + "latencia_p99_ns " + latencias.percentil(99) + '\n'
+                + "latencia_max_ns " + latencias.maximo() + '\n';
+    }
+
+    /**
+     * Encadena los pedidos restantes de un cliente, enviando cada uno al recibir la respuesta del anterior. El siguiente
+     * pedido se envía de forma asíncrona: si la respuesta ya estuviera completa, encadenarlo en el mismo hilo anidaría una
+     * llamada por pedido y podría desbordar la pila
+     *
+     * @param cliente   Cliente que realiza los pedidos
+     * @param restantes Número de pedidos que quedan por realizar
+     * @return Resultado futuro que se completa cuando el cliente ha terminado todos sus pedidos
+     */
+    private CompletableFuture<Void> pedir(Cliente cliente, int restantes) {
+        if (restantes <= 0)
+            return CompletableFuture.completedFuture(null);
+
+        String alias = "favorito" + ThreadLocalRandom.current().nextInt(Math.max(1, this.favoritosPorCliente));
+        return this.servicio.pedirProducto(cliente, alias, 1).thenComposeAsync(servido -> {
+            if (servido)
+                this.servidos.increment();
+            else
+                this.rechazados.increment();
+            return pedir(cliente, restantes - 1);
+        });
+    }
+
+}
\ No newline at end of file
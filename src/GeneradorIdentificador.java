@@ -1,3 +1,5 @@
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * TODO DESCRIPCION
  *
@@ -7,9 +9,12 @@
 
 public class GeneradorIdentificador {
 
-    private GeneradorIdentificador instanciaActual;
+    private static final int VALOR_BASE_POR_DEFECTO = 36 * 36 * 36;     // Primer valor con cuatro cifras en base 36
+    private static final int INCREMENTO_POR_DEFECTO = 1;
+
+    private static volatile GeneradorIdentificador instanciaActual;
     private Identificador valorBase;
-    private Identificador valorActual;
+    private AtomicInteger valorActual;                                  // Siguiente valor decimal de la secuencia
     private int incremento;
 
     /**
@@ -19,7 +24,9 @@ public class GeneradorIdentificador {
      * @param incremento Entero que será el incremento constante que generará los distintos valores de la secuencia
      */
     private GeneradorIdentificador(int valorBase, int incremento) {
-        // TODO - implement GeneradorIdentificador.GeneradorIdentificador
+        this.valorBase = new Identificador(valorBase);
+        this.valorActual = new AtomicInteger(valorBase);
+        this.incremento = incremento;
     }
 
     /**
@@ -28,7 +35,7 @@ public class GeneradorIdentificador {
      * @return Identificador que representa el valor actual de la secuencia
      */
     public Identificador consultarIdentificador() {
-        // TODO - implement GeneradorIdentificador.consultarIdentificador
+        return new Identificador(this.valorActual.get());
     }
 
     /**
@@ -36,8 +43,27 @@ public class GeneradorIdentificador {
      *
      * @return Única instancia de la clase GeneradorIdentificador
      */
-    public GeneradorIdentificador recuperarInstancia() {
-        // TODO - implement GeneradorIdentificador.recuperarInstancia
+    public static GeneradorIdentificador recuperarInstancia() {
+        if (instanciaActual == null) {
+            synchronized (GeneradorIdentificador.class) {
+                if (instanciaActual == null)
+                    instanciaActual = new GeneradorIdentificador(VALOR_BASE_POR_DEFECTO, INCREMENTO_POR_DEFECTO);
+            }
+        }
+
+        return instanciaActual;
+    }
+
+    /**
+     * Genera una secuencia independiente de la compartida, que empieza en el valor indicado. Permite medir o probar la
+     * generación de identificadores sin agotar la secuencia única del programa
+     *
+     * @param valorBase  Entero decimal con el que comienza la secuencia
+     * @param incremento Incremento constante entre valores consecutivos de la secuencia
+     * @return Nueva secuencia de identificadores
+     */
+    static GeneradorIdentificador crearInstancia(int valorBase, int incremento) {
+        return new GeneradorIdentificador(valorBase, incremento);
     }
 
     /**
@@ -45,9 +71,79 @@ public class GeneradorIdentificador {
      * Sucesivas llamadas a este métedo devolverán distintos indentificadores
      *
      * @return Identificador actual de la secuencia
+     * @throws IllegalStateException Si la secuencia ha superado el mayor identificador representable
      */
     public Identificador generarIdentificador() {
-        // TODO - implement GeneradorIdentificador.generarIdentificador
+        // El avance de la secuencia es una única operación atómica, sin cerrojos. Si desborda, el contador queda negativo
+        // y todas las llamadas posteriores fallan en lugar de repetir identificadores
+        int valor = this.valorActual.getAndAdd(this.incremento);
+        if (valor < 0)
+            throw new IllegalStateException("La secuencia de identificadores se ha agotado");
+
+        return new Identificador(valor);
+    }
+
+    /**
+     * Reserva de una sola vez un bloque de valores consecutivos de la secuencia. Los valores del bloque son
+     * inicio, inicio + incremento, ..., inicio + (numero - 1) * incremento y no serán devueltos por ninguna otra llamada
+     *
+     * @param numero Número de identificadores a reservar. Debe ser mayor que 0
+     * @return Entero decimal con el primer valor del bloque reservado
+     * @throws IllegalStateException Si el bloque no cabe en lo que queda de la secuencia. En ese caso no se reserva nada
+     */
+    public int reservarBloque(int numero) {
+        if (numero <= 0)
+            throw new IllegalArgumentException("El tamaño del bloque debe ser mayor que 0");
+
+        int inicio;
+        int siguiente;
+        do {
+            inicio = this.valorActual.get();
+            try {
+                siguiente = Math.addExact(inicio, Math.multiplyExact(numero, this.incremento));
+            } catch (ArithmeticException e) {
+                throw new IllegalStateException("No quedan " + numero + " identificadores en la secuencia");
+            }
+            if (inicio < 0)
+                throw new IllegalStateException("La secuencia de identificadores se ha agotado");
+        } while (!this.valorActual.compareAndSet(inicio, siguiente));
+
+        return inicio;
+    }
+
+    /**
+     * Avanza la secuencia para que no vuelva a generar un valor ya utilizado, por ejemplo al restaurar productos persistidos.
+     * Si la secuencia ya está más adelantada no se modifica
+     *
+     * @param valor Entero decimal de un identificador ya utilizado. Si es el último representable, la secuencia queda
+     *              agotada y las siguientes generaciones fallan
+     */
+    public void avanzarHasta(int valor) {
+        int siguiente = valor > Integer.MAX_VALUE - this.incremento ? Integer.MIN_VALUE : valor + this.incremento;
+        int actual;
+        do {
+            actual = this.valorActual.get();
+            if (actual > valor || actual < 0)
+                return;
+        } while (!this.valorActual.compareAndSet(actual, siguiente));
+    }
+
+    /**
+     * Método accesor del atributo 'valorBase'
+     *
+     * @return Identificador con el que comienza la secuencia
+     */
+    public Identificador getValorBase() {
+        return this.valorBase;
+    }
+
+    /**
+     * Método accesor del atributo 'incremento'
+     *
+     * @return Incremento constante entre valores consecutivos de la secuencia
+     */
+    public int getIncremento() {
+        return this.incremento;
     }
 
 }
\ No newline at end of file
@@ -1,5 +1,20 @@
-import java.util.HashMap;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * TODO DESCRIPCION
@@ -10,14 +25,55 @@ import java.util.Map;
 
 public class GestorStock {
 
-    private GestorStock instanciaActual;
-    private Map<String, Producto> stock;
+    private static final int TAMANO_PAGINA = 512;                       // Productos por página al mostrar el inventario por consola
+
+    private static volatile GestorStock instanciaActual;
+    private volatile Map<String, Producto> stock;                       // Índice concurrente de productos por identificador
+    private volatile IndiceProductos indiceDecimal;                     // Índice por entero decimal. Sustituye a 'stock' si está activo
+    private volatile InventarioColumnar columnas;                       // Atributos de los productos por columnas, si está activo
+    private volatile PersistenciaStock persistencia;                    // Registro de operaciones e instantáneas, si está activo
+    private volatile PlanificadorReposicion planificador;               // Reposición asíncrona de productos, si está activa
+    private volatile RegistroEventos registro;                          // Registro asíncrono de mensajes y errores, si está activo
+    private volatile HistorialVentas historial;                         // Serie temporal de las ventas, si está activa
+    private volatile EstimadorReposicion estimador;                     // Reposición según la demanda observada, si está activa
+    private volatile ArenaComentarios arena;                            // Comentarios guardados fuera del heap, si está activa
+    private IndicesSecundarios indices;                                 // Índices por fabricante, prioridad y fecha de lanzamiento
+    private Set<Producto> bajoMinimo;                                   // Productos con la cantidad por debajo de su stock mínimo
+    private List<ObservadorStock> suscriptores;                         // Suscriptores de los cruces del umbral de stock mínimo
+    private IndiceTextual indiceTextual;                                // Índice de texto completo sobre nombres y comentarios
+    private MetricasStock metricas;                                     // Contadores e histogramas de latencia de las operaciones
+    private Map<Producto, Set<Cliente>> interesados;                    // Clientes que tienen cada producto entre sus favoritos
+    private ControlEpocas epocas;                                       // Épocas de las ventas, para las instantáneas consistentes
+
+    /**
+     * Valoración de un producto fijada en el momento de leerla
+     */
+    private static class Valoracion {
+        private final Producto producto;
+        private final double media;
+        private final int comentarios;
+
+        private Valoracion(Producto producto) {
+            long agregados = producto.getAgregados();
+            this.producto = producto;
+            this.comentarios = (int) (agregados >>> 32);
+            this.media = this.comentarios == 0 ? 0 : (double) (int) agregados / this.comentarios;
+        }
+    }
 
     /**
-     * Constructor por defecto de la clase. Sigue el patrón de diseño Singleton
+     * Constructor por defecto de la clase. Las instancias se obtienen mediante recuperarInstancia, que sigue el patrón de
+     * diseño Singleton, o mediante crearInstancia
      */
     private GestorStock() {
-        // TODO - implement GestorStock.GestorStock
+        this.stock = new ConcurrentHashMap<>();
+        this.indices = new IndicesSecundarios();
+        this.bajoMinimo = ConcurrentHashMap.newKeySet();
+        this.suscriptores = new CopyOnWriteArrayList<>();
+        this.indiceTextual = new IndiceTextual();
+        this.metricas = new MetricasStock();
+        this.interesados = new ConcurrentHashMap<>();
+        this.epocas = new ControlEpocas();
     }
 
     /**
@@ -27,7 +83,67 @@ public class GestorStock {
      * @return Booleano indicando si se ha permitido la inserción del producto al inventario. Devuelve falso si se intentan insertar productos repetidos
      */
     public boolean agregarProducto(Producto producto) {
-        // TODO - implement GestorStock.agregarProducto
+        if (producto == null) {
+            reportarError("No se puede agregar un producto nulo", null);
+            return false;
+        }
+
+        PersistenciaStock persistencia = comenzarOperacion();
+        long registro = 0;
+        boolean guardada;
+        try {
+            // Solo se registran las inserciones aceptadas, dentro de la operación, para que una instantánea no las separe
+            registro = persistencia != null ? persistencia.registrarAgregar(producto, () -> insertar(producto)) : 0;
+            if (persistencia != null ? registro == 0 : !insertar(producto)) {
+                reportarError("El producto ya existe en el inventario", producto);
+                return false;
+            }
+
+            publicar(producto);
+        } finally {
+            guardada = terminarOperacion(persistencia, registro);
+        }
+        return guardada;
+    }
+
+    /**
+     * Añade un lote de productos al inventario en una única operación. Los productos repetidos, ya sea respecto al inventario
+     * o dentro del propio lote, se descartan y se informa de ellos con un único error al terminar
+     *
+     * @param productos Productos que van a ser añadidos al inventario
+     * @return Número de productos añadidos, o 0 si con la persistencia en modo síncrono no se ha podido guardar el lote
+     */
+    public int agregarProductos(Collection<Producto> productos) {
+        int agregados = 0;
+        int descartados = 0;
+
+        PersistenciaStock persistencia = comenzarOperacion();
+        long registro = 0;
+        boolean guardada;
+        try {
+            for (Producto producto : productos) {
+                if (producto == null) {
+                    descartados++;
+                    continue;
+                }
+
+                long agregado = persistencia != null ? persistencia.registrarAgregar(producto, () -> insertar(producto)) : 0;
+                if (persistencia != null ? agregado == 0 : !insertar(producto)) {
+                    descartados++;
+                    continue;
+                }
+
+                registro = Math.max(registro, agregado);
+                publicar(producto);
+                agregados++;
+            }
+        } finally {
+            guardada = terminarOperacion(persistencia, registro);
+        }
+
+        if (descartados > 0)
+            reportarError(descartados + " productos del lote son nulos o ya existen en el inventario", null);
+        return guardada ? agregados : 0;
     }
 
     /**
@@ -37,7 +153,42 @@ public class GestorStock {
      * @return Booleano indicando si se ha encontrado el producto a borrar
      */
     public boolean eliminarProducto(Producto producto) {
-        // TODO - implement GestorStock.eliminarProducto
+        PersistenciaStock persistencia = comenzarOperacion();
+        long registro = 0;
+        boolean guardada;
+        try {
+            if (producto == null || !retirar(producto)) {
+                reportarError("El producto no se encuentra en el inventario", producto);
+                return false;
+            }
+            this.indices.eliminar(producto);
+            this.indiceTextual.eliminar(producto);
+            // Los comentarios vuelven al heap para que el producto retirado siga siendo consultable y la arena los libere
+            producto.asignarArena(null);
+            producto.asignarObservador(null);
+            producto.asignarEpocas(null);
+            producto.asignarRegistroReposiciones(null);
+            this.bajoMinimo.remove(producto);
+            HistorialVentas ventas = this.historial;
+            if (ventas != null)
+                ventas.olvidar(producto);
+
+            // Solo se avisa a los clientes que tenían el producto entre sus favoritos
+            Set<Cliente> afectados = this.interesados.remove(producto);
+            if (afectados != null)
+                for (Cliente cliente : afectados)
+                    cliente.productoEliminado(producto);
+
+            if (persistencia != null)
+                registro = persistencia.registrarEliminar(producto);
+        } finally {
+            guardada = terminarOperacion(persistencia, registro);
+        }
+
+        ArenaComentarios arena = this.arena;
+        if (arena != null && arena.convieneCompactar())
+            compactarArenaComentarios();
+        return guardada;
     }
 
     /**
@@ -48,7 +199,109 @@ public class GestorStock {
      * @return Booleano indicando si se ha podido enviar el pedido, bien sea por falta de stock o porque el producto no se ha encontrado
      */
     public boolean venderProducto(int cantidad, Producto producto) {
-        // TODO - implement GestorStock.venderProducto
+        long inicio = System.nanoTime();
+        PersistenciaStock persistencia = comenzarOperacion();
+        long registro = 0;
+        boolean guardada;
+        long epoca = this.epocas.entrar();
+        try {
+            if (!contieneProducto(producto)) {
+                this.metricas.registrarRechazo(false, System.nanoTime() - inicio);
+                reportarError("El producto no se encuentra en el inventario", producto);
+                return false;
+            }
+
+            // El decremento es atómico en el propio producto, por lo que no hace falta ningún cerrojo global
+            if (!producto.pedir(cantidad, epoca)) {
+                this.metricas.registrarRechazo(cantidad > 0, System.nanoTime() - inicio);
+                reportarError("No hay suficiente stock para servir " + cantidad + " unidades", producto);
+                return false;
+            }
+
+            if (persistencia != null)
+                registro = persistencia.registrarVenta(producto, cantidad);
+            HistorialVentas ventas = this.historial;
+            if (ventas != null)
+                ventas.registrar(producto, cantidad);
+            this.metricas.registrarVenta(cantidad, System.nanoTime() - inicio);
+        } finally {
+            this.epocas.salir(epoca);
+            guardada = terminarOperacion(persistencia, registro);
+        }
+        return guardada;
+    }
+
+    /**
+     * Realiza el pedido conjunto de varios productos. O se sirven todas las líneas del pedido o no se sirve ninguna.
+     * Las reservas se realizan siguiendo el orden de los identificadores para que pedidos concurrentes no se bloqueen entre sí.
+     * Todo el pedido se registra en una misma época, por lo que una instantánea del stock lo ve completo o no lo ve.
+     * En las métricas el pedido completo cuenta como una única venta o un único rechazo
+     *
+     * @param lineas Asociación entre cada producto y el número de unidades que se piden de él
+     * @return Booleano indicando si se ha podido enviar el pedido completo. Devuelve falso si algún producto no se ha encontrado
+     * o no tiene stock suficiente, en cuyo caso no se modifica el stock de ningún producto
+     */
+    public boolean venderProductos(Map<Producto, Integer> lineas) {
+        long inicio = System.nanoTime();
+        if (lineas == null || lineas.isEmpty()) {
+            this.metricas.registrarRechazo(false, System.nanoTime() - inicio);
+            return false;
+        }
+
+        PersistenciaStock persistencia = comenzarOperacion();
+        long registro = 0;
+        boolean guardada;
+        long epoca = this.epocas.entrar();
+        try {
+            List<Producto> productos = new ArrayList<>(lineas.keySet());
+            int unidades = 0;
+            for (Producto producto : productos) {
+                if (!contieneProducto(producto)) {
+                    this.metricas.registrarRechazo(false, System.nanoTime() - inicio);
+                    reportarError("El producto no se encuentra en el inventario", producto);
+                    return false;
+                }
+                if (lineas.get(producto) == null || lineas.get(producto) <= 0) {
+                    this.metricas.registrarRechazo(false, System.nanoTime() - inicio);
+                    reportarError("La cantidad pedida no es válida", producto);
+                    return false;
+                }
+                unidades += lineas.get(producto);
+            }
+            productos.sort(Comparator.comparingInt(producto -> producto.getIdentificador().aDecimal()));
+
+            // Se guarda la cantidad previa a cada reserva, que decide si su confirmación o su cancelación lanza la reposición
+            int[] anteriores = new int[productos.size()];
+            for (int i = 0; i < productos.size(); i++) {
+                Producto producto = productos.get(i);
+                anteriores[i] = producto.reservar(lineas.get(producto), epoca);
+                if (anteriores[i] < 0) {
+                    // Se deshacen las reservas ya realizadas
+                    for (int j = 0; j < i; j++)
+                        productos.get(j).cancelarReserva(anteriores[j], lineas.get(productos.get(j)), epoca);
+
+                    this.metricas.registrarRechazo(true, System.nanoTime() - inicio);
+                    reportarError("No hay suficiente stock para servir " + lineas.get(producto) + " unidades", producto);
+                    return false;
+                }
+            }
+
+            HistorialVentas ventas = this.historial;
+            for (int i = 0; i < productos.size(); i++) {
+                Producto producto = productos.get(i);
+                producto.confirmarReserva(anteriores[i], lineas.get(producto), epoca);
+                if (persistencia != null)
+                    registro = persistencia.registrarVenta(producto, lineas.get(producto));
+                if (ventas != null)
+                    ventas.registrar(producto, lineas.get(producto));
+            }
+
+            this.metricas.registrarVenta(unidades, System.nanoTime() - inicio);
+        } finally {
+            this.epocas.salir(epoca);
+            guardada = terminarOperacion(persistencia, registro);
+        }
+        return guardada;
     }
 
     /**
@@ -59,7 +312,28 @@ public class GestorStock {
      * @return Booleano indicando si se ha podido añadir el comentario, bien porque el producto no existía o porque el comentario no es válido
      */
     public boolean comentarProducto(Producto producto, Comentario comentario) {
-        // TODO - implement GestorStock.comentarProducto
+        PersistenciaStock persistencia = comenzarOperacion();
+        long registro = 0;
+        boolean guardada;
+        try {
+            if (!contieneProducto(producto)) {
+                reportarError("El producto no se encuentra en el inventario", producto);
+                return false;
+            }
+
+            if (comentario == null || !producto.comentar(comentario)) {
+                reportarError("El comentario no es válido", producto);
+                return false;
+            }
+            this.indiceTextual.indexarComentario(producto, comentario);
+
+            if (persistencia != null)
+                registro = persistencia.registrarComentario(producto, comentario);
+            this.metricas.registrarComentario();
+        } finally {
+            guardada = terminarOperacion(persistencia, registro);
+        }
+        return guardada;
     }
 
     /**
@@ -68,8 +342,532 @@ public class GestorStock {
      * @param identificador Cadena que identifica de forma única un producto
      * @return Producto buscado. En caso de no encontrarlo devuelve el valor null
      */
-    private Producto recuperarProducto(String identificador) {
-        // TODO - implement GestorStock.recuperarProducto
+    public Producto recuperarProducto(String identificador) {
+        if (identificador == null)
+            return null;
+
+        IndiceProductos indice = this.indiceDecimal;
+        if (indice == null)
+            return this.stock.get(identificador);
+
+        try {
+            return indice.recuperar(Identificador.decodificar(identificador));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Comprueba si una instancia concreta de Producto pertenece al inventario
+     *
+     * @param producto Producto a comprobar
+     * @return Booleano indicando si el producto está en el inventario
+     */
+    public boolean contieneProducto(Producto producto) {
+        if (producto == null)
+            return false;
+
+        IndiceProductos indice = this.indiceDecimal;
+        if (indice == null)
+            return this.stock.get(producto.getIdentificador().valorDe()) == producto;
+
+        return indice.recuperar(producto.getIdentificador().aDecimal()) == producto;
+    }
+
+    /**
+     * Activa el modo de indexación por el entero decimal de los identificadores. En este modo los productos se guardan en
+     * un vector indexado por su posición en la secuencia de GeneradorIdentificador, en lugar de en un mapa por cadena.
+     * Solo puede activarse con el inventario vacío, antes de empezar a operar
+     *
+     * @return Booleano indicando si se ha activado el modo. Devuelve falso si el inventario no está vacío
+     */
+    public synchronized boolean activarIndiceDecimal() {
+        if (this.indiceDecimal != null)
+            return true;
+        if (!this.stock.isEmpty())
+            return false;
+
+        GeneradorIdentificador generador = GeneradorIdentificador.recuperarInstancia();
+        this.indiceDecimal = new IndiceProductos(generador.getValorBase().aDecimal(), generador.getIncremento());
+        return true;
+    }
+
+    /**
+     * Activa la representación por columnas del inventario. Los productos agregados a partir de ese momento guardan su
+     * cantidad en stock, su stock mínimo, su fabricante, su prioridad, su fecha de lanzamiento y su estado en vectores de
+     * tipos primitivos, en la fila de su posición en el índice decimal, y dejan de reservar su propio AtomicInteger y su
+     * Calendar. El total de unidades en stock se calcula entonces recorriendo las columnas. Activa el índice decimal si
+     * hace falta, por lo que solo puede activarse con el inventario vacío
+     *
+     * @return Inventario columnar, que permite recorrer las columnas y consultar su memoria. Devuelve nulo si el inventario no está vacío
+     */
+    public synchronized InventarioColumnar activarInventarioColumnar() {
+        InventarioColumnar actual = activarIndiceDecimal() ? this.indiceDecimal.activarColumnas() : null;
+        if (actual == null)
+            reportarError("El inventario columnar solo puede activarse con el inventario vacío", null);
+
+        this.columnas = actual;
+        return actual;
+    }
+
+    /**
+     * Método accesor del atributo 'columnas'
+     *
+     * @return Inventario columnar, o nulo si no está activo
+     */
+    public InventarioColumnar getInventarioColumnar() {
+        return this.columnas;
+    }
+
+    /**
+     * Activa la persistencia del inventario en el directorio indicado. Antes de activarla se restaura el inventario a partir
+     * de la última instantánea y del registro de operaciones que haya en el directorio. Solo puede activarse con el inventario vacío
+     *
+     * @param directorio            Directorio en el que se guardan la instantánea y el registro de operaciones
+     * @param intervaloMilisegundos Tiempo máximo que una operación puede permanecer sin volcarse a disco
+     * @return Booleano indicando si se ha activado la persistencia
+     */
+    public boolean activarPersistencia(File directorio, long intervaloMilisegundos) {
+        return activarPersistencia(directorio, intervaloMilisegundos, false);
+    }
+
+    /**
+     * Activa la persistencia del inventario en el directorio indicado. Antes de activarla se restaura el inventario a partir
+     * de la última instantánea y del registro de operaciones que haya en el directorio. Solo puede activarse con el inventario vacío.
+     * En modo síncrono cada operación termina cuando su registro está en disco, compartiendo el volcado con las operaciones
+     * concurrentes, y si no se puede guardar la operación queda aplicada en memoria pero devuelve falso; en modo asíncrono un
+     * fallo del proceso puede perder las operaciones de los últimos intervaloMilisegundos. Si la JVM termina sin haber
+     * desactivado la persistencia, las operaciones pendientes se vuelcan al terminar
+     *
+     * @param directorio            Directorio en el que se guardan la instantánea y el registro de operaciones
+     * @param intervaloMilisegundos Tiempo máximo que una operación puede permanecer sin volcarse a disco
+     * @param esperarVolcado        Indica si las operaciones esperan a que su registro esté en disco (modo síncrono)
+     * @return Booleano indicando si se ha activado la persistencia
+     */
+    public synchronized boolean activarPersistencia(File directorio, long intervaloMilisegundos, boolean esperarVolcado) {
+        if (this.persistencia != null || productos().iterator().hasNext()) {
+            reportarError("La persistencia solo puede activarse una vez y con el inventario vacío", null);
+            return false;
+        }
+
+        try {
+            PersistenciaStock nueva = new PersistenciaStock(directorio, intervaloMilisegundos, esperarVolcado, this::reportarError);
+            nueva.recuperar(this);
+            this.persistencia = nueva;
+            return true;
+        } catch (IOException e) {
+            reportarError("No se ha podido activar la persistencia: " + e.getMessage(), null);
+            return false;
+        }
+    }
+
+    /**
+     * Guarda una instantánea del inventario completo y reinicia el registro de operaciones
+     *
+     * @return Booleano indicando si se ha guardado la instantánea. Devuelve falso si la persistencia no está activa
+     */
+    public boolean tomarInstantanea() {
+        PersistenciaStock actual = this.persistencia;
+        if (actual == null) {
+            reportarError("La persistencia no está activa", null);
+            return false;
+        }
+
+        try {
+            actual.tomarInstantanea(productos());
+            return true;
+        } catch (IOException e) {
+            reportarError("No se ha podido guardar la instantánea: " + e.getMessage(), null);
+            return false;
+        }
+    }
+
+    /**
+     * Activa las instantáneas periódicas del inventario, que se toman en segundo plano sin detener las operaciones más que
+     * lo necesario para capturar el stock, y mantienen acotado el tamaño del registro de operaciones
+     *
+     * @param periodoMilisegundos Tiempo entre dos instantáneas consecutivas
+     * @return Booleano indicando si se han activado. Devuelve falso si la persistencia no está activa
+     */
+    public synchronized boolean activarInstantaneasPeriodicas(long periodoMilisegundos) {
+        PersistenciaStock actual = this.persistencia;
+        if (actual == null) {
+            reportarError("La persistencia no está activa", null);
+            return false;
+        }
+
+        actual.programarInstantaneas(periodoMilisegundos, this::productos);
+        return true;
+    }
+
+    /**
+     * Vuelca inmediatamente a disco las operaciones registradas que aún no lo estén. En modo asíncrono permite asegurar que
+     * las operaciones ya terminadas sobreviven a un fallo del proceso
+     *
+     * @return Booleano indicando si se han volcado. Devuelve falso si la persistencia no está activa o falla la escritura
+     */
+    public boolean sincronizarPersistencia() {
+        PersistenciaStock actual = this.persistencia;
+        if (actual == null) {
+            reportarError("La persistencia no está activa", null);
+            return false;
+        }
+
+        try {
+            actual.sincronizar();
+            return true;
+        } catch (IOException e) {
+            reportarError("No se ha podido volcar el registro de operaciones: " + e.getMessage(), null);
+            return false;
+        }
+    }
+
+    /**
+     * Desactiva la persistencia del inventario: espera a las operaciones en curso, vuelca las pendientes y cierra el
+     * registro de operaciones. Las operaciones posteriores ya no se registran
+     *
+     * @return Booleano indicando si se ha cerrado correctamente. Devuelve falso si la persistencia no está activa o falla
+     * el último volcado
+     */
+    public synchronized boolean desactivarPersistencia() {
+        PersistenciaStock actual = this.persistencia;
+        if (actual == null) {
+            reportarError("La persistencia no está activa", null);
+            return false;
+        }
+
+        this.persistencia = null;
+        try {
+            actual.cerrar();
+            return true;
+        } catch (IOException e) {
+            reportarError("No se ha podido cerrar la persistencia: " + e.getMessage(), null);
+            return false;
+        }
+    }
+
+    /**
+     * Activa la reposición asíncrona del inventario. A partir de ese momento las ventas no reponen el stock en el hilo del
+     * comprador, sino que encolan la reposición en un planificador que la realiza por lotes en segundo plano
+     *
+     * @param periodoMilisegundos Tiempo entre dos ciclos de reposición consecutivos
+     * @param tamanoLote          Número máximo de productos repuestos en cada ciclo
+     * @return Planificador de reposiciones, que permite consultar sus métricas
+     */
+    public synchronized PlanificadorReposicion activarReposicionAsincrona(long periodoMilisegundos, int tamanoLote) {
+        if (this.planificador == null) {
+            this.planificador = new PlanificadorReposicion(periodoMilisegundos, tamanoLote, this::reportarError, this::reponerProducto);
+            for (Producto producto : productos())
+                producto.asignarPlanificador(this.planificador);
+        }
+
+        return this.planificador;
+    }
+
+    /**
+     * Activa el historial de ventas. A partir de ese momento cada venta se registra en una serie temporal por producto que
+     * permite consultar la demanda de la última hora, del último día o de la última semana
+     *
+     * @return Historial de ventas del inventario
+     */
+    public synchronized HistorialVentas activarHistorialVentas() {
+        if (this.historial == null)
+            this.historial = new HistorialVentas();
+
+        return this.historial;
+    }
+
+    /**
+     * Método accesor del atributo 'historial'
+     *
+     * @return Historial de ventas, o nulo si no está activo
+     */
+    public HistorialVentas getHistorialVentas() {
+        return this.historial;
+    }
+
+    /**
+     * Activa la reposición según la demanda observada. En lugar de depender de la prioridad de reabastecimiento, cada
+     * reposición añade las unidades vendidas del producto en la ventana indicada, y nunca menos que su stock mínimo.
+     * Activa también el historial de ventas si no lo estaba
+     *
+     * @param ventanaMinutos Ventana de demanda que debe cubrir cada reposición, hasta un máximo de siete días
+     */
+    public synchronized void activarReposicionPorDemanda(long ventanaMinutos) {
+        HistorialVentas ventas = activarHistorialVentas();
+        this.estimador = producto -> (int) Math.min(Integer.MAX_VALUE / 2,
+                Math.max(producto.getStockMinimo(), ventas.demanda(producto, ventanaMinutos)));
+        for (Producto producto : productos())
+            producto.asignarEstimador(this.estimador);
+    }
+
+    /**
+     * Activa el almacenamiento de los comentarios fuera del heap. Los comentarios de los productos del inventario, tanto
+     * los ya publicados como los nuevos, pasan a guardarse en una arena de memoria directa y cada producto conserva solo una
+     * referencia y la puntuación de cada uno. Los objetos Comentario se reconstruyen al mostrar los detalles o al consultar
+     * los comentarios de un producto
+     *
+     * @return Arena de comentarios, que permite consultar la memoria ahorrada y la latencia de las lecturas
+     */
+    public synchronized ArenaComentarios activarArenaComentarios() {
+        if (this.arena == null) {
+            this.arena = new ArenaComentarios();
+            for (Producto producto : productos())
+                producto.asignarArena(this.arena);
+        }
+
+        return this.arena;
+    }
+
+    /**
+     * Copia los comentarios de los productos del inventario a una arena nueva, de forma que la memoria directa ocupada por
+     * los comentarios de los productos eliminados se devuelve al sistema cuando se recolecta la arena anterior. Se invoca
+     * automáticamente al eliminar productos cuando el espacio liberado supera al que sigue en uso
+     *
+     * @return Arena nueva, o nulo si la arena de comentarios no está activa
+     */
+    public synchronized ArenaComentarios compactarArenaComentarios() {
+        if (this.arena == null)
+            return null;
+
+        ArenaComentarios nueva = new ArenaComentarios();
+        this.arena = nueva;
+        for (Producto producto : productos())
+            producto.asignarArena(nueva);
+        return nueva;
+    }
+
+    /**
+     * Método accesor del atributo 'arena'
+     *
+     * @return Arena de comentarios, o nulo si no está activa
+     */
+    public ArenaComentarios getArenaComentarios() {
+        return this.arena;
+    }
+
+    /**
+     * Activa el registro asíncrono de eventos. A partir de ese momento los errores del inventario y los mensajes de los
+     * clientes no se muestran por consola en el hilo que los genera, sino que se encolan y se escriben por lotes en segundo plano
+     *
+     * @param destino   Flujo en el que se escriben los eventos
+     * @param capacidad Número de eventos que caben en la cola del registro
+     * @param politica  Comportamiento cuando la cola está llena
+     * @return Registro de eventos, que permite consultar sus métricas
+     */
+    public synchronized RegistroEventos activarRegistroEventos(OutputStream destino, int capacidad, POLITICA_REGISTRO politica) {
+        if (this.registro == null)
+            this.registro = new RegistroEventos(destino, capacidad, politica);
+
+        return this.registro;
+    }
+
+    /**
+     * Detiene el registro asíncrono de eventos, escribiendo antes los eventos pendientes. Los eventos posteriores vuelven
+     * a mostrarse por consola
+     */
+    public synchronized void detenerRegistroEventos() {
+        RegistroEventos actual = this.registro;
+        if (actual != null) {
+            this.registro = null;
+            actual.detener();
+        }
+    }
+
+    /**
+     * Método accesor del atributo 'registro'
+     *
+     * @return Registro asíncrono de eventos, o nulo si no está activo
+     */
+    public RegistroEventos getRegistroEventos() {
+        return this.registro;
+    }
+
+    /**
+     * Mantiene el conjunto de productos por debajo de su stock mínimo y reenvía el cruce del umbral a los suscriptores
+     *
+     * @param producto   Producto que ha cruzado el umbral
+     * @param bajoMinimo Indica si ha quedado por debajo del stock mínimo o lo ha vuelto a alcanzar
+     */
+    private void umbralCruzado(Producto producto, boolean bajoMinimo) {
+        if (bajoMinimo)
+            this.bajoMinimo.add(producto);
+        else
+            this.bajoMinimo.remove(producto);
+
+        for (ObservadorStock suscriptor : this.suscriptores)
+            suscriptor.umbralCruzado(producto, bajoMinimo);
+
+        if (!bajoMinimo) {
+            Set<Cliente> afectados = this.interesados.get(producto);
+            if (afectados != null)
+                for (Cliente cliente : afectados)
+                    cliente.productoRepuesto(producto);
+        }
+    }
+
+    /**
+     * Registra que un cliente tiene un producto entre sus favoritos, para avisarle cuando el producto se elimine del
+     * inventario o vuelva a tener stock. Lo invoca el propio cliente al añadir el favorito
+     *
+     * @param producto Producto favorito
+     * @param cliente  Cliente interesado en el producto
+     */
+    public void registrarInteresado(Producto producto, Cliente cliente) {
+        this.interesados.compute(producto, (clave, clientes) -> {
+            if (clientes == null)
+                clientes = ConcurrentHashMap.newKeySet();
+            clientes.add(cliente);
+            return clientes;
+        });
+    }
+
+    /**
+     * Cancela el registro de un cliente interesado en un producto. Lo invoca el propio cliente al eliminar el favorito
+     *
+     * @param producto Producto favorito
+     * @param cliente  Cliente que deja de estar interesado en el producto
+     */
+    public void retirarInteresado(Producto producto, Cliente cliente) {
+        this.interesados.computeIfPresent(producto, (clave, clientes) -> {
+            clientes.remove(cliente);
+            return clientes.isEmpty() ? null : clientes;
+        });
+    }
+
+    /**
+     * Recupera los clientes que tienen un producto entre sus favoritos, sin recorrer los clientes
+     *
+     * @param producto Producto a consultar
+     * @return Lista con los clientes interesados en el producto
+     */
+    public List<Cliente> clientesInteresados(Producto producto) {
+        Set<Cliente> clientes = producto == null ? null : this.interesados.get(producto);
+        return clientes == null ? new ArrayList<>() : new ArrayList<>(clientes);
+    }
+
+    /**
+     * Marca el comienzo de una operación que modifica el inventario, para que no se solape con una instantánea
+     *
+     * @return Persistencia activa en el momento de comenzar la operación, o null si no hay ninguna
+     */
+    private PersistenciaStock comenzarOperacion() {
+        // Si la persistencia se cierra mientras tanto, el campo ya es nulo al reintentar
+        while (true) {
+            PersistenciaStock actual = this.persistencia;
+            if (actual == null || actual.comenzarOperacion())
+                return actual;
+        }
+    }
+
+    /**
+     * Marca el final de una operación iniciada con comenzarOperacion. Con la persistencia en modo síncrono espera a que el
+     * registro de la operación esté en disco
+     *
+     * @param persistencia Persistencia devuelta por comenzarOperacion
+     * @param registro     Número del último registro de la operación, o 0 si no ha registrado nada
+     * @return Booleano indicando si la operación está guardada. Devuelve falso si en modo síncrono no se ha podido volcar
+     */
+    private boolean terminarOperacion(PersistenciaStock persistencia, long registro) {
+        if (persistencia == null || persistencia.terminarOperacion(registro) || registro == 0)
+            return true;
+
+        reportarError("La operación se ha aplicado en memoria pero no se ha podido guardar en disco", null);
+        return false;
+    }
+
+    /**
+     * Repone un producto dentro de una operación del inventario, para que la reposición y su registro no queden separados
+     * por una instantánea. Es la reposición que usa el planificador
+     *
+     * @param producto Producto a reponer
+     * @return Booleano indicando si se ha repuesto el producto
+     */
+    private boolean reponerProducto(Producto producto) {
+        PersistenciaStock persistencia = comenzarOperacion();
+        long epoca = this.epocas.entrar();
+        try {
+            return producto.reponerStock(epoca);
+        } finally {
+            this.epocas.salir(epoca);
+            terminarOperacion(persistencia, 0);
+        }
+    }
+
+    /**
+     * Registra en la persistencia, si está activa, una reposición realizada sobre un producto del inventario
+     *
+     * @param producto Producto repuesto
+     * @param unidades Número de unidades repuestas
+     */
+    private void registrarReposicion(Producto producto, int unidades) {
+        PersistenciaStock actual = this.persistencia;
+        if (actual != null)
+            actual.registrarReposicion(producto, unidades);
+    }
+
+    /**
+     * Inserta un producto en el índice activo
+     *
+     * @param producto Producto a insertar
+     * @return Booleano indicando si se ha insertado. Devuelve falso si ya existía un producto con el mismo identificador
+     */
+    private boolean insertar(Producto producto) {
+        IndiceProductos indice = this.indiceDecimal;
+        if (indice == null)
+            return this.stock.putIfAbsent(producto.getIdentificador().valorDe(), producto) == null;
+
+        return indice.agregar(producto);
+    }
+
+    /**
+     * Da de alta en los índices secundarios y en el seguimiento del stock mínimo un producto recién insertado
+     *
+     * @param producto Producto insertado
+     */
+    private void publicar(Producto producto) {
+        this.indices.agregar(producto);
+        this.indiceTextual.indexarProducto(producto);
+        producto.asignarObservador(this::umbralCruzado);
+        producto.asignarEpocas(this.epocas);
+        producto.asignarRegistroReposiciones(this::registrarReposicion);
+        if (this.planificador != null)
+            producto.asignarPlanificador(this.planificador);
+        if (this.estimador != null)
+            producto.asignarEstimador(this.estimador);
+        // Si la arena se sustituye mientras tanto, la compactación puede no haber visto aún el producto: se vuelve a asignar
+        ArenaComentarios arena = this.arena;
+        while (arena != null) {
+            producto.asignarArena(arena);
+            ArenaComentarios vigente = this.arena;
+            if (vigente == arena)
+                break;
+            arena = vigente;
+        }
+    }
+
+    /**
+     * Retira un producto del índice activo
+     *
+     * @param producto Producto a retirar
+     * @return Booleano indicando si se ha encontrado el producto
+     */
+    private boolean retirar(Producto producto) {
+        IndiceProductos indice = this.indiceDecimal;
+        if (indice == null)
+            return this.stock.remove(producto.getIdentificador().valorDe(), producto);
+
+        return indice.eliminar(producto);
+    }
+
+    /**
+     * Recorre todos los productos del inventario, independientemente del índice activo
+     *
+     * @return Colección iterable con los productos del inventario
+     */
+    private Iterable<Producto> productos() {
+        IndiceProductos indice = this.indiceDecimal;
+        return indice == null ? this.stock.values() : indice;
     }
 
     /**
@@ -77,8 +875,25 @@ public class GestorStock {
      *
      * @return Única instancia de GestorStock existente
      */
-    public GestorStock recuperarInstancia() {
-        // TODO - implement GestorStock.recuperarInstancia
+    public static GestorStock recuperarInstancia() {
+        if (instanciaActual == null) {
+            synchronized (GestorStock.class) {
+                if (instanciaActual == null)
+                    instanciaActual = new GestorStock();
+            }
+        }
+
+        return instanciaActual;
+    }
+
+    /**
+     * Genera una instancia de GestorStock independiente de la compartida, con su propio inventario, índices y métricas.
+     * Permite gestionar varias tiendas en el mismo proceso o repartir un catálogo entre varias particiones
+     *
+     * @return Nueva instancia de GestorStock con el inventario vacío
+     */
+    public static GestorStock crearInstancia() {
+        return new GestorStock();
     }
 
     /**
@@ -88,7 +903,15 @@ public class GestorStock {
      * @param productoRelacionado Instancia de la clase Producto que generó el error
      */
     private void reportarError(String error, Producto productoRelacionado) {
-        // TODO - implement GestorStock.reportarError
+        this.metricas.registrarError();
+
+        RegistroEventos actual = this.registro;
+        if (actual != null)
+            actual.registrarError(error, productoRelacionado == null ? null : productoRelacionado.getNombre());
+        else if (productoRelacionado == null)
+            System.out.println("ERROR: " + error);
+        else
+            System.out.println("ERROR: " + error + " (" + productoRelacionado.getNombre() + ")");
     }
 
     /**
@@ -96,7 +919,7 @@ public class GestorStock {
      * (nombre, identificador, cantidad, fabricante, fecha de lanzamiento, estado y la lista de comentarios)
      */
     public void mostrarDetallesStock() {
-        // TODO - implement GestorStock.mostrarDetallesStock
+        mostrarInforme(false);
     }
 
     /**
@@ -104,7 +927,310 @@ public class GestorStock {
      * (los básicos junto a su stock mínimo y su prioridad de reabastecimiento)
      */
     public void mostrarDetallesCompletosStock() {
-        // TODO - implement GestorStock.mostrarDetallesCompletosStock
+        mostrarInforme(true);
+    }
+
+    /**
+     * Busca los productos del inventario que cumplen todos los criterios indicados. La búsqueda parte del índice secundario
+     * más selectivo de entre los criterios indicados, de forma que no se recorre el inventario completo
+     *
+     * @param fabricante     Fabricante de los productos. Si es null no se filtra por fabricante
+     * @param prioridad      Prioridad de reabastecimiento de los productos. Si es null no se filtra por prioridad
+     * @param desde          Fecha de lanzamiento mínima (incluida). Si es null no se limita
+     * @param hasta          Fecha de lanzamiento máxima (incluida). Si es null no se limita
+     * @param soloBajoMinimo Indica si solo se buscan productos con la cantidad en stock por debajo de su stock mínimo
+     * @return Lista con los productos que cumplen los criterios
+     */
+    public List<Producto> buscarProductos(FABRICANTES fabricante, PRIORIDAD_PRODUCTO prioridad, Calendar desde, Calendar hasta,
+                                          boolean soloBajoMinimo) {
+        List<Producto> encontrados = this.indices.buscar(fabricante, prioridad, desde, hasta, soloBajoMinimo ? this.bajoMinimo : null, productos());
+        // Un producto eliminado durante la búsqueda puede seguir en algún índice
+        encontrados.removeIf(producto -> !contieneProducto(producto));
+        return encontrados;
+    }
+
+    /**
+     * Busca productos por texto libre. Se buscan las palabras de la consulta, completas o como prefijo, en los nombres de los
+     * productos y en el texto de sus comentarios
+     *
+     * @param consulta Texto a buscar
+     * @param limite   Número máximo de resultados
+     * @return Productos encontrados ordenados de mayor a menor relevancia
+     */
+    public List<Producto> buscarTexto(String consulta, int limite) {
+        List<Producto> encontrados = this.indiceTextual.buscar(consulta, limite);
+        encontrados.removeIf(producto -> !contieneProducto(producto));
+        return encontrados;
+    }
+
+    /**
+     * Método accesor del atributo 'indiceTextual'. Permite consultar el tamaño y la memoria estimada del índice
+     *
+     * @return Índice de texto completo del inventario
+     */
+    public IndiceTextual getIndiceTextual() {
+        return this.indiceTextual;
+    }
+
+    /**
+     * Método accesor del atributo 'metricas'. Permite consultar y exportar los contadores y las latencias de las operaciones
+     *
+     * @return Métricas del inventario
+     */
+    public MetricasStock getMetricas() {
+        return this.metricas;
+    }
+
+    /**
+     * Recupera los productos cuya cantidad en stock está por debajo de su stock mínimo. El conjunto se mantiene al día con
+     * cada venta y cada reposición, por lo que la consulta no recorre el inventario
+     *
+     * @return Lista con los productos por debajo de su stock mínimo
+     */
+    public List<Producto> productosBajoMinimo() {
+        return new ArrayList<>(this.bajoMinimo);
+    }
+
+    /**
+     * Suscribe un observador a los cruces del umbral de stock mínimo de todos los productos del inventario
+     *
+     * @param observador Observador a suscribir. Se ejecuta en el hilo que provoca el cruce, por lo que debe ser rápido
+     */
+    public void suscribirStockBajo(ObservadorStock observador) {
+        if (observador != null)
+            this.suscriptores.add(observador);
+    }
+
+    /**
+     * Cancela la suscripción de un observador a los cruces del umbral de stock mínimo
+     *
+     * @param observador Observador previamente suscrito
+     * @return Booleano indicando si el observador estaba suscrito
+     */
+    public boolean cancelarSuscripcionStockBajo(ObservadorStock observador) {
+        return this.suscriptores.remove(observador);
+    }
+
+    /**
+     * Recupera los productos con mejor puntuación media. Se usan los agregados que mantiene cada producto, sin recorrer
+     * ninguna lista de comentarios. A igualdad de puntuación media se prefieren los productos con más comentarios.
+     * La valoración de cada producto se lee una sola vez antes de entrar en el montículo: si se comparasen los agregados
+     * vivos, un comentario publicado durante la selección cambiaría el orden de elementos ya colocados y rompería el montículo
+     *
+     * @param numero Número máximo de productos a recuperar
+     * @return Productos con comentarios ordenados de mayor a menor puntuación media
+     */
+    public List<Producto> productosMejorValorados(int numero) {
+        Comparator<Valoracion> porValoracion = Comparator.<Valoracion>comparingDouble(valoracion -> valoracion.media)
+                .thenComparingInt(valoracion -> valoracion.comentarios);
+
+        // Montículo de mínimos con los 'numero' productos mejor valorados hasta el momento
+        PriorityQueue<Valoracion> seleccion = new PriorityQueue<>(Math.max(1, Math.min(numero, 1024)), porValoracion);
+        for (Producto producto : productos()) {
+            if (numero <= 0)
+                break;
+
+            Valoracion valoracion = new Valoracion(producto);
+            if (valoracion.comentarios == 0)
+                continue;
+
+            if (seleccion.size() < numero) {
+                seleccion.add(valoracion);
+            } else if (porValoracion.compare(valoracion, seleccion.peek()) > 0) {
+                seleccion.poll();
+                seleccion.add(valoracion);
+            }
+        }
+
+        List<Valoracion> ordenadas = new ArrayList<>(seleccion);
+        ordenadas.sort(porValoracion.reversed());
+        List<Producto> mejores = new ArrayList<>(ordenadas.size());
+        for (Valoracion valoracion : ordenadas)
+            mejores.add(valoracion.producto);
+        return mejores;
+    }
+
+    /**
+     * Escribe una página del informe del inventario directamente sobre un destino, sin construir el informe completo en memoria.
+     * Los productos se escriben en el orden de sus identificadores, empezando por el siguiente al cursor indicado. Para recorrer
+     * el inventario completo se empieza con el cursor -1 y se pasa en cada llamada el cursor devuelto por la anterior
+     *
+     * @param destino    Destino del informe (Writer, PrintStream, StringBuilder...)
+     * @param completo   Indica si se escriben los detalles completos de cada producto o solo los básicos
+     * @param fabricante Fabricante por el que filtrar los productos. Si es null no se filtra por fabricante
+     * @param prioridad  Prioridad por la que filtrar los productos. Si es null no se filtra por prioridad
+     * @param cursor     Entero decimal del identificador del último producto de la página anterior, o -1 para empezar
+     * @param limite     Número máximo de productos de la página
+     * @return Cursor con el que pedir la siguiente página. Devuelve -1 si no quedan más productos
+     * @throws IOException Si falla la escritura en el destino
+     */
+    public int escribirInforme(Appendable destino, boolean completo, FABRICANTES fabricante, PRIORIDAD_PRODUCTO prioridad,
+                               int cursor, int limite) throws IOException {
+        return escribirInforme(destino, completo, fabricante, prioridad, cursor, limite, null);
+    }
+
+    /**
+     * Escribe una página del informe del inventario mostrando las cantidades en stock de una instantánea. Si todas las
+     * páginas se escriben con la misma instantánea, el informe completo corresponde a un mismo instante aunque se sigan
+     * realizando ventas mientras se escribe
+     *
+     * @param destino     Destino del informe (Writer, PrintStream, StringBuilder...)
+     * @param completo    Indica si se escriben los detalles completos de cada producto o solo los básicos
+     * @param fabricante  Fabricante por el que filtrar los productos. Si es null no se filtra por fabricante
+     * @param prioridad   Prioridad por la que filtrar los productos. Si es null no se filtra por prioridad
+     * @param cursor      Entero decimal del identificador del último producto de la página anterior, o -1 para empezar
+     * @param limite      Número máximo de productos de la página
+     * @param instantanea Instantánea de la que leer las cantidades. Si es null se muestran las cantidades actuales
+     * @return Cursor con el que pedir la siguiente página. Devuelve -1 si no quedan más productos
+     * @throws IOException Si falla la escritura en el destino
+     */
+    public int escribirInforme(Appendable destino, boolean completo, FABRICANTES fabricante, PRIORIDAD_PRODUCTO prioridad,
+                               int cursor, int limite, InstantaneaStock instantanea) throws IOException {
+        if (limite <= 0)
+            throw new IllegalArgumentException("El límite de la página debe ser mayor que 0");
+
+        List<Producto> pagina = seleccionarPagina(fabricante, prioridad, cursor, limite);
+        escribirProductos(destino, pagina, completo, instantanea);
+        return pagina.size() < limite ? -1 : pagina.get(pagina.size() - 1).getIdentificador().aDecimal();
+    }
+
+    /**
+     * Escribe los detalles de una secuencia de productos, uno por línea
+     *
+     * @param destino     Destino del informe
+     * @param productos   Productos a escribir
+     * @param completo    Indica si se escriben los detalles completos de cada producto o solo los básicos
+     * @param instantanea Instantánea de la que leer las cantidades, o null
+     * @throws IOException Si falla la escritura en el destino
+     */
+    private void escribirProductos(Appendable destino, Iterable<Producto> productos, boolean completo, InstantaneaStock instantanea)
+            throws IOException {
+        StringBuilder buffer = new StringBuilder(256);
+        for (Producto producto : productos) {
+            buffer.setLength(0);
+            if (instantanea != null)
+                producto.detalles(buffer, completo, instantanea.getCantidad(producto));
+            else if (completo)
+                producto.detallesCompletos(buffer);
+            else
+                producto.detalles(buffer);
+            destino.append(buffer).append('\n');
+        }
+    }
+
+    /**
+     * Selecciona los siguientes productos de una página del informe. La memoria usada es proporcional al tamaño de la página
+     * y no al del inventario. Con el índice decimal el recorrido empieza directamente tras el cursor; sin él, cada página
+     * recorre el inventario completo
+     *
+     * @param fabricante Fabricante por el que filtrar, o null
+     * @param prioridad  Prioridad por la que filtrar, o null
+     * @param cursor     Entero decimal del identificador a partir del que seleccionar (excluido)
+     * @param limite     Número máximo de productos a seleccionar
+     * @return Productos de la página ordenados por identificador
+     */
+    private List<Producto> seleccionarPagina(FABRICANTES fabricante, PRIORIDAD_PRODUCTO prioridad, int cursor, int limite) {
+        List<Producto> pagina = new ArrayList<>(Math.min(limite, 1024));
+
+        IndiceProductos indice = this.indiceDecimal;
+        if (indice != null) {
+            // El índice decimal recorre los productos en orden desde el cursor, por lo que se puede parar al completar la página
+            Iterator<Producto> siguientes = indice.iterarDespuesDe(cursor);
+            while (pagina.size() < limite && siguientes.hasNext()) {
+                Producto producto = siguientes.next();
+                if (cumpleFiltro(producto, fabricante, prioridad))
+                    pagina.add(producto);
+            }
+            return pagina;
+        }
+
+        // Montículo de máximos con los 'limite' menores identificadores posteriores al cursor
+        Comparator<Producto> porIdentificador = Comparator.comparingInt(producto -> producto.getIdentificador().aDecimal());
+        PriorityQueue<Producto> seleccion = new PriorityQueue<>(Math.min(limite, 1024), porIdentificador.reversed());
+        for (Producto producto : this.stock.values()) {
+            int identificador = producto.getIdentificador().aDecimal();
+            if (identificador <= cursor || !cumpleFiltro(producto, fabricante, prioridad))
+                continue;
+
+            if (seleccion.size() < limite) {
+                seleccion.add(producto);
+            } else if (identificador < seleccion.peek().getIdentificador().aDecimal()) {
+                seleccion.poll();
+                seleccion.add(producto);
+            }
+        }
+
+        pagina.addAll(seleccion);
+        pagina.sort(porIdentificador);
+        return pagina;
+    }
+
+    /**
+     * Comprueba si un producto cumple los filtros de un informe
+     *
+     * @param producto   Producto a comprobar
+     * @param fabricante Fabricante por el que filtrar, o null
+     * @param prioridad  Prioridad por la que filtrar, o null
+     * @return Booleano indicando si el producto cumple ambos filtros
+     */
+    private boolean cumpleFiltro(Producto producto, FABRICANTES fabricante, PRIORIDAD_PRODUCTO prioridad) {
+        return (fabricante == null || producto.getFabricante() == fabricante)
+                && (prioridad == null || producto.getPrioridad() == prioridad);
+    }
+
+    /**
+     * Abre una instantánea consistente del stock del inventario. Las ventas continúan sin esperar mientras está abierta;
+     * debe cerrarse al terminar de leerla, preferiblemente con un bloque try-with-resources
+     *
+     * @return Instantánea abierta del stock
+     */
+    public InstantaneaStock abrirInstantaneaStock() {
+        return new InstantaneaStock(this.epocas);
+    }
+
+    /**
+     * Suma las unidades en stock de todos los productos del inventario
+     *
+     * @param instantanea Instantánea de la que leer las cantidades. Si es null se suman las cantidades actuales, que pueden
+     *                    mezclar instantes distintos si hay ventas en curso
+     * @return Unidades totales en stock
+     */
+    public long unidadesEnStock(InstantaneaStock instantanea) {
+        InventarioColumnar actual = this.columnas;
+        if (instantanea == null && actual != null)
+            return actual.unidadesEnStock();
+
+        long total = 0;
+        for (Producto producto : productos())
+            total += instantanea != null ? instantanea.getCantidad(producto) : producto.getCantidad();
+
+        return total;
+    }
+
+    /**
+     * Muestra por consola el informe del inventario completo, página a página. Todas las páginas se leen de la misma
+     * instantánea del stock, por lo que el informe corresponde a un único instante sin detener las ventas
+     *
+     * @param completo Indica si se muestran los detalles completos de cada producto o solo los básicos
+     */
+    private void mostrarInforme(boolean completo) {
+        Writer salida = new BufferedWriter(new OutputStreamWriter(System.out));
+        try (InstantaneaStock instantanea = abrirInstantaneaStock()) {
+            if (this.indiceDecimal == null) {
+                // Sin el índice decimal cada página recorrería el inventario completo: se ordenan las referencias una vez
+                List<Producto> ordenados = new ArrayList<>(this.stock.values());
+                ordenados.sort(Comparator.comparingInt(producto -> producto.getIdentificador().aDecimal()));
+                escribirProductos(salida, ordenados, completo, instantanea);
+            } else {
+                int cursor = -1;
+                do {
+                    cursor = escribirInforme(salida, completo, null, null, cursor, TAMANO_PAGINA, instantanea);
+                } while (cursor >= 0);
+            }
+            salida.flush();
+        } catch (IOException e) {
+            reportarError("No se ha podido mostrar el inventario: " + e.getMessage(), null);
+        }
     }
 
 }
\ No newline at end of file
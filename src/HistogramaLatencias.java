@@ -0,0 +1,155 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histograma de latencias con cubetas logarítmico-lineales, al estilo de HdrHistogram. Cada potencia de dos se divide en
+ * 8 cubetas, por lo que el error relativo de los percentiles es inferior al 12,5 %. El registro no usa cerrojos: cada hilo
+ * escribe en una de varias franjas independientes según su identificador, lo que evita que los hilos compitan por la misma
+ * línea de caché. Las consultas suman todas las franjas
+ *
+ * @author : Juan Pablo García Plaza Pérez - Jose Ángel Concha Carrasco
+ * @grupo : Wild True
+ */
+
+public class HistogramaLatencias {
+
+    private static final int BITS_SUBCUBETA = 3;
+    private static final int SUBCUBETAS = 1 << BITS_SUBCUBETA;
+    private static final int CUBETAS = (64 - BITS_SUBCUBETA + 1) * SUBCUBETAS;
+    private static final int FRANJAS = 16;                              // Potencia de dos
+    private static final int RELLENO = 8;                               // Campos adicionales por franja para separar líneas de caché
+
+    private AtomicLongArray cubetas;                                    // FRANJAS filas de CUBETAS contadores, más cuenta, suma y máximo
+    private int tamanoFranja;
+
+    /**
+     * Constructor por defecto de la clase. Genera un histograma vacío
+     */
+    public HistogramaLatencias() {
+        this.tamanoFranja = CUBETAS + 3 + RELLENO;
+        this.cubetas = new AtomicLongArray(FRANJAS * this.tamanoFranja);
+    }
+
+    /**
+     * Registra una latencia
+     *
+     * @param nanosegundos Latencia en nanosegundos. Los valores negativos se registran como 0
+     */
+    public void registrar(long nanosegundos) {
+        long valor = Math.max(0, nanosegundos);
+        int base = (int) (Thread.currentThread().getId() & (FRANJAS - 1)) * this.tamanoFranja;
+
+        this.cubetas.incrementAndGet(base + cubeta(valor));
+        this.cubetas.incrementAndGet(base + CUBETAS);
+        this.cubetas.addAndGet(base + CUBETAS + 1, valor);
+        long maximo;
+        do {
+            maximo = this.cubetas.get(base + CUBETAS + 2);
+        } while (valor > maximo && !this.cubetas.compareAndSet(base + CUBETAS + 2, maximo, valor));
+    }
+
+    /**
+     * Consulta el número de latencias registradas
+     *
+     * @return Número de registros
+     */
+    public long cuenta() {
+        return sumarFranjas(CUBETAS);
+    }
+
+    /**
+     * Consulta la latencia media
+     *
+     * @return Latencia media en nanosegundos. Devuelve 0 si no hay registros
+     */
+    public double media() {
+        long cuenta = cuenta();
+        return cuenta == 0 ? 0 : (double) sumarFranjas(CUBETAS + 1) / cuenta;
+    }
+
+    /**
+     * Consulta la mayor latencia registrada
+     *
+     * @return Latencia máxima en nanosegundos
+     */
+    public long maximo() {
+        long maximo = 0;
+        for (int franja = 0; franja < FRANJAS; franja++)
+            maximo = Math.max(maximo, this.cubetas.get(franja * this.tamanoFranja + CUBETAS + 2));
+
+        return maximo;
+    }
+
+    /**
+     * Calcula un percentil de las latencias registradas
+     *
+     * @param percentil Percentil entre 0 y 100
+     * @return Límite superior de la cubeta que contiene el percentil, en nanosegundos. Devuelve 0 si no hay registros
+     */
+    public long percentil(double percentil) {
+        long[] totales = new long[CUBETAS];
+        long cuenta = 0;
+        for (int i = 0; i < CUBETAS; i++) {
+            totales[i] = sumarFranjas(i);
+            cuenta += totales[i];
+        }
+        if (cuenta == 0)
+            return 0;
+
+        long objetivo = Math.max(1, (long) Math.ceil(cuenta * Math.min(100, Math.max(0, percentil)) / 100));
+        long acumulado = 0;
+        for (int i = 0; i < CUBETAS; i++) {
+            acumulado += totales[i];
+            if (acumulado >= objetivo)
+                return Math.min(limiteSuperior(i), maximo());
+        }
+
+        return maximo();
+    }
+
+    /**
+     * Calcula la cubeta que corresponde a un valor. Los valores menores que SUBCUBETAS tienen una cubeta cada uno; el resto
+     * se agrupa por su bit más significativo y los BITS_SUBCUBETA bits siguientes
+     *
+     * @param valor Valor no negativo
+     * @return Índice de la cubeta
+     */
+    private static int cubeta(long valor) {
+        if (valor < SUBCUBETAS)
+            return (int) valor;
+
+        int exponente = 63 - Long.numberOfLeadingZeros(valor);
+        int mantisa = (int) (valor >>> (exponente - BITS_SUBCUBETA)) & (SUBCUBETAS - 1);
+        return (exponente - BITS_SUBCUBETA + 1) * SUBCUBETAS + mantisa;
+    }
+
+    /**
+     * Calcula el mayor valor que cae en una cubeta
+     *
+     * @param cubeta Índice de la cubeta
+     * @return Límite superior de la cubeta
+     */
+    private static long limiteSuperior(int cubeta) {
+        if (cubeta < SUBCUBETAS)
+            return cubeta;
+
+        int exponente = cubeta / SUBCUBETAS + BITS_SUBCUBETA - 1;
+        long mantisa = cubeta % SUBCUBETAS;
+        long ancho = 1L << (exponente - BITS_SUBCUBETA);
+        return (1L << exponente) + (mantisa + 1) * ancho - 1;
+    }
+
+    /**
+     * Suma una misma posición de todas las franjas
+     *
+     * @param posicion Posición dentro de la franja
+     * @return Suma de la posición en todas las franjas
+     */
+    private long sumarFranjas(int posicion) {
+        long total = 0;
+        for (int franja = 0; franja < FRANJAS; franja++)
+            total += this.cubetas.get(franja * this.tamanoFranja + posicion);
+
+        return total;
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,181 @@
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Serie temporal en memoria de las unidades vendidas de cada producto. Cada producto tiene dos vectores circulares de
+ * cubetas: una por minuto para la última hora y una por hora para los últimos siete días. Cada cubeta es un único long que
+ * guarda el minuto u hora al que corresponde (32 bits altos) y las unidades vendidas en él (32 bits bajos), de forma que
+ * registrar una venta son dos operaciones CAS sin cerrojos y las cubetas caducadas se reutilizan sin tener que limpiarlas.
+ * Las consultas de demanda recorren solo las cubetas de la ventana pedida
+ *
+ * @author : Juan Pablo García Plaza Pérez - Jose Ángel Concha Carrasco
+ * @grupo : Wild True
+ */
+
+public class HistorialVentas {
+
+    public static final int CUBETAS_MINUTO = 60;                        // Última hora
+    public static final int CUBETAS_HORA = 24 * 7;                      // Últimos siete días
+
+    private static final long MILISEGUNDOS_MINUTO = TimeUnit.MINUTES.toMillis(1);
+    private static final long MILISEGUNDOS_HORA = TimeUnit.HOURS.toMillis(1);
+    private static final long MASCARA_UNIDADES = 0xFFFFFFFFL;
+
+    private Map<Producto, Serie> series;
+
+    /**
+     * Cubetas de ventas de un producto
+     */
+    private static class Serie {
+        private final AtomicLongArray minutos = new AtomicLongArray(CUBETAS_MINUTO);
+        private final AtomicLongArray horas = new AtomicLongArray(CUBETAS_HORA);
+    }
+
+    /**
+     * Constructor por defecto de la clase. Genera un historial vacío
+     */
+    public HistorialVentas() {
+        this.series = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Registra una venta en el instante actual
+     *
+     * @param producto Producto vendido
+     * @param unidades Unidades vendidas
+     */
+    public void registrar(Producto producto, int unidades) {
+        registrar(producto, unidades, System.currentTimeMillis());
+    }
+
+    /**
+     * Registra una venta en un instante concreto. Las ventas anteriores a la ventana que cubre el historial se ignoran
+     *
+     * @param producto Producto vendido
+     * @param unidades Unidades vendidas
+     * @param instante Milisegundos desde 1970-01-01 en los que se produjo la venta
+     */
+    public void registrar(Producto producto, int unidades, long instante) {
+        if (unidades <= 0)
+            return;
+
+        Serie serie = this.series.computeIfAbsent(producto, clave -> new Serie());
+        sumar(serie.minutos, (int) (instante / MILISEGUNDOS_MINUTO), unidades);
+        sumar(serie.horas, (int) (instante / MILISEGUNDOS_HORA), unidades);
+    }
+
+    /**
+     * Consulta las unidades vendidas de un producto en una ventana que termina en el instante actual
+     *
+     * @param producto       Producto a consultar
+     * @param ventanaMinutos Duración de la ventana en minutos. Hasta 60 minutos se resuelve con precisión de minutos y a partir
+     *                       de ahí con precisión de horas, hasta un máximo de siete días
+     * @return Unidades vendidas en la ventana
+     */
+    public long demanda(Producto producto, long ventanaMinutos) {
+        return demanda(producto, ventanaMinutos, System.currentTimeMillis());
+    }
+
+    /**
+     * Consulta las unidades vendidas de un producto en una ventana que termina en un instante concreto
+     *
+     * @param producto       Producto a consultar
+     * @param ventanaMinutos Duración de la ventana en minutos
+     * @param instante       Milisegundos desde 1970-01-01 en los que termina la ventana
+     * @return Unidades vendidas en la ventana
+     */
+    public long demanda(Producto producto, long ventanaMinutos, long instante) {
+        Serie serie = producto == null ? null : this.series.get(producto);
+        if (serie == null || ventanaMinutos <= 0)
+            return 0;
+
+        if (ventanaMinutos <= CUBETAS_MINUTO)
+            return sumarVentana(serie.minutos, (int) (instante / MILISEGUNDOS_MINUTO), (int) ventanaMinutos);
+
+        long horas = Math.min(CUBETAS_HORA, (ventanaMinutos + 59) / 60);
+        return sumarVentana(serie.horas, (int) (instante / MILISEGUNDOS_HORA), (int) horas);
+    }
+
+    /**
+     * Consulta las unidades vendidas de un producto en la última hora
+     *
+     * @param producto Producto a consultar
+     * @return Unidades vendidas
+     */
+    public long demandaUltimaHora(Producto producto) {
+        return demanda(producto, 60);
+    }
+
+    /**
+     * Consulta las unidades vendidas de un producto en las últimas 24 horas
+     *
+     * @param producto Producto a consultar
+     * @return Unidades vendidas
+     */
+    public long demandaUltimoDia(Producto producto) {
+        return demanda(producto, 24 * 60);
+    }
+
+    /**
+     * Consulta las unidades vendidas de un producto en los últimos siete días
+     *
+     * @param producto Producto a consultar
+     * @return Unidades vendidas
+     */
+    public long demandaUltimaSemana(Producto producto) {
+        return demanda(producto, 7 * 24 * 60);
+    }
+
+    /**
+     * Elimina el historial de un producto, por ejemplo al eliminarlo del inventario
+     *
+     * @param producto Producto a olvidar
+     */
+    public void olvidar(Producto producto) {
+        this.series.remove(producto);
+    }
+
+    /**
+     * Suma unidades a la cubeta de un minuto u hora. Si la cubeta guardaba un periodo anterior se reutiliza
+     *
+     * @param cubetas  Vector circular de cubetas
+     * @param periodo  Minuto u hora de la venta
+     * @param unidades Unidades vendidas
+     */
+    private static void sumar(AtomicLongArray cubetas, int periodo, int unidades) {
+        int posicion = periodo % cubetas.length();
+        long actual;
+        long nuevo;
+        do {
+            actual = cubetas.get(posicion);
+            int periodoActual = (int) (actual >>> 32);
+            if (periodoActual == periodo)
+                nuevo = actual + unidades;
+            else if (periodoActual < periodo)
+                nuevo = ((long) periodo << 32) | unidades;
+            else
+                return;                                                 // La venta es anterior a la ventana que cubre el vector
+        } while (!cubetas.compareAndSet(posicion, actual, nuevo));
+    }
+
+    /**
+     * Suma las unidades de las cubetas de los últimos periodos
+     *
+     * @param cubetas  Vector circular de cubetas
+     * @param ultimo   Último periodo de la ventana (incluido)
+     * @param periodos Número de periodos de la ventana
+     * @return Unidades vendidas en la ventana
+     */
+    private static long sumarVentana(AtomicLongArray cubetas, int ultimo, int periodos) {
+        long total = 0;
+        for (int periodo = ultimo - periodos + 1; periodo <= ultimo; periodo++) {
+            long cubeta = cubetas.get(periodo % cubetas.length());
+            if ((int) (cubeta >>> 32) == periodo)
+                total += cubeta & MASCARA_UNIDADES;
+        }
+        return total;
+    }
+
+}
\ No newline at end of file
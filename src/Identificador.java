@@ -8,9 +8,25 @@
 public class Identificador {
 
     // Vector de los valores asociado a cada peso del sistema de numeración en base 36
-    private static final Character[] pesos = {'X','E','L','7','B','F','1','K','5','Y','9','C','3','R',
+    private static final char[] pesos = {'X','E','L','7','B','F','1','K','5','Y','9','C','3','R',
             '6','Z','Q','A','S','J','U','G','W','N','T','P','0','V','2','M','4','I','O','D','8','H'};
+    private static final int BASE = pesos.length;
+    private static final int MAX_CIFRAS = 6;                            // Cifras necesarias para representar Integer.MAX_VALUE
+    private static final int[] potencias = new int[MAX_CIFRAS];         // Potencias de la base para cada posición
+    private static final int[] valores = new int[128];                  // Tabla inversa de pesos indexada por carácter ASCII
     private String valor;                                               // Valor envuelto en la clase
+    private int decimal;                                                // Entero decimal del que se generó el valor
+
+    static {
+        potencias[0] = 1;
+        for (int i = 1; i < MAX_CIFRAS; i++)
+            potencias[i] = potencias[i - 1] * BASE;
+
+        for (int i = 0; i < valores.length; i++)
+            valores[i] = -1;
+        for (int i = 0; i < BASE; i++)
+            valores[pesos[i]] = i;
+    }
 
     /**
      * Constructor parametrizado de la clase. Genera un identificador a partir de un entero decimal
@@ -18,7 +34,8 @@ public class Identificador {
      * @param valor Entero a convertir en identificador
      */
     public Identificador(int valor) {
-        // TODO - implement Identificador.Identificador
+        this.valor = aCadena(valor);
+        this.decimal = valor;
     }
 
     /**
@@ -27,7 +44,7 @@ public class Identificador {
      * @return Cadena de texto representando una secuencia de identificador
      */
     public String valorDe() {
-        // TODO - implement Identificador.valorDe
+        return this.valor;
     }
 
     /**
@@ -36,7 +53,7 @@ public class Identificador {
      * @return Entero decimal del que se generó el identificador
      */
     public int aDecimal() {
-        // TODO - implement Identificador.aDecimal
+        return this.decimal;
     }
 
     /**
@@ -46,6 +63,81 @@ public class Identificador {
      * @return Cadena representando el identificador
      */
     private String aCadena(int numero) {
-        // TODO - implement Identificador.aCadena
+        char[] cifras = new char[MAX_CIFRAS];
+        return new String(cifras, 0, codificar(numero, cifras, 0));
+    }
+
+    /**
+     * Escribe la representación en base 36 de un entero sobre un vector de caracteres proporcionado por el llamador, sin reservar memoria
+     *
+     * @param numero  Entero decimal no negativo a convertir
+     * @param destino Vector en el que escribir las cifras. Debe tener espacio para al menos 6 caracteres a partir de la posición inicial
+     * @param desde   Posición del vector a partir de la que se escribe
+     * @return Número de caracteres escritos
+     */
+    public static int codificar(int numero, char[] destino, int desde) {
+        int longitud = numeroCifras(numero);
+        for (int i = longitud - 1; i >= 0; i--) {
+            destino[desde + i] = pesos[numero % BASE];
+            numero /= BASE;
+        }
+
+        return longitud;
+    }
+
+    /**
+     * Añade la representación en base 36 de un entero al final de un StringBuilder, sin crear cadenas intermedias
+     *
+     * @param numero  Entero decimal no negativo a convertir
+     * @param destino StringBuilder al que se añaden las cifras
+     */
+    public static void codificar(int numero, StringBuilder destino) {
+        for (int i = numeroCifras(numero) - 1; i >= 0; i--)
+            destino.append(pesos[(numero / potencias[i]) % BASE]);
+    }
+
+    /**
+     * Convierte una secuencia de caracteres en base 36 a su entero decimal sin necesidad de construir un Identificador
+     *
+     * @param cadena Secuencia de caracteres que representa un identificador
+     * @return Entero decimal del que se generó el identificador
+     * @throws IllegalArgumentException Si la cadena no es la representación canónica de un entero, por ejemplo si lleva
+     *                                  ceros a la izquierda, ya que una misma cadena debe identificar a un único producto
+     */
+    public static int decodificar(CharSequence cadena) {
+        if (cadena == null || cadena.length() == 0 || cadena.length() > MAX_CIFRAS)
+            throw new IllegalArgumentException("Identificador no válido: " + cadena);
+        if (cadena.length() > 1 && cadena.charAt(0) == pesos[0])
+            throw new IllegalArgumentException("Identificador no válido: " + cadena);
+
+        long numero = 0;
+        for (int i = 0; i < cadena.length(); i++) {
+            char caracter = cadena.charAt(i);
+            if (caracter >= valores.length || valores[caracter] < 0)
+                throw new IllegalArgumentException("Identificador no válido: " + cadena);
+
+            numero = numero * BASE + valores[caracter];
+        }
+        if (numero > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Identificador no válido: " + cadena);
+
+        return (int) numero;
+    }
+
+    /**
+     * Calcula el número de cifras en base 36 necesarias para representar un entero
+     *
+     * @param numero Entero decimal no negativo
+     * @return Número de cifras de su representación en base 36
+     */
+    private static int numeroCifras(int numero) {
+        if (numero < 0)
+            throw new IllegalArgumentException("Solo se admiten enteros no negativos: " + numero);
+
+        int longitud = 1;
+        while (longitud < MAX_CIFRAS && numero >= potencias[longitud])
+            longitud++;
+
+        return longitud;
     }
 }
\ No newline at end of file
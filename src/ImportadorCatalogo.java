@@ -0,0 +1,269 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Importación masiva de productos desde un fichero CSV. El fichero se lee por bloques de filas; las filas de cada bloque se
+ * analizan en paralelo en el ForkJoinPool común, los identificadores de los productos nuevos se reservan de una sola vez con
+ * GeneradorIdentificador.reservarBloque y el bloque completo se publica en el inventario con GestorStock.agregarProductos.
+ *
+ * Cada fila tiene los campos separados por ';':
+ * identificador;nombre;fabricante;prioridad;fechaLanzamiento;esReacondicionado[;cantidad;stockMinimo]
+ * donde el identificador puede dejarse vacío para que se genere uno nuevo, la fecha sigue el formato aaaa-mm-dd y la cantidad
+ * y el stock mínimo son opcionales. Las líneas vacías y las que empiezan por '#' se ignoran
+ *
+ * @author : Juan Pablo García Plaza Pérez - Jose Ángel Concha Carrasco
+ * @grupo : Wild True
+ */
+
+public class ImportadorCatalogo {
+
+    private static final int FILAS_POR_BLOQUE = 1 << 16;
+    private static final char SEPARADOR = ';';
+
+    private GestorStock gestor;
+
+    /**
+     * Fila del fichero ya analizada, pendiente de convertirse en producto
+     */
+    private static class Fila {
+        private int identificador = -1;                                 // -1 si hay que generar un identificador nuevo
+        private String nombre;
+        private FABRICANTES fabricante;
+        private PRIORIDAD_PRODUCTO prioridad;
+        private long diaLanzamiento;
+        private boolean esReacondicionado;
+        private int cantidad = -1;                                      // -1 si se usan la cantidad y el stock mínimo por defecto
+        private int stockMinimo = -1;
+    }
+
+    /**
+     * Resultado de una importación
+     */
+    public static class Resultado {
+        private long filas;
+        private long importados;
+        private long rechazados;
+        private long repetidos;
+        private long nanosegundos;
+
+        /**
+         * Consulta el número de filas de datos leídas del fichero
+         *
+         * @return Número de filas leídas
+         */
+        public long getFilas() {
+            return this.filas;
+        }
+
+        /**
+         * Consulta el número de productos añadidos al inventario
+         *
+         * @return Número de productos importados
+         */
+        public long getImportados() {
+            return this.importados;
+        }
+
+        /**
+         * Consulta el número de filas descartadas por tener un formato incorrecto
+         *
+         * @return Número de filas rechazadas
+         */
+        public long getRechazados() {
+            return this.rechazados;
+        }
+
+        /**
+         * Consulta el número de productos descartados por tener un identificador ya existente
+         *
+         * @return Número de productos repetidos
+         */
+        public long getRepetidos() {
+            return this.repetidos;
+        }
+
+        /**
+         * Consulta el rendimiento de la importación
+         *
+         * @return Filas procesadas por segundo
+         */
+        public double getFilasPorSegundo() {
+            return this.nanosegundos == 0 ? 0 : this.filas * 1e9 / this.nanosegundos;
+        }
+    }
+
+    /**
+     * Constructor parametrizado de la clase
+     *
+     * @param gestor Inventario en el que se publican los productos importados
+     */
+    public ImportadorCatalogo(GestorStock gestor) {
+        this.gestor = gestor;
+    }
+
+    /**
+     * Importa los productos de un fichero CSV codificado en UTF-8
+     *
+     * @param fichero Fichero a importar
+     * @return Resultado de la importación
+     * @throws IOException Si falla la lectura del fichero
+     */
+    public Resultado importar(File fichero) throws IOException {
+        try (Reader origen = new InputStreamReader(new FileInputStream(fichero), StandardCharsets.UTF_8)) {
+            return importar(origen);
+        }
+    }
+
+    /**
+     * Importa los productos leídos de un flujo de caracteres con formato CSV. El flujo no se cierra
+     *
+     * @param origen Flujo del que leer las filas
+     * @return Resultado de la importación
+     * @throws IOException Si falla la lectura del flujo
+     */
+    public Resultado importar(Reader origen) throws IOException {
+        Resultado resultado = new Resultado();
+        long inicio = System.nanoTime();
+
+        BufferedReader lector = new BufferedReader(origen, 1 << 16);
+        String[] lineas = new String[FILAS_POR_BLOQUE];
+        int leidas;
+        do {
+            leidas = 0;
+            String linea;
+            while (leidas < lineas.length && (linea = lector.readLine()) != null) {
+                if (!linea.isEmpty() && linea.charAt(0) != '#')
+                    lineas[leidas++] = linea;
+            }
+
+            if (leidas > 0)
+                importarBloque(lineas, leidas, resultado);
+        } while (leidas == lineas.length);
+
+        resultado.nanosegundos = System.nanoTime() - inicio;
+        return resultado;
+    }
+
+    /**
+     * Importa un bloque de filas: las analiza en paralelo, reserva de una vez los identificadores que faltan, construye
+     * los productos en paralelo y los publica en el inventario como un único lote
+     *
+     * @param lineas    Vector con las líneas del bloque
+     * @param numero    Número de líneas válidas del vector
+     * @param resultado Resultado en el que acumular los contadores
+     */
+    private void importarBloque(String[] lineas, int numero, Resultado resultado) {
+        Fila[] filas = new Fila[numero];
+        IntStream.range(0, numero).parallel().forEach(i -> filas[i] = analizar(lineas[i]));
+
+        // Posición de cada fila nueva dentro del bloque de identificadores reservado
+        int[] posiciones = new int[numero];
+        int nuevas = 0;
+        int mayorExistente = -1;
+        for (int i = 0; i < numero; i++) {
+            if (filas[i] == null)
+                resultado.rechazados++;
+            else if (filas[i].identificador < 0)
+                posiciones[i] = nuevas++;
+            else
+                mayorExistente = Math.max(mayorExistente, filas[i].identificador);
+        }
+
+        GeneradorIdentificador generador = GeneradorIdentificador.recuperarInstancia();
+        if (mayorExistente >= 0)
+            generador.avanzarHasta(mayorExistente);
+        int primero = nuevas > 0 ? generador.reservarBloque(nuevas) : 0;
+        int incremento = generador.getIncremento();
+
+        Producto[] productos = new Producto[numero];
+        IntStream.range(0, numero).parallel().forEach(i -> {
+            Fila fila = filas[i];
+            if (fila != null) {
+                int identificador = fila.identificador < 0 ? primero + posiciones[i] * incremento : fila.identificador;
+                productos[i] = crearProducto(new Identificador(identificador), fila);
+            }
+        });
+
+        List<Producto> lote = new ArrayList<>(numero);
+        for (Producto producto : productos)
+            if (producto != null)
+                lote.add(producto);
+
+        int importados = this.gestor.agregarProductos(lote);
+        resultado.filas += numero;
+        resultado.importados += importados;
+        resultado.repetidos += lote.size() - importados;
+        Arrays.fill(lineas, 0, numero, null);
+    }
+
+    /**
+     * Construye el producto correspondiente a una fila analizada
+     *
+     * @param identificador Identificador del producto
+     * @param fila          Fila analizada
+     * @return Producto construido
+     */
+    private static Producto crearProducto(Identificador identificador, Fila fila) {
+        if (fila.cantidad < 0)
+            return new Producto(identificador, fila.nombre, fila.fabricante, fila.prioridad,
+                    Producto.fechaDesdeDia(fila.diaLanzamiento), fila.esReacondicionado);
+
+        return new Producto(identificador, fila.nombre, fila.fabricante, fila.prioridad,
+                Producto.fechaDesdeDia(fila.diaLanzamiento), fila.esReacondicionado, fila.cantidad, fila.stockMinimo);
+    }
+
+    /**
+     * Analiza una línea del fichero
+     *
+     * @param linea Línea a analizar
+     * @return Fila analizada, o null si la línea no tiene un formato válido
+     */
+    private static Fila analizar(String linea) {
+        try {
+            String[] campos = new String[8];
+            int numero = 0;
+            int desde = 0;
+            while (numero < campos.length) {
+                int hasta = linea.indexOf(SEPARADOR, desde);
+                campos[numero++] = hasta < 0 ? linea.substring(desde) : linea.substring(desde, hasta);
+                if (hasta < 0)
+                    break;
+                if (numero == campos.length)
+                    return null;
+                desde = hasta + 1;
+            }
+            if (numero != 6 && numero != 8)
+                return null;
+
+            Fila fila = new Fila();
+            if (!campos[0].isEmpty())
+                fila.identificador = Identificador.decodificar(campos[0]);
+            fila.nombre = campos[1];
+            fila.fabricante = FABRICANTES.valueOf(campos[2]);
+            fila.prioridad = PRIORIDAD_PRODUCTO.valueOf(campos[3]);
+            fila.diaLanzamiento = LocalDate.parse(campos[4]).toEpochDay();
+            fila.esReacondicionado = Boolean.parseBoolean(campos[5]);
+            if (numero == 8) {
+                fila.cantidad = Integer.parseInt(campos[6]);
+                fila.stockMinimo = Integer.parseInt(campos[7]);
+                if (fila.cantidad < 0 || fila.stockMinimo < 0)
+                    return null;
+            }
+            return fila.nombre.isEmpty() ? null : fila;
+        } catch (RuntimeException e) {
+            // Enumerado, fecha, número o identificador con formato incorrecto
+            return null;
+        }
+    }
+
+}
\ No newline at end of file
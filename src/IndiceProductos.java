@@ -0,0 +1,322 @@
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Índice de productos indexado por el valor decimal de su identificador. Como los identificadores forman una secuencia
+ * densa (valorBase, valorBase + incremento, ...) cada producto ocupa directamente la posición que le corresponde en la
+ * secuencia, sin cadenas ni objetos envoltorio por entrada. La tabla densa se limita a las primeras MAXIMO_DENSO posiciones;
+ * las posiciones posteriores, por ejemplo las de inventarios de decenas de millones de productos o las restauradas de otro
+ * inventario, se guardan en páginas de TAMANO_PAGINA posiciones que solo se reservan cuando reciben su primer producto y se
+ * liberan al vaciarse. Así un identificador grande no obliga a reservar una tabla de miles de millones de posiciones y cada
+ * producto sigue ocupando una única referencia. Con activarColumnas la misma posición es además la fila del producto en
+ * un InventarioColumnar. Las consultas no usan cerrojos; las modificaciones se serializan
+ *
+ * @author : Juan Pablo García Plaza Pérez - Jose Ángel Concha Carrasco
+ * @grupo : Wild True
+ */
+
+public class IndiceProductos implements Iterable<Producto> {
+
+    private static final int CAPACIDAD_INICIAL = 1024;
+    private static final int MAXIMO_DENSO = 1 << 22;                    // Posiciones máximas de la tabla densa (16 MiB de referencias)
+    private static final int BITS_PAGINA = 16;
+    private static final int TAMANO_PAGINA = 1 << BITS_PAGINA;          // Posiciones de cada página a partir de MAXIMO_DENSO
+    private static final int NUMERO_PAGINAS = ((Integer.MAX_VALUE - MAXIMO_DENSO) >>> BITS_PAGINA) + 1;
+
+    private int valorBase;
+    private int incremento;
+    private volatile AtomicReferenceArray<Producto> tabla;              // Posición en la secuencia -> producto
+    private volatile AtomicReferenceArray<AtomicReferenceArray<Producto>> paginas; // Páginas a partir de MAXIMO_DENSO, o null
+    private int[] ocupadas;                                             // Productos de cada página. Solo se usa con el cerrojo
+    private volatile int numeroProductos;
+    private InventarioColumnar columnas;                                // Columnas de los atributos de los productos, o null
+
+    /**
+     * Constructor parametrizado de la clase. Genera un índice vacío para la secuencia de identificadores indicada
+     *
+     * @param valorBase  Entero decimal con el que comienza la secuencia de identificadores
+     * @param incremento Incremento constante entre identificadores consecutivos
+     */
+    public IndiceProductos(int valorBase, int incremento) {
+        this.valorBase = valorBase;
+        this.incremento = incremento;
+        this.tabla = new AtomicReferenceArray<>(CAPACIDAD_INICIAL);
+    }
+
+    /**
+     * Recupera un producto a partir del valor decimal de su identificador
+     *
+     * @param identificador Entero decimal del identificador del producto
+     * @return Producto buscado. En caso de no encontrarlo devuelve el valor null
+     */
+    public Producto recuperar(int identificador) {
+        int posicion = posicion(identificador);
+        if (posicion >= MAXIMO_DENSO) {
+            AtomicReferenceArray<Producto> pagina = pagina(posicion);
+            return pagina == null ? null : pagina.get((posicion - MAXIMO_DENSO) & (TAMANO_PAGINA - 1));
+        }
+
+        AtomicReferenceArray<Producto> actual = this.tabla;
+        return posicion < 0 || posicion >= actual.length() ? null : actual.get(posicion);
+    }
+
+    /**
+     * Añade un producto al índice
+     *
+     * @param producto Producto a añadir
+     * @return Booleano indicando si se ha añadido. Devuelve falso si ya había un producto con el mismo identificador
+     * o si el identificador no pertenece a la secuencia
+     */
+    public synchronized boolean agregar(Producto producto) {
+        int posicion = posicion(producto.getIdentificador().aDecimal());
+        if (posicion < 0 || recuperar(producto.getIdentificador().aDecimal()) != null)
+            return false;
+
+        // El producto se vincula a su fila antes de publicarlo, de forma que nadie llega a modificar su propia cantidad
+        if (this.columnas != null)
+            producto.vincular(this.columnas, posicion);
+        boolean publicado;
+        if (posicion >= MAXIMO_DENSO) {
+            publicado = agregarDisperso(posicion, producto);
+        } else {
+            asegurarCapacidad(posicion);
+            publicado = this.tabla.compareAndSet(posicion, null, producto);
+        }
+        if (!publicado) {
+            if (this.columnas != null) {
+                producto.desvincular();
+                this.columnas.liberar(posicion);
+            }
+            return false;
+        }
+
+        this.numeroProductos++;
+        return true;
+    }
+
+    /**
+     * Elimina un producto del índice
+     *
+     * @param producto Producto a eliminar
+     * @return Booleano indicando si se ha encontrado el producto a eliminar
+     */
+    public synchronized boolean eliminar(Producto producto) {
+        int posicion = posicion(producto.getIdentificador().aDecimal());
+        if (posicion < 0)
+            return false;
+        if (posicion >= MAXIMO_DENSO ? !eliminarDisperso(posicion, producto)
+                : posicion >= this.tabla.length() || !this.tabla.compareAndSet(posicion, producto, null))
+            return false;
+
+        if (this.columnas != null) {
+            producto.desvincular();
+            this.columnas.liberar(posicion);
+        }
+
+        this.numeroProductos--;
+        return true;
+    }
+
+    /**
+     * Activa la representación por columnas de los productos del índice: cada producto que se añada a partir de ese momento
+     * se vincula a la fila de su posición en la secuencia. Solo puede activarse con el índice vacío
+     *
+     * @return Inventario columnar del índice. Devuelve null si el índice ya contiene productos
+     */
+    public synchronized InventarioColumnar activarColumnas() {
+        if (this.columnas == null && this.numeroProductos > 0)
+            return null;
+        if (this.columnas == null)
+            this.columnas = new InventarioColumnar();
+
+        return this.columnas;
+    }
+
+    /**
+     * Consulta el número de productos del índice
+     *
+     * @return Número de productos almacenados
+     */
+    public int numeroProductos() {
+        return this.numeroProductos;
+    }
+
+    /**
+     * Recorre los productos del índice en el orden de sus identificadores
+     *
+     * @return Iterador sobre los productos almacenados
+     */
+    @Override
+    public Iterator<Producto> iterator() {
+        return iterar(0);
+    }
+
+    /**
+     * Recorre en orden los productos con un identificador mayor que el indicado. El recorrido comienza directamente en la
+     * posición siguiente a la del identificador, sin pasar por los productos anteriores, por lo que recorrer el índice por
+     * páginas cuesta lo mismo que recorrerlo de una vez
+     *
+     * @param identificador Entero decimal del identificador a partir del que recorrer (excluido)
+     * @return Iterador sobre los productos posteriores al identificador
+     */
+    public Iterator<Producto> iterarDespuesDe(int identificador) {
+        long desplazamiento = (long) identificador - this.valorBase;
+        if (desplazamiento < 0)
+            return iterar(0);
+
+        long posicion = desplazamiento / this.incremento + 1;
+        return iterar((int) Math.min(posicion, Integer.MAX_VALUE));
+    }
+
+    /**
+     * Recorre en orden los productos a partir de una posición de la secuencia
+     *
+     * @param inicial Primera posición a recorrer
+     * @return Iterador sobre los productos desde esa posición
+     */
+    private Iterator<Producto> iterar(int inicial) {
+        final AtomicReferenceArray<Producto> actual = this.tabla;
+
+        return new Iterator<Producto>() {
+            private long posicion = inicial;
+            private Producto siguiente = avanzar();
+
+            // Se lee cada posición una sola vez para tolerar eliminaciones concurrentes. Las páginas son todas posteriores
+            // a la tabla, así que se recorren a continuación sin romper el orden, saltando las que no están reservadas
+            private Producto avanzar() {
+                while (this.posicion < actual.length()) {
+                    Producto producto = actual.get((int) this.posicion++);
+                    if (producto != null)
+                        return producto;
+                }
+
+                AtomicReferenceArray<AtomicReferenceArray<Producto>> directorio = IndiceProductos.this.paginas;
+                if (directorio == null)
+                    return null;
+
+                this.posicion = Math.max(this.posicion, MAXIMO_DENSO);
+                while (this.posicion <= Integer.MAX_VALUE) {
+                    long relativa = this.posicion - MAXIMO_DENSO;
+                    AtomicReferenceArray<Producto> pagina = directorio.get((int) (relativa >>> BITS_PAGINA));
+                    if (pagina == null) {
+                        this.posicion = MAXIMO_DENSO + ((relativa >>> BITS_PAGINA) + 1) * TAMANO_PAGINA;
+                        continue;
+                    }
+
+                    Producto producto = pagina.get((int) (relativa & (TAMANO_PAGINA - 1)));
+                    this.posicion++;
+                    if (producto != null)
+                        return producto;
+                }
+                return null;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return this.siguiente != null;
+            }
+
+            @Override
+            public Producto next() {
+                if (this.siguiente == null)
+                    throw new NoSuchElementException();
+
+                Producto producto = this.siguiente;
+                this.siguiente = avanzar();
+                return producto;
+            }
+        };
+    }
+
+    /**
+     * Calcula la posición que ocupa un identificador dentro de la secuencia
+     *
+     * @param identificador Entero decimal del identificador
+     * @return Posición en la secuencia. Devuelve -1 si el identificador no pertenece a la secuencia
+     */
+    private int posicion(int identificador) {
+        long desplazamiento = (long) identificador - this.valorBase;
+        if (desplazamiento < 0 || desplazamiento % this.incremento != 0)
+            return -1;
+
+        long posicion = desplazamiento / this.incremento;
+        return posicion > Integer.MAX_VALUE ? -1 : (int) posicion;
+    }
+
+    /**
+     * Localiza la página de una posición a partir de MAXIMO_DENSO
+     *
+     * @param posicion Posición en la secuencia, mayor o igual que MAXIMO_DENSO
+     * @return Página que contiene la posición, o null si no está reservada
+     */
+    private AtomicReferenceArray<Producto> pagina(int posicion) {
+        AtomicReferenceArray<AtomicReferenceArray<Producto>> directorio = this.paginas;
+        return directorio == null ? null : directorio.get((posicion - MAXIMO_DENSO) >>> BITS_PAGINA);
+    }
+
+    /**
+     * Guarda un producto en su página, reservándola si es su primer producto. Debe llamarse con el cerrojo del índice adquirido
+     *
+     * @param posicion Posición en la secuencia, mayor o igual que MAXIMO_DENSO
+     * @param producto Producto a guardar
+     * @return Booleano indicando si se ha guardado. Devuelve falso si la posición ya estaba ocupada
+     */
+    private boolean agregarDisperso(int posicion, Producto producto) {
+        if (this.paginas == null) {
+            this.ocupadas = new int[NUMERO_PAGINAS];
+            this.paginas = new AtomicReferenceArray<>(NUMERO_PAGINAS);
+        }
+
+        int numero = (posicion - MAXIMO_DENSO) >>> BITS_PAGINA;
+        AtomicReferenceArray<Producto> pagina = this.paginas.get(numero);
+        if (pagina == null) {
+            pagina = new AtomicReferenceArray<>(TAMANO_PAGINA);
+            this.paginas.set(numero, pagina);
+        }
+
+        if (!pagina.compareAndSet((posicion - MAXIMO_DENSO) & (TAMANO_PAGINA - 1), null, producto))
+            return false;
+        this.ocupadas[numero]++;
+        return true;
+    }
+
+    /**
+     * Retira un producto de su página, liberándola si se queda vacía. Debe llamarse con el cerrojo del índice adquirido
+     *
+     * @param posicion Posición en la secuencia, mayor o igual que MAXIMO_DENSO
+     * @param producto Producto a retirar
+     * @return Booleano indicando si se ha retirado. Devuelve falso si la posición no contenía ese producto
+     */
+    private boolean eliminarDisperso(int posicion, Producto producto) {
+        AtomicReferenceArray<Producto> pagina = pagina(posicion);
+        if (pagina == null || !pagina.compareAndSet((posicion - MAXIMO_DENSO) & (TAMANO_PAGINA - 1), producto, null))
+            return false;
+
+        int numero = (posicion - MAXIMO_DENSO) >>> BITS_PAGINA;
+        if (--this.ocupadas[numero] == 0)
+            this.paginas.set(numero, null);
+        return true;
+    }
+
+    /**
+     * Amplía la tabla si la posición indicada no cabe en ella. Debe llamarse con el cerrojo del índice adquirido
+     *
+     * @param posicion Posición que debe poder almacenarse, menor que MAXIMO_DENSO
+     */
+    private void asegurarCapacidad(int posicion) {
+        AtomicReferenceArray<Producto> actual = this.tabla;
+        if (posicion < actual.length())
+            return;
+
+        long capacidad = actual.length();
+        while (capacidad <= posicion)
+            capacidad *= 2;
+
+        AtomicReferenceArray<Producto> ampliada = new AtomicReferenceArray<>((int) Math.min(capacidad, MAXIMO_DENSO));
+        for (int i = 0; i < actual.length(); i++)
+            ampliada.set(i, actual.get(i));
+
+        this.tabla = ampliada;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,294 @@
+import java.text.Normalizer;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Índice invertido de texto completo sobre los nombres de los productos y el texto de sus comentarios. Cada término se
+ * indexa completo y por sus prefijos, de forma que se pueden buscar productos por palabras parciales. Los resultados se
+ * ordenan por relevancia: las coincidencias en el nombre pesan más que en los comentarios y las palabras completas más
+ * que los prefijos. Para acotar la memoria se limitan la longitud de los prefijos y los términos indexados por comentario;
+ * las palabras de la consulta más largas que el prefijo máximo se comprueban contra los términos completos que lo comparten
+ *
+ * @author : Juan Pablo García Plaza Pérez - Jose Ángel Concha Carrasco
+ * @grupo : Wild True
+ */
+
+public class IndiceTextual {
+
+    private static final int LONGITUD_MINIMA_PREFIJO = 2;
+    private static final int LONGITUD_MAXIMA_PREFIJO = 8;
+    private static final int TERMINOS_MAXIMOS_COMENTARIO = 64;
+    private static final int PESO_NOMBRE = 4;
+    private static final int PESO_COMENTARIO = 1;
+    private static final int FACTOR_TERMINO_COMPLETO = 2;
+    // Bytes fijos por clave (String, cabecera del char[] y nodo del mapa), más dos por carácter, y por entrada de una
+    // lista de apariciones (nodo e Integer). El consumo real del heap se mide en el módulo de pruebas de rendimiento
+    private static final int BYTES_CLAVE = 24 + 16 + 32;
+    private static final int BYTES_APARICION = 48;
+
+    private Map<String, Map<Producto, Integer>> terminos;               // Término completo -> peso acumulado por producto
+    private Map<String, Map<Producto, Integer>> prefijos;               // Prefijo de término -> peso acumulado por producto
+    private Map<String, Set<String>> terminosLargos;                    // Prefijo máximo -> términos completos más largos que él
+    private LongAdder apariciones;                                      // Número total de entradas en las listas de apariciones
+    private LongAdder caracteres;                                       // Caracteres de todas las claves del índice
+
+    /**
+     * Constructor por defecto de la clase. Genera un índice vacío
+     */
+    public IndiceTextual() {
+        this.terminos = new ConcurrentHashMap<>();
+        this.prefijos = new ConcurrentHashMap<>();
+        this.terminosLargos = new ConcurrentHashMap<>();
+        this.apariciones = new LongAdder();
+        this.caracteres = new LongAdder();
+    }
+
+    /**
+     * Indexa el nombre de un producto y los comentarios que ya tenga, por ejemplo los de un producto restaurado de una
+     * instantánea o decodificado de FormatoBinario
+     *
+     * @param producto Producto a indexar
+     */
+    public void indexarProducto(Producto producto) {
+        for (String termino : tokenizar(producto.getNombre(), Integer.MAX_VALUE))
+            indexar(termino, producto, PESO_NOMBRE);
+        if (producto.getNumeroComentarios() > 0)
+            for (Comentario comentario : producto.getComentarios())
+                indexarComentario(producto, comentario);
+    }
+
+    /**
+     * Indexa el texto de un comentario publicado sobre un producto
+     *
+     * @param producto   Producto comentado
+     * @param comentario Comentario publicado
+     */
+    public void indexarComentario(Producto producto, Comentario comentario) {
+        for (String termino : tokenizar(comentario.getTexto(), TERMINOS_MAXIMOS_COMENTARIO))
+            indexar(termino, producto, PESO_COMENTARIO);
+    }
+
+    /**
+     * Elimina del índice todas las apariciones de un producto, tanto de su nombre como de sus comentarios
+     *
+     * @param producto Producto a eliminar
+     */
+    public void eliminar(Producto producto) {
+        Set<String> terminosProducto = new HashSet<>(tokenizar(producto.getNombre(), Integer.MAX_VALUE));
+        for (Comentario comentario : producto.getComentarios())
+            terminosProducto.addAll(tokenizar(comentario.getTexto(), TERMINOS_MAXIMOS_COMENTARIO));
+
+        for (String termino : terminosProducto) {
+            quitar(this.terminos, termino, producto);
+            for (int longitud = LONGITUD_MINIMA_PREFIJO; longitud <= Math.min(termino.length(), LONGITUD_MAXIMA_PREFIJO); longitud++)
+                quitar(this.prefijos, termino.substring(0, longitud), producto);
+        }
+    }
+
+    /**
+     * Busca los productos que contienen todas las palabras de la consulta, completas o como prefijo, en su nombre o en sus comentarios
+     *
+     * @param consulta Texto a buscar
+     * @param limite   Número máximo de resultados
+     * @return Productos encontrados ordenados de mayor a menor relevancia
+     */
+    public List<Producto> buscar(String consulta, int limite) {
+        List<String> palabras = tokenizar(consulta, Integer.MAX_VALUE);
+        if (palabras.isEmpty() || limite <= 0)
+            return new ArrayList<>();
+
+        // Se parte de la palabra con menos apariciones y se intersecan las demás sobre ella
+        List<Map<Producto, Integer>> exactas = new ArrayList<>();
+        List<Map<Producto, Integer>> parciales = new ArrayList<>();
+        int menor = 0;
+        for (int i = 0; i < palabras.size(); i++) {
+            exactas.add(this.terminos.getOrDefault(palabras.get(i), Collections.emptyMap()));
+            parciales.add(apariciones(palabras.get(i)));
+            if (parciales.get(i).size() < parciales.get(menor).size())
+                menor = i;
+        }
+
+        Comparator<Map.Entry<Producto, Integer>> porRelevancia = Map.Entry.comparingByValue();
+        PriorityQueue<Map.Entry<Producto, Integer>> mejores = new PriorityQueue<>(porRelevancia);
+        for (Producto producto : parciales.get(menor).keySet()) {
+            int relevancia = 0;
+            for (int i = 0; i < palabras.size() && relevancia >= 0; i++) {
+                Integer parcial = parciales.get(i).get(producto);
+                if (parcial == null)
+                    relevancia = -1;
+                else
+                    relevancia += parcial + FACTOR_TERMINO_COMPLETO * exactas.get(i).getOrDefault(producto, 0);
+            }
+            if (relevancia < 0)
+                continue;
+
+            if (mejores.size() < limite) {
+                mejores.add(new AbstractMap.SimpleEntry<>(producto, relevancia));
+            } else if (relevancia > mejores.peek().getValue()) {
+                mejores.poll();
+                mejores.add(new AbstractMap.SimpleEntry<>(producto, relevancia));
+            }
+        }
+
+        List<Map.Entry<Producto, Integer>> ordenados = new ArrayList<>(mejores);
+        ordenados.sort(porRelevancia.reversed());
+        List<Producto> resultado = new ArrayList<>(ordenados.size());
+        for (Map.Entry<Producto, Integer> entrada : ordenados)
+            resultado.add(entrada.getKey());
+
+        return resultado;
+    }
+
+    /**
+     * Consulta el número de claves distintas del índice (términos completos y prefijos)
+     *
+     * @return Número de claves del índice
+     */
+    public int numeroClaves() {
+        return this.terminos.size() + this.prefijos.size();
+    }
+
+    /**
+     * Consulta el número total de entradas de las listas de apariciones
+     *
+     * @return Número de pares (clave, producto) almacenados
+     */
+    public long numeroApariciones() {
+        return this.apariciones.sum();
+    }
+
+    /**
+     * Estima la memoria ocupada por el índice
+     *
+     * @return Número de bytes estimados
+     */
+    public long memoriaEstimada() {
+        return (long) numeroClaves() * BYTES_CLAVE + 2 * this.caracteres.sum() + numeroApariciones() * BYTES_APARICION;
+    }
+
+    /**
+     * Divide un texto en términos normalizados: sin tildes, en minúsculas y formados solo por letras y dígitos
+     *
+     * @param texto  Texto a dividir
+     * @param maximo Número máximo de términos a devolver
+     * @return Lista de términos del texto
+     */
+    private static List<String> tokenizar(String texto, int maximo) {
+        List<String> resultado = new ArrayList<>();
+        if (texto == null)
+            return resultado;
+
+        String normalizado = Normalizer.normalize(texto, Normalizer.Form.NFD);
+        StringBuilder termino = new StringBuilder();
+        for (int i = 0; i <= normalizado.length() && resultado.size() < maximo; i++) {
+            char caracter = i < normalizado.length() ? normalizado.charAt(i) : ' ';
+            if (Character.getType(caracter) == Character.NON_SPACING_MARK)
+                continue;
+
+            if (Character.isLetterOrDigit(caracter)) {
+                termino.append(Character.toLowerCase(caracter));
+            } else if (termino.length() > 0) {
+                resultado.add(termino.toString());
+                termino.setLength(0);
+            }
+        }
+
+        return resultado;
+    }
+
+    /**
+     * Añade una aparición de un término, completo y por sus prefijos
+     *
+     * @param termino  Término normalizado
+     * @param producto Producto en el que aparece
+     * @param peso     Peso de la aparición
+     */
+    private void indexar(String termino, Producto producto, int peso) {
+        anadir(this.terminos, termino, producto, peso);
+        for (int longitud = LONGITUD_MINIMA_PREFIJO; longitud <= Math.min(termino.length(), LONGITUD_MAXIMA_PREFIJO); longitud++)
+            anadir(this.prefijos, termino.substring(0, longitud), producto, peso);
+    }
+
+    /**
+     * Recupera las apariciones de una palabra de la consulta como prefijo de algún término
+     *
+     * @param palabra Palabra normalizada de la consulta
+     * @return Peso acumulado por producto. Las palabras más largas que el prefijo máximo suman solo los términos completos
+     * que empiezan por la palabra entera, no todos los que comparten su prefijo máximo
+     */
+    private Map<Producto, Integer> apariciones(String palabra) {
+        if (palabra.length() < LONGITUD_MINIMA_PREFIJO)
+            return this.terminos.getOrDefault(palabra, Collections.emptyMap());
+        if (palabra.length() <= LONGITUD_MAXIMA_PREFIJO)
+            return this.prefijos.getOrDefault(palabra, Collections.emptyMap());
+
+        Set<String> candidatos = this.terminosLargos.get(palabra.substring(0, LONGITUD_MAXIMA_PREFIJO));
+        if (candidatos == null)
+            return Collections.emptyMap();
+
+        Map<Producto, Integer> resultado = new HashMap<>();
+        for (String termino : candidatos)
+            if (termino.startsWith(palabra))
+                for (Map.Entry<Producto, Integer> aparicion : this.terminos.getOrDefault(termino, Collections.emptyMap()).entrySet())
+                    resultado.merge(aparicion.getKey(), aparicion.getValue(), Integer::sum);
+        return resultado;
+    }
+
+    /**
+     * Suma el peso de una aparición a la lista de apariciones de una clave
+     *
+     * @param indice   Mapa de claves en el que añadir la aparición
+     * @param clave    Término o prefijo
+     * @param producto Producto en el que aparece
+     * @param peso     Peso de la aparición
+     */
+    private void anadir(Map<String, Map<Producto, Integer>> indice, String clave, Producto producto, int peso) {
+        // La modificación se hace dentro de compute para no competir con quitar, que puede eliminar la lista de la clave
+        indice.compute(clave, (existente, lista) -> {
+            Map<Producto, Integer> actual = lista;
+            if (actual == null) {
+                actual = new ConcurrentHashMap<>();
+                this.caracteres.add(clave.length());
+                if (indice == this.terminos && clave.length() > LONGITUD_MAXIMA_PREFIJO)
+                    this.terminosLargos.computeIfAbsent(clave.substring(0, LONGITUD_MAXIMA_PREFIJO), prefijo -> ConcurrentHashMap.newKeySet()).add(clave);
+            }
+            if (actual.merge(producto, peso, Integer::sum) == peso)
+                this.apariciones.increment();
+            return actual;
+        });
+    }
+
+    /**
+     * Elimina un producto de la lista de apariciones de una clave. Las listas vacías se eliminan con la propia clave
+     *
+     * @param indice   Mapa de claves del que eliminar la aparición
+     * @param clave    Término o prefijo
+     * @param producto Producto a eliminar
+     */
+    private void quitar(Map<String, Map<Producto, Integer>> indice, String clave, Producto producto) {
+        indice.computeIfPresent(clave, (existente, lista) -> {
+            if (lista.remove(producto) != null)
+                this.apariciones.decrement();
+            if (!lista.isEmpty())
+                return lista;
+
+            this.caracteres.add(-clave.length());
+            if (indice == this.terminos && clave.length() > LONGITUD_MAXIMA_PREFIJO)
+                this.terminosLargos.computeIfPresent(clave.substring(0, LONGITUD_MAXIMA_PREFIJO), (prefijo, largos) -> {
+                    largos.remove(clave);
+                    return largos.isEmpty() ? null : largos;
+                });
+            return null;
+        });
+    }
+}
\ No newline at end of file
@@ -0,0 +1,151 @@
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Índices secundarios del inventario por fabricante, por prioridad de reabastecimiento y por fecha de lanzamiento.
+ * Se actualizan de forma incremental al añadir y eliminar productos, y permiten resolver consultas partiendo del índice
+ * más selectivo en lugar de recorrer el inventario completo
+ *
+ * @author : Juan Pablo García Plaza Pérez - Jose Ángel Concha Carrasco
+ * @grupo : Wild True
+ */
+
+public class IndicesSecundarios {
+
+    private Map<FABRICANTES, Set<Producto>> porFabricante;
+    private Map<PRIORIDAD_PRODUCTO, Set<Producto>> porPrioridad;
+    private NavigableMap<Long, Set<Producto>> porFecha;                 // Día de lanzamiento -> productos lanzados ese día
+
+    /**
+     * Constructor por defecto de la clase. Genera los índices vacíos
+     */
+    public IndicesSecundarios() {
+        // Los mapas por enumerado se rellenan completos al crearse y después solo se modifican sus conjuntos concurrentes
+        this.porFabricante = new EnumMap<>(FABRICANTES.class);
+        for (FABRICANTES fabricante : FABRICANTES.values())
+            this.porFabricante.put(fabricante, ConcurrentHashMap.newKeySet());
+
+        this.porPrioridad = new EnumMap<>(PRIORIDAD_PRODUCTO.class);
+        for (PRIORIDAD_PRODUCTO prioridad : PRIORIDAD_PRODUCTO.values())
+            this.porPrioridad.put(prioridad, ConcurrentHashMap.newKeySet());
+
+        this.porFecha = new ConcurrentSkipListMap<>();
+    }
+
+    /**
+     * Añade un producto a todos los índices
+     *
+     * @param producto Producto a indexar
+     */
+    public void agregar(Producto producto) {
+        this.porFabricante.get(producto.getFabricante()).add(producto);
+        this.porPrioridad.get(producto.getPrioridad()).add(producto);
+        this.porFecha.computeIfAbsent(producto.getDiaLanzamiento(), dia -> ConcurrentHashMap.newKeySet()).add(producto);
+    }
+
+    /**
+     * Elimina un producto de todos los índices
+     *
+     * @param producto Producto a eliminar
+     */
+    public void eliminar(Producto producto) {
+        this.porFabricante.get(producto.getFabricante()).remove(producto);
+        this.porPrioridad.get(producto.getPrioridad()).remove(producto);
+        // Los conjuntos vacíos se conservan: hay pocos días distintos y así agregar y eliminar nunca compiten por el mismo conjunto
+        Set<Producto> productos = this.porFecha.get(producto.getDiaLanzamiento());
+        if (productos != null)
+            productos.remove(producto);
+    }
+
+    /**
+     * Busca los productos que cumplen todos los criterios indicados. Se recorren solo los candidatos del criterio más
+     * selectivo y el resto de criterios se comprueban sobre ellos. Los criterios nulos no se tienen en cuenta
+     *
+     * @param fabricante Fabricante de los productos, o null
+     * @param prioridad  Prioridad de reabastecimiento de los productos, o null
+     * @param desde      Fecha de lanzamiento mínima (incluida), o null
+     * @param hasta      Fecha de lanzamiento máxima (incluida), o null
+     * @param bajoMinimo Conjunto vivo de productos por debajo de su stock mínimo. Si no es null solo se buscan productos de este conjunto
+     * @param todos      Productos del inventario, que se recorren si no se indica ningún criterio
+     * @return Lista con los productos que cumplen los criterios
+     */
+    public List<Producto> buscar(FABRICANTES fabricante, PRIORIDAD_PRODUCTO prioridad, Calendar desde, Calendar hasta,
+                                 Set<Producto> bajoMinimo, Iterable<Producto> todos) {
+        long diaDesde = desde == null ? Long.MIN_VALUE : Producto.diaDesdeFecha(desde);
+        long diaHasta = hasta == null ? Long.MAX_VALUE : Producto.diaDesdeFecha(hasta);
+        if (diaDesde > diaHasta)
+            return new ArrayList<>();
+
+        Iterable<Producto> candidatos = todos;
+        int mejor = Integer.MAX_VALUE;
+        if (bajoMinimo != null) {
+            candidatos = bajoMinimo;
+            mejor = bajoMinimo.size();
+        }
+        if (fabricante != null && this.porFabricante.get(fabricante).size() < mejor) {
+            candidatos = this.porFabricante.get(fabricante);
+            mejor = this.porFabricante.get(fabricante).size();
+        }
+        if (prioridad != null && this.porPrioridad.get(prioridad).size() < mejor) {
+            candidatos = this.porPrioridad.get(prioridad);
+            mejor = this.porPrioridad.get(prioridad).size();
+        }
+        if (desde != null || hasta != null) {
+            Collection<Set<Producto>> rango = this.porFecha.subMap(diaDesde, true, diaHasta, true).values();
+            // Se cuentan los productos del rango solo hasta superar al mejor candidato encontrado
+            int tamano = 0;
+            for (Set<Producto> productos : rango) {
+                tamano += productos.size();
+                if (tamano >= mejor)
+                    break;
+            }
+            if (tamano < mejor)
+                candidatos = aplanar(rango);
+        }
+
+        List<Producto> resultado = new ArrayList<>();
+        for (Producto producto : candidatos) {
+            if ((fabricante == null || producto.getFabricante() == fabricante)
+                    && (prioridad == null || producto.getPrioridad() == prioridad)
+                    && (desde == null && hasta == null || enRango(producto.getDiaLanzamiento(), diaDesde, diaHasta))
+                    && (bajoMinimo == null || bajoMinimo.contains(producto)))
+                resultado.add(producto);
+        }
+
+        return resultado;
+    }
+
+    /**
+     * Reúne en una sola lista los conjuntos de productos de un rango de fechas
+     *
+     * @param rango Conjuntos de productos de cada día del rango
+     * @return Lista con todos los productos del rango
+     */
+    private static List<Producto> aplanar(Collection<Set<Producto>> rango) {
+        List<Producto> productos = new ArrayList<>();
+        for (Set<Producto> dia : rango)
+            productos.addAll(dia);
+
+        return productos;
+    }
+
+    /**
+     * Comprueba si un día está dentro de un rango
+     *
+     * @param dia   Día a comprobar
+     * @param desde Primer día del rango (incluido)
+     * @param hasta Último día del rango (incluido)
+     * @return Booleano indicando si el día está en el rango
+     */
+    private static boolean enRango(long dia, long desde, long hasta) {
+        return dia >= desde && dia <= hasta;
+    }
+}
\ No newline at end of file
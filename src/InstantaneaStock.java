@@ -0,0 +1,59 @@
+/**
+ * Instantánea consistente del stock de un inventario. Todas las cantidades leídas con ella corresponden a un mismo instante,
+ * aunque se sigan realizando ventas y reposiciones mientras se recorre el inventario: un pedido conjunto aparece completo
+ * o no aparece. Las ventas no esperan a la instantánea; debe cerrarse al terminar de leer para que el inventario deje de
+ * conservar las cantidades previas
+ *
+ * @author : Juan Pablo García Plaza Pérez - Jose Ángel Concha Carrasco
+ * @grupo : Wild True
+ */
+
+public class InstantaneaStock implements AutoCloseable {
+
+    private ControlEpocas epocas;
+    private long epoca;
+    private boolean cerrada;
+
+    /**
+     * Constructor parametrizado de la clase. Abre una instantánea sobre el control de épocas de un inventario
+     *
+     * @param epocas Control de épocas del inventario
+     */
+    public InstantaneaStock(ControlEpocas epocas) {
+        this.epocas = epocas;
+        this.epoca = epocas.abrirInstantanea();
+        this.cerrada = false;
+    }
+
+    /**
+     * Método accesor del atributo 'epoca'
+     *
+     * @return Época del inventario a la que corresponde la instantánea
+     */
+    public long getEpoca() {
+        return this.epoca;
+    }
+
+    /**
+     * Devuelve la cantidad en stock de un producto en el instante de la instantánea
+     *
+     * @param producto Producto del inventario
+     * @return Cantidad en stock del producto en el instante de la instantánea
+     */
+    public int getCantidad(Producto producto) {
+        return producto.getCantidad(this.epoca);
+    }
+
+    /**
+     * Cierra la instantánea. Cerrarla más de una vez no tiene efecto
+     */
+    @Override
+    public synchronized void close() {
+        if (this.cerrada)
+            return;
+
+        this.cerrada = true;
+        this.epocas.cerrarInstantanea();
+    }
+
+}
\ No newline at end of file
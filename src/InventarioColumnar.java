@@ -0,0 +1,214 @@
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Representación por columnas de los atributos más usados de los productos de un inventario: cantidad en stock, stock
+ * mínimo, ordinales del fabricante y la prioridad, fecha de lanzamiento como día desde 1970 y estado de reacondicionado.
+ * Cada producto ocupa la fila correspondiente a su posición en IndiceProductos, de forma que no hace falta ningún índice
+ * propio, y las filas se agrupan en páginas de vectores de tipos primitivos que se reservan a medida que llegan productos.
+ *
+ * Un producto vinculado a una fila actúa como una vista ligera sobre ella: su cantidad en stock se modifica con operaciones
+ * CAS directamente sobre la columna y su fecha se reconstruye a partir del día, por lo que deja de necesitar su propio
+ * AtomicInteger y su Calendar. Los recorridos del inventario completo, como el total de unidades en stock, leen las columnas
+ * sin visitar ningún objeto Producto. Las páginas no se liberan, ya que los identificadores no se reutilizan
+ *
+ * @author : Juan Pablo García Plaza Pérez - Jose Ángel Concha Carrasco
+ * @grupo : Wild True
+ */
+
+public class InventarioColumnar {
+
+    private static final int BITS_PAGINA = 12;
+    private static final int TAMANO_PAGINA = 1 << BITS_PAGINA;          // Filas por página
+    private static final int MASCARA_PAGINA = TAMANO_PAGINA - 1;
+    private static final byte OCUPADA = 1;                              // Bits de la columna de estado
+    private static final byte REACONDICIONADO = 2;
+    private static final int BYTES_POR_FILA = 4 + 4 + 4 + 1 + 1 + 1;    // Cantidad, stock mínimo, día, fabricante, prioridad y estado
+
+    private volatile Pagina[] paginas;                                  // Página de cada bloque de filas, o null si no está reservada
+    private volatile int filasOcupadas;
+
+    /**
+     * Columnas de un bloque de filas consecutivas
+     */
+    private static class Pagina {
+        private final AtomicIntegerArray cantidades = new AtomicIntegerArray(TAMANO_PAGINA);
+        private final int[] stocksMinimos = new int[TAMANO_PAGINA];
+        private final int[] dias = new int[TAMANO_PAGINA];              // Días desde el 1 de enero de 1970
+        private final byte[] fabricantes = new byte[TAMANO_PAGINA];
+        private final byte[] prioridades = new byte[TAMANO_PAGINA];
+        private final byte[] estados = new byte[TAMANO_PAGINA];         // Fila ocupada y producto reacondicionado
+    }
+
+    /**
+     * Constructor por defecto de la clase. Genera un inventario columnar vacío; las páginas se reservan al ocupar sus filas
+     */
+    public InventarioColumnar() {
+        this.paginas = new Pagina[0];
+    }
+
+    /**
+     * Copia en una fila los atributos de un producto. Solo la usa Producto al vincularse, antes de ser visible en el inventario
+     *
+     * @param fila     Posición del producto en IndiceProductos
+     * @param producto Producto cuyos atributos se copian
+     */
+    synchronized void ocupar(int fila, Producto producto) {
+        Pagina pagina = reservarPagina(fila >>> BITS_PAGINA);
+        int posicion = fila & MASCARA_PAGINA;
+        pagina.stocksMinimos[posicion] = producto.getStockMinimo();
+        pagina.dias[posicion] = (int) producto.getDiaLanzamiento();
+        pagina.fabricantes[posicion] = (byte) producto.getFabricante().ordinal();
+        pagina.prioridades[posicion] = (byte) producto.getPrioridad().ordinal();
+        pagina.estados[posicion] = (byte) (OCUPADA | (producto.getEsReacondicionado() ? REACONDICIONADO : 0));
+
+        // La escritura volátil de la cantidad publica el resto de columnas de la fila a los recorridos
+        pagina.cantidades.set(posicion, producto.getCantidad());
+        this.filasOcupadas++;
+    }
+
+    /**
+     * Marca como libre la fila de un producto eliminado del inventario
+     *
+     * @param fila Posición del producto en IndiceProductos
+     */
+    synchronized void liberar(int fila) {
+        Pagina pagina = this.paginas[fila >>> BITS_PAGINA];
+        int posicion = fila & MASCARA_PAGINA;
+        if ((pagina.estados[posicion] & OCUPADA) == 0)
+            return;
+
+        pagina.estados[posicion] = 0;
+        pagina.cantidades.set(posicion, 0);
+        this.filasOcupadas--;
+    }
+
+    /**
+     * Consulta la cantidad en stock de una fila
+     *
+     * @param fila Fila ocupada
+     * @return Cantidad en stock
+     */
+    int getCantidad(int fila) {
+        return this.paginas[fila >>> BITS_PAGINA].cantidades.get(fila & MASCARA_PAGINA);
+    }
+
+    /**
+     * Sustituye atómicamente la cantidad en stock de una fila si no ha cambiado
+     *
+     * @param fila     Fila ocupada
+     * @param esperada Cantidad que debe tener la fila
+     * @param nueva    Cantidad a asignar
+     * @return Booleano indicando si se ha sustituido
+     */
+    boolean cambiarCantidad(int fila, int esperada, int nueva) {
+        return this.paginas[fila >>> BITS_PAGINA].cantidades.compareAndSet(fila & MASCARA_PAGINA, esperada, nueva);
+    }
+
+    /**
+     * Suma atómicamente una variación a la cantidad en stock de una fila
+     *
+     * @param fila     Fila ocupada
+     * @param unidades Variación de la cantidad
+     * @return Cantidad resultante
+     */
+    int sumarCantidad(int fila, int unidades) {
+        return this.paginas[fila >>> BITS_PAGINA].cantidades.addAndGet(fila & MASCARA_PAGINA, unidades);
+    }
+
+    /**
+     * Consulta la fecha de lanzamiento de una fila
+     *
+     * @param fila Fila ocupada
+     * @return Días transcurridos desde el 1 de enero de 1970 hasta la fecha de lanzamiento
+     */
+    int getDiaLanzamiento(int fila) {
+        return this.paginas[fila >>> BITS_PAGINA].dias[fila & MASCARA_PAGINA];
+    }
+
+    /**
+     * Consulta el número de filas ocupadas
+     *
+     * @return Número de productos vinculados al inventario columnar
+     */
+    public int numeroFilas() {
+        return this.filasOcupadas;
+    }
+
+    /**
+     * Suma las unidades en stock de todas las filas ocupadas recorriendo solo las columnas de cantidades y de estado
+     *
+     * @return Unidades totales en stock
+     */
+    public long unidadesEnStock() {
+        long total = 0;
+        for (Pagina pagina : this.paginas) {
+            if (pagina == null)
+                continue;
+            for (int i = 0; i < TAMANO_PAGINA; i++) {
+                int cantidad = pagina.cantidades.get(i);
+                if ((pagina.estados[i] & OCUPADA) != 0)
+                    total += cantidad;
+            }
+        }
+
+        return total;
+    }
+
+    /**
+     * Cuenta las filas ocupadas cuya cantidad en stock está por debajo de su stock mínimo, opcionalmente de un solo fabricante
+     *
+     * @param fabricante Fabricante por el que filtrar. Si es null se cuentan todos
+     * @return Número de productos bajo mínimo
+     */
+    public int productosBajoMinimo(FABRICANTES fabricante) {
+        int total = 0;
+        for (Pagina pagina : this.paginas) {
+            if (pagina == null)
+                continue;
+            for (int i = 0; i < TAMANO_PAGINA; i++) {
+                int cantidad = pagina.cantidades.get(i);
+                if ((pagina.estados[i] & OCUPADA) != 0 && cantidad < pagina.stocksMinimos[i]
+                        && (fabricante == null || pagina.fabricantes[i] == (byte) fabricante.ordinal()))
+                    total++;
+            }
+        }
+
+        return total;
+    }
+
+    /**
+     * Calcula la memoria reservada por las columnas, incluidas las filas libres de las páginas reservadas
+     *
+     * @return Número de bytes reservados por las columnas
+     */
+    public long getBytesReservados() {
+        long reservadas = 0;
+        for (Pagina pagina : this.paginas)
+            if (pagina != null)
+                reservadas++;
+
+        return reservadas * TAMANO_PAGINA * BYTES_POR_FILA + 4L * this.paginas.length;
+    }
+
+    /**
+     * Devuelve la página de un bloque de filas, reservándola si aún no existe. Debe llamarse con el cerrojo adquirido
+     *
+     * @param numero Número de la página
+     * @return Página reservada
+     */
+    private Pagina reservarPagina(int numero) {
+        Pagina[] actuales = this.paginas;
+        if (numero >= actuales.length) {
+            Pagina[] ampliadas = new Pagina[Math.max(numero + 1, 2 * actuales.length)];
+            System.arraycopy(actuales, 0, ampliadas, 0, actuales.length);
+            actuales = ampliadas;
+        }
+        if (actuales[numero] == null)
+            actuales[numero] = new Pagina();
+
+        // Se vuelve a publicar el vector aunque no haya crecido, para que los lectores vean la página nueva
+        this.paginas = actuales;
+        return actuales[numero];
+    }
+
+}
@@ -0,0 +1,228 @@
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+/**
+ * Inventario repartido entre varias instancias independientes de GestorStock. Cada producto pertenece a una única partición,
+ * elegida a partir del entero decimal de su identificador, por lo que las operaciones sobre un producto se dirigen a su
+ * partición sin ninguna coordinación con las demás. Cada partición tiene su propio hilo, en el que se ejecutan las operaciones
+ * asíncronas y su parte de las consultas que abarcan todo el inventario, que se resuelven en paralelo y se combinan al final
+ *
+ * @author : Juan Pablo García Plaza Pérez - Jose Ángel Concha Carrasco
+ * @grupo : Wild True
+ */
+
+public class InventarioParticionado {
+
+    private static final int MEZCLA_HASH = 0x9E3779B9;                  // Dispersa los identificadores, que son consecutivos
+
+    private GestorStock[] particiones;
+    private ExecutorService[] ejecutores;
+
+    /**
+     * Constructor parametrizado de la clase. Genera las particiones vacías y lanza el hilo de cada una
+     *
+     * @param numeroParticiones Número de particiones del inventario. Debe ser mayor que 0
+     */
+    public InventarioParticionado(int numeroParticiones) {
+        if (numeroParticiones <= 0)
+            throw new IllegalArgumentException("El número de particiones debe ser mayor que 0");
+
+        this.particiones = new GestorStock[numeroParticiones];
+        this.ejecutores = new ExecutorService[numeroParticiones];
+        for (int i = 0; i < numeroParticiones; i++) {
+            final int particion = i;
+            this.particiones[i] = GestorStock.crearInstancia();
+            this.ejecutores[i] = Executors.newSingleThreadExecutor(tarea -> {
+                Thread hilo = new Thread(tarea, "particion-stock-" + particion);
+                hilo.setDaemon(true);
+                return hilo;
+            });
+        }
+    }
+
+    /**
+     * Consulta el número de particiones del inventario
+     *
+     * @return Número de particiones
+     */
+    public int getNumeroParticiones() {
+        return this.particiones.length;
+    }
+
+    /**
+     * Recupera una de las particiones del inventario
+     *
+     * @param indice Posición de la partición, entre 0 y el número de particiones (excluido)
+     * @return Instancia de GestorStock de la partición
+     */
+    public GestorStock getParticion(int indice) {
+        return this.particiones[indice];
+    }
+
+    /**
+     * Recupera la partición a la que pertenece un producto
+     *
+     * @param producto Producto a localizar
+     * @return Instancia de GestorStock de la partición del producto
+     */
+    public GestorStock particionDe(Producto producto) {
+        return this.particiones[indiceParticion(producto.getIdentificador().aDecimal())];
+    }
+
+    /**
+     * Añade un producto a su partición
+     *
+     * @param producto Producto que va a ser añadido al inventario
+     * @return Booleano indicando si se ha permitido la inserción del producto. Devuelve falso si el producto es nulo o está repetido
+     */
+    public boolean agregarProducto(Producto producto) {
+        return producto != null && particionDe(producto).agregarProducto(producto);
+    }
+
+    /**
+     * Elimina un producto de su partición
+     *
+     * @param producto Instancia de la clase Producto a borrar
+     * @return Booleano indicando si se ha encontrado el producto a borrar
+     */
+    public boolean eliminarProducto(Producto producto) {
+        return producto != null && particionDe(producto).eliminarProducto(producto);
+    }
+
+    /**
+     * Realiza el pedido de un número cualquiera de unidades de un producto en su partición
+     *
+     * @param cantidad Número de unidades que debe entregar
+     * @param producto Instancia de la clase Producto a pedir
+     * @return Booleano indicando si se ha podido enviar el pedido
+     */
+    public boolean venderProducto(int cantidad, Producto producto) {
+        return producto != null && particionDe(producto).venderProducto(cantidad, producto);
+    }
+
+    /**
+     * Encola el pedido de un número cualquiera de unidades de un producto en el hilo de su partición
+     *
+     * @param cantidad Número de unidades que debe entregar
+     * @param producto Instancia de la clase Producto a pedir
+     * @return Resultado futuro indicando si se ha podido enviar el pedido
+     */
+    public CompletableFuture<Boolean> venderProductoAsincrono(int cantidad, Producto producto) {
+        if (producto == null)
+            return CompletableFuture.completedFuture(false);
+
+        int indice = indiceParticion(producto.getIdentificador().aDecimal());
+        return CompletableFuture.supplyAsync(() -> this.particiones[indice].venderProducto(cantidad, producto), this.ejecutores[indice]);
+    }
+
+    /**
+     * Publica un comentario sobre un producto en su partición
+     *
+     * @param producto   Producto al que añadir un comentario
+     * @param comentario Objeto de la clase Comentario que añadir al producto indicado
+     * @return Booleano indicando si se ha podido añadir el comentario
+     */
+    public boolean comentarProducto(Producto producto, Comentario comentario) {
+        return producto != null && particionDe(producto).comentarProducto(producto, comentario);
+    }
+
+    /**
+     * Recupera un producto a partir de su identificador, consultando solo su partición
+     *
+     * @param identificador Cadena que identifica de forma única un producto
+     * @return Producto buscado. En caso de no encontrarlo devuelve el valor null
+     */
+    public Producto recuperarProducto(String identificador) {
+        if (identificador == null)
+            return null;
+
+        try {
+            return this.particiones[indiceParticion(Identificador.decodificar(identificador))].recuperarProducto(identificador);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Recupera los productos por debajo de su stock mínimo de todas las particiones
+     *
+     * @return Lista con los productos por debajo de su stock mínimo
+     */
+    public List<Producto> productosBajoMinimo() {
+        return combinar(GestorStock::productosBajoMinimo);
+    }
+
+    /**
+     * Busca en todas las particiones los productos que cumplen todos los criterios indicados
+     *
+     * @param fabricante     Fabricante de los productos. Si es null no se filtra por fabricante
+     * @param prioridad      Prioridad de reabastecimiento de los productos. Si es null no se filtra por prioridad
+     * @param desde          Fecha de lanzamiento mínima (incluida). Si es null no se limita
+     * @param hasta          Fecha de lanzamiento máxima (incluida). Si es null no se limita
+     * @param soloBajoMinimo Indica si solo se buscan productos con la cantidad en stock por debajo de su stock mínimo
+     * @return Lista con los productos que cumplen los criterios
+     */
+    public List<Producto> buscarProductos(FABRICANTES fabricante, PRIORIDAD_PRODUCTO prioridad, Calendar desde, Calendar hasta,
+                                          boolean soloBajoMinimo) {
+        return combinar(particion -> particion.buscarProductos(fabricante, prioridad, desde, hasta, soloBajoMinimo));
+    }
+
+    /**
+     * Recupera los productos con mejor puntuación media de todo el inventario. Cada partición selecciona sus mejores
+     * productos y después se mezclan las selecciones
+     *
+     * @param numero Número máximo de productos a recuperar
+     * @return Productos con comentarios ordenados de mayor a menor puntuación media
+     */
+    public List<Producto> productosMejorValorados(int numero) {
+        List<Producto> candidatos = combinar(particion -> particion.productosMejorValorados(numero));
+        candidatos.sort(Comparator.comparingDouble(Producto::getPuntuacionMedia)
+                .thenComparingInt(Producto::getNumeroComentarios).reversed());
+
+        return candidatos.size() <= numero ? candidatos : new ArrayList<>(candidatos.subList(0, Math.max(0, numero)));
+    }
+
+    /**
+     * Detiene los hilos de las particiones. Las operaciones asíncronas pendientes no se ejecutan
+     */
+    public void detener() {
+        for (ExecutorService ejecutor : this.ejecutores)
+            ejecutor.shutdownNow();
+    }
+
+    /**
+     * Ejecuta una consulta en todas las particiones en paralelo, cada una en su hilo, y concatena los resultados
+     *
+     * @param consulta Consulta a ejecutar sobre cada partición
+     * @return Lista con los resultados de todas las particiones
+     */
+    private List<Producto> combinar(Function<GestorStock, List<Producto>> consulta) {
+        List<CompletableFuture<List<Producto>>> parciales = new ArrayList<>(this.particiones.length);
+        for (int i = 0; i < this.particiones.length; i++) {
+            GestorStock particion = this.particiones[i];
+            parciales.add(CompletableFuture.supplyAsync(() -> consulta.apply(particion), this.ejecutores[i]));
+        }
+
+        List<Producto> resultado = new ArrayList<>();
+        for (CompletableFuture<List<Producto>> parcial : parciales)
+            resultado.addAll(parcial.join());
+        return resultado;
+    }
+
+    /**
+     * Calcula la partición que corresponde al entero decimal de un identificador
+     *
+     * @param identificador Entero decimal del identificador
+     * @return Posición de la partición
+     */
+    private int indiceParticion(int identificador) {
+        return (int) (((identificador * MEZCLA_HASH) & 0xFFFFFFFFL) * this.particiones.length >>> 32);
+    }
+
+}
\ No newline at end of file
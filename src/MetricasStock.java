@@ -0,0 +1,217 @@
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Métricas de las operaciones del inventario: contadores de ventas, pedidos rechazados, roturas de stock, comentarios y
+ * errores, junto a histogramas de latencia de las ventas y de los pedidos de los clientes. Todos los registros se hacen
+ * sin cerrojos para no alterar el rendimiento de las operaciones medidas. Las métricas pueden exportarse como texto o como JSON
+ *
+ * @author : Juan Pablo García Plaza Pérez - Jose Ángel Concha Carrasco
+ * @grupo : Wild True
+ */
+
+public class MetricasStock {
+
+    private LongAdder ventas;
+    private LongAdder unidadesVendidas;
+    private LongAdder pedidosRechazados;
+    private LongAdder roturasStock;                                     // Pedidos rechazados por falta de stock
+    private LongAdder comentarios;
+    private LongAdder errores;
+    private HistogramaLatencias latenciaVentas;
+    private HistogramaLatencias latenciaPedidos;
+
+    /**
+     * Constructor por defecto de la clase. Genera todas las métricas a cero
+     */
+    public MetricasStock() {
+        this.ventas = new LongAdder();
+        this.unidadesVendidas = new LongAdder();
+        this.pedidosRechazados = new LongAdder();
+        this.roturasStock = new LongAdder();
+        this.comentarios = new LongAdder();
+        this.errores = new LongAdder();
+        this.latenciaVentas = new HistogramaLatencias();
+        this.latenciaPedidos = new HistogramaLatencias();
+    }
+
+    /**
+     * Registra una venta servida
+     *
+     * @param unidades     Número de unidades vendidas
+     * @param nanosegundos Duración de la venta
+     */
+    public void registrarVenta(int unidades, long nanosegundos) {
+        this.ventas.increment();
+        this.unidadesVendidas.add(unidades);
+        this.latenciaVentas.registrar(nanosegundos);
+    }
+
+    /**
+     * Registra una venta rechazada
+     *
+     * @param faltaStock   Indica si la venta se rechazó por falta de stock
+     * @param nanosegundos Duración de la venta
+     */
+    public void registrarRechazo(boolean faltaStock, long nanosegundos) {
+        this.pedidosRechazados.increment();
+        if (faltaStock)
+            this.roturasStock.increment();
+        this.latenciaVentas.registrar(nanosegundos);
+    }
+
+    /**
+     * Registra la duración de un pedido realizado por un cliente, desde que lo solicita hasta que recibe la respuesta
+     *
+     * @param nanosegundos Duración del pedido
+     */
+    public void registrarPedido(long nanosegundos) {
+        this.latenciaPedidos.registrar(nanosegundos);
+    }
+
+    /**
+     * Registra la publicación de un comentario
+     */
+    public void registrarComentario() {
+        this.comentarios.increment();
+    }
+
+    /**
+     * Registra un error en una operación del inventario
+     */
+    public void registrarError() {
+        this.errores.increment();
+    }
+
+    /**
+     * Método accesor del atributo 'latenciaVentas'
+     *
+     * @return Histograma de latencias de las ventas
+     */
+    public HistogramaLatencias getLatenciaVentas() {
+        return this.latenciaVentas;
+    }
+
+    /**
+     * Método accesor del atributo 'latenciaPedidos'
+     *
+     * @return Histograma de latencias de los pedidos de los clientes
+     */
+    public HistogramaLatencias getLatenciaPedidos() {
+        return this.latenciaPedidos;
+    }
+
+    /**
+     * Consulta el número de ventas servidas
+     *
+     * @return Número de ventas servidas
+     */
+    public long getVentas() {
+        return this.ventas.sum();
+    }
+
+    /**
+     * Consulta el número de pedidos rechazados
+     *
+     * @return Número de pedidos rechazados
+     */
+    public long getPedidosRechazados() {
+        return this.pedidosRechazados.sum();
+    }
+
+    /**
+     * Consulta el número de pedidos rechazados por falta de stock
+     *
+     * @return Número de roturas de stock
+     */
+    public long getRoturasStock() {
+        return this.roturasStock.sum();
+    }
+
+    /**
+     * Consulta el número de comentarios publicados
+     *
+     * @return Número de comentarios
+     */
+    public long getComentarios() {
+        return this.comentarios.sum();
+    }
+
+    /**
+     * Consulta el número de errores registrados
+     *
+     * @return Número de errores
+     */
+    public long getErrores() {
+        return this.errores.sum();
+    }
+
+    /**
+     * Exporta una instantánea de las métricas como texto legible, una métrica por línea
+     *
+     * @return Cadena con las métricas
+     */
+    public String aTexto() {
+        StringBuilder destino = new StringBuilder();
+        destino.append("ventas ").append(getVentas()).append('\n');
+        destino.append("unidades_vendidas ").append(this.unidadesVendidas.sum()).append('\n');
+        destino.append("pedidos_rechazados ").append(getPedidosRechazados()).append('\n');
+        destino.append("roturas_stock ").append(getRoturasStock()).append('\n');
+        destino.append("comentarios ").append(getComentarios()).append('\n');
+        destino.append("errores ").append(getErrores()).append('\n');
+        histogramaATexto("latencia_ventas", this.latenciaVentas, destino);
+        histogramaATexto("latencia_pedidos", this.latenciaPedidos, destino);
+        return destino.toString();
+    }
+
+    /**
+     * Exporta una instantánea de las métricas en formato JSON
+     *
+     * @return Cadena JSON con las métricas
+     */
+    public String aJson() {
+        StringBuilder destino = new StringBuilder("{");
+        destino.append("\"ventas\":").append(getVentas());
+        destino.append(",\"unidadesVendidas\":").append(this.unidadesVendidas.sum());
+        destino.append(",\"pedidosRechazados\":").append(getPedidosRechazados());
+        destino.append(",\"roturasStock\":").append(getRoturasStock());
+        destino.append(",\"comentarios\":").append(getComentarios());
+        destino.append(",\"errores\":").append(getErrores());
+        destino.append(",\"latenciaVentas\":");
+        histogramaAJson(this.latenciaVentas, destino);
+        destino.append(",\"latenciaPedidos\":");
+        histogramaAJson(this.latenciaPedidos, destino);
+        return destino.append('}').toString();
+    }
+
+    /**
+     * Añade el resumen de un histograma como texto
+     *
+     * @param nombre     Nombre de la métrica
+     * @param histograma Histograma a resumir
+     * @param destino    StringBuilder al que se añade el resumen
+     */
+    private static void histogramaATexto(String nombre, HistogramaLatencias histograma, StringBuilder destino) {
+        destino.append(nombre).append("_cuenta ").append(histograma.cuenta()).append('\n');
+        destino.append(nombre).append("_media_ns ").append((long) histograma.media()).append('\n');
+        destino.append(nombre).append("_p50_ns ").append(histograma.percentil(50)).append('\n');
+        destino.append(nombre).append("_p99_ns ").append(histograma.percentil(99)).append('\n');
+        destino.append(nombre).append("_p999_ns ").append(histograma.percentil(99.9)).append('\n');
+        destino.append(nombre).append("_max_ns ").append(histograma.maximo()).append('\n');
+    }
+
+    /**
+     * Añade el resumen de un histograma como objeto JSON
+     *
+     * @param histograma Histograma a resumir
+     * @param destino    StringBuilder al que se añade el resumen
+     */
+    private static void histogramaAJson(HistogramaLatencias histograma, StringBuilder destino) {
+        destino.append("{\"cuenta\":").append(histograma.cuenta());
+        destino.append(",\"mediaNs\":").append((long) histograma.media());
+        destino.append(",\"p50Ns\":").append(histograma.percentil(50));
+        destino.append(",\"p99Ns\":").append(histograma.percentil(99));
+        destino.append(",\"p999Ns\":").append(histograma.percentil(99.9));
+        destino.append(",\"maxNs\":").append(histograma.maximo()).append('}');
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,19 @@
+/**
+ * Observador de los cruces del umbral de stock mínimo de los productos. Recibe una notificación cada vez que la cantidad
+ * en stock de un producto pasa a estar por debajo de su stock mínimo y cada vez que vuelve a alcanzarlo
+ *
+ * @author : Juan Pablo García Plaza Pérez - Jose Ángel Concha Carrasco
+ * @grupo : Wild True
+ */
+
+public interface ObservadorStock {
+
+    /**
+     * Notifica que un producto ha cruzado el umbral de su stock mínimo. Las notificaciones de un mismo producto llegan
+     * en orden y alternan siempre entre ambos sentidos
+     *
+     * @param producto   Producto que ha cruzado el umbral
+     * @param bajoMinimo Indica si la cantidad en stock ha quedado por debajo del stock mínimo (true) o lo ha vuelto a alcanzar (false)
+     */
+    void umbralCruzado(Producto producto, boolean bajoMinimo);
+}
\ No newline at end of file
@@ -0,0 +1,11 @@
+/**
+ * Comportamiento del registro de eventos cuando su cola está llena
+ *
+ * @author : Juan Pablo García Plaza Pérez - Jose Ángel Concha Carrasco
+ * @grupo : Wild True
+ */
+
+public enum POLITICA_REGISTRO {
+    DESCARTAR,                                                          // El evento se descarta y se contabiliza como perdido
+    ESPERAR,                                                            // El hilo que registra espera a que haya hueco en la cola
+}
\ No newline at end of file
@@ -0,0 +1,752 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+
+/**
+ * Capa de persistencia del inventario. Cada operación que modifica el GestorStock se añade a un registro de escritura
+ * anticipada (write-ahead log) que se vuelca a disco por lotes (group commit). En modo síncrono cada operación espera al
+ * terminar a que su registro esté en disco: el primer hilo que espera vuelca los registros pendientes de todos y los demás
+ * aprovechan ese mismo volcado. En modo asíncrono el volcado lo realiza un hilo en segundo plano, por lo que si el proceso
+ * termina de forma abrupta pueden perderse las operaciones de los últimos intervaloMilisegundos; si la JVM termina de forma
+ * ordenada sin haber cerrado la persistencia, los registros pendientes se vuelcan al terminar.
+ *
+ * Las ventas y las reposiciones se registran como variaciones de la cantidad en stock y se reaplican directamente sobre el
+ * producto. Las variaciones conmutan, así que no importa que el orden del registro no coincida con el orden en el que se
+ * aplicaron las ventas concurrentes.
+ *
+ * Las instantáneas se toman bajo demanda o periódicamente. Con las operaciones detenidas solo se capturan los productos,
+ * sus cantidades y su número de comentarios y se pasa a un registro nuevo; la codificación con FormatoBinario y la escritura
+ * se realizan después, mientras el inventario sigue operando, y por bloques de productos, sin límite de tamaño. Al arrancar
+ * se carga la instantánea y se reaplican en orden los registros posteriores a ella
+ *
+ * @author : Juan Pablo García Plaza Pérez - Jose Ángel Concha Carrasco
+ * @grupo : Wild True
+ */
+
+public class PersistenciaStock {
+
+    private static final int MAGICO = 0x44505253;                       // "DPRS"
+    private static final short VERSION = 3;
+    private static final String FICHERO_INSTANTANEA = "stock.snapshot";
+    private static final String PREFIJO_REGISTRO = "stock.";            // Cada registro se llama stock.<generación>.wal
+    private static final String SUFIJO_REGISTRO = ".wal";
+    private static final int CABECERA_FICHERO = 4 + 2 + 8;              // Mágico, versión y generación
+    private static final int CABECERA_REGISTRO = 1 + 4 + 4;             // Tipo, longitud y CRC32 del contenido
+    private static final int CAPACIDAD_INICIAL = 64 * 1024;
+    private static final int PRODUCTOS_BLOQUE = 1024;                   // Productos por bloque de FormatoBinario en la instantánea
+
+    private static final byte AGREGAR = 1;
+    private static final byte ELIMINAR = 2;
+    private static final byte VENDER = 3;
+    private static final byte COMENTAR = 4;
+    private static final byte REPONER = 5;
+
+    private Path directorio;
+    private FileChannel canalRegistro;
+    private long generacion;                                            // Generación del registro actual
+    private ReentrantReadWriteLock cerrojoOperaciones;                  // Operaciones (compartido) frente a instantáneas (exclusivo)
+    private final Object cerrojoVolcado;                                // Serializa los volcados y el cambio de registro
+    private final Object cerrojoInstantaneas;                           // Serializa las instantáneas entre sí
+    private ByteBuffer pendiente;                                       // Registros aún no volcados a disco
+    private ByteBuffer reserva;                                         // Segundo búfer para volcar mientras se siguen registrando
+    private CRC32 crc;
+    private long registrados;                                           // Número de registros añadidos al búfer pendiente
+    private volatile long volcados;                                     // Número de registros ya forzados a disco
+    private boolean esperarVolcado;
+    private BiConsumer<String, Producto> informeErrores;
+    private ScheduledExecutorService escritor;
+    private volatile IOException errorEscritura;
+    private volatile boolean cerrada;                                   // No admite operaciones nuevas una vez cerrada
+    private Thread cierre;                                              // Cierra la persistencia si la JVM termina antes
+
+    /**
+     * Constructor parametrizado de la clase. Prepara el directorio de persistencia y lanza el volcado periódico del
+     * registro. Debe llamarse a recuperar antes de registrar ninguna operación
+     *
+     * @param directorio            Directorio en el que se guardan la instantánea y los registros
+     * @param intervaloMilisegundos Tiempo máximo que un registro puede permanecer sin volcarse a disco
+     * @param esperarVolcado        Indica si las operaciones esperan a que su registro esté en disco antes de terminar
+     * @param informeErrores        Recibe la descripción de los errores de los volcados y las instantáneas en segundo plano
+     * @throws IOException Si no se puede crear el directorio
+     */
+    public PersistenciaStock(File directorio, long intervaloMilisegundos, boolean esperarVolcado,
+                             BiConsumer<String, Producto> informeErrores) throws IOException {
+        this.directorio = directorio.toPath();
+        Files.createDirectories(this.directorio);
+
+        this.cerrojoOperaciones = new ReentrantReadWriteLock();
+        this.cerrojoVolcado = new Object();
+        this.cerrojoInstantaneas = new Object();
+        this.pendiente = ByteBuffer.allocate(CAPACIDAD_INICIAL);
+        this.reserva = ByteBuffer.allocate(CAPACIDAD_INICIAL);
+        this.crc = new CRC32();
+        this.esperarVolcado = esperarVolcado;
+        this.informeErrores = informeErrores;
+
+        // Un hilo para los volcados periódicos y otro para las instantáneas periódicas, que no deben retrasarlos
+        this.escritor = Executors.newScheduledThreadPool(2, tarea -> {
+            Thread hilo = new Thread(tarea, "persistencia-stock");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        this.escritor.scheduleWithFixedDelay(this::volcarPeriodicamente, intervaloMilisegundos, intervaloMilisegundos, TimeUnit.MILLISECONDS);
+
+        // Los hilos de escritura no impiden que la JVM termine, así que al terminar se vuelcan los registros pendientes
+        this.cierre = new Thread(this::cerrarAlTerminar, "cierre-persistencia-stock");
+        Runtime.getRuntime().addShutdownHook(this.cierre);
+    }
+
+    /**
+     * Reconstruye el inventario a partir de la última instantánea y de los registros posteriores, y abre el último registro
+     * para seguir escribiendo en él. Debe llamarse antes de registrar ninguna operación y con el GestorStock sin persistencia
+     * asociada, para que la reconstrucción no vuelva a registrarse
+     *
+     * @param gestor GestorStock vacío sobre el que restaurar los productos
+     * @throws IOException Si no se pueden leer los ficheros
+     */
+    public void recuperar(GestorStock gestor) throws IOException {
+        Path instantanea = this.directorio.resolve(FICHERO_INSTANTANEA);
+        this.generacion = Files.exists(instantanea) ? cargarInstantanea(instantanea, gestor) : 0;
+
+        // Los registros anteriores a la instantánea ya están incluidos en ella. Si se interrumpió una instantánea antes de
+        // sustituir a la anterior, quedan varios registros posteriores y se reaplican todos en orden
+        long valido = 0;
+        for (Map.Entry<Long, Path> registro : registros().entrySet()) {
+            if (registro.getKey() < this.generacion) {
+                Files.delete(registro.getValue());
+                continue;
+            }
+
+            this.generacion = registro.getKey();
+            valido = reaplicarRegistro(registro.getValue(), registro.getKey(), gestor);
+        }
+
+        this.canalRegistro = FileChannel.open(rutaRegistro(this.generacion), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        if (valido < CABECERA_FICHERO) {
+            // Registro vacío o con la cabecera dañada: se reinicia
+            this.canalRegistro.truncate(0);
+            escribirCabeceraRegistro(this.canalRegistro, this.generacion);
+        } else {
+            // Se descarta un posible registro final escrito a medias
+            this.canalRegistro.truncate(valido);
+            this.canalRegistro.position(valido);
+        }
+        this.canalRegistro.force(true);
+    }
+
+    /**
+     * Marca el comienzo de una operación sobre el inventario. Las operaciones pueden ejecutarse en paralelo entre sí,
+     * pero no mientras se captura una instantánea
+     *
+     * @return Booleano indicando si ha comenzado la operación. Devuelve falso si la persistencia ya está cerrada
+     */
+    public boolean comenzarOperacion() {
+        this.cerrojoOperaciones.readLock().lock();
+        if (this.cerrada) {
+            this.cerrojoOperaciones.readLock().unlock();
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Marca el final de una operación iniciada con comenzarOperacion. En modo síncrono espera, ya fuera del cerrojo de
+     * las operaciones, a que el último registro de la operación esté en disco. Un volcado fallido descarta los registros
+     * que contenía, por lo que a partir de ese momento ninguna operación del modo síncrono se considera guardada
+     *
+     * @param registro Número devuelto por el último registro de la operación, o 0 si no ha registrado nada
+     * @return Booleano indicando si la operación está guardada. En modo asíncrono siempre es verdadero, ya que el registro
+     * se vuelca más tarde
+     */
+    public boolean terminarOperacion(long registro) {
+        this.cerrojoOperaciones.readLock().unlock();
+        if (!this.esperarVolcado)
+            return true;
+        if (registro <= this.volcados)
+            return this.errorEscritura == null;
+
+        try {
+            synchronized (this.cerrojoVolcado) {
+                // Otro hilo puede haber volcado ya el registro mientras se esperaba el cerrojo
+                if (registro > this.volcados)
+                    volcar();
+            }
+        } catch (IOException e) {
+            this.errorEscritura = e;
+            this.informeErrores.accept("No se ha podido volcar el registro de operaciones: " + e.getMessage(), null);
+        }
+        return this.errorEscritura == null;
+    }
+
+    /**
+     * Registra la incorporación de un producto al inventario. El producto se codifica antes de insertarlo y la inserción
+     * se realiza con el registro bloqueado, de forma que ninguna operación posterior sobre el producto puede quedar en el
+     * registro por delante de su incorporación
+     *
+     * @param producto  Producto a añadir
+     * @param insercion Inserta el producto en el inventario e indica si se ha insertado
+     * @return Número del registro, o 0 si el producto no se ha insertado y por tanto no se ha registrado
+     */
+    public long registrarAgregar(Producto producto, BooleanSupplier insercion) {
+        ByteBuffer codificado = FormatoBinario.codificar(Collections.singletonList(producto), Collections.<Cliente>emptyList());
+
+        synchronized (this) {
+            if (!insercion.getAsBoolean())
+                return 0;
+
+            int inicio = comenzarRegistro(AGREGAR, codificado.remaining());
+            this.pendiente.put(codificado);
+            return terminarRegistro(inicio);
+        }
+    }
+
+    /**
+     * Registra la eliminación de un producto del inventario
+     *
+     * @param producto Producto eliminado
+     * @return Número del registro
+     */
+    public synchronized long registrarEliminar(Producto producto) {
+        int inicio = comenzarRegistro(ELIMINAR, 4);
+        this.pendiente.putInt(producto.getIdentificador().aDecimal());
+        return terminarRegistro(inicio);
+    }
+
+    /**
+     * Registra la venta de unidades de un producto
+     *
+     * @param producto Producto vendido
+     * @param cantidad Número de unidades vendidas
+     * @return Número del registro
+     */
+    public synchronized long registrarVenta(Producto producto, int cantidad) {
+        int inicio = comenzarRegistro(VENDER, 4 + 4);
+        this.pendiente.putInt(producto.getIdentificador().aDecimal());
+        this.pendiente.putInt(cantidad);
+        return terminarRegistro(inicio);
+    }
+
+    /**
+     * Registra la reposición de unidades de un producto
+     *
+     * @param producto Producto repuesto
+     * @param unidades Número de unidades repuestas
+     * @return Número del registro
+     */
+    public synchronized long registrarReposicion(Producto producto, int unidades) {
+        int inicio = comenzarRegistro(REPONER, 4 + 4);
+        this.pendiente.putInt(producto.getIdentificador().aDecimal());
+        this.pendiente.putInt(unidades);
+        return terminarRegistro(inicio);
+    }
+
+    /**
+     * Registra la publicación de un comentario sobre un producto
+     *
+     * @param producto   Producto comentado
+     * @param comentario Comentario publicado
+     * @return Número del registro
+     */
+    public long registrarComentario(Producto producto, Comentario comentario) {
+        byte[] autor = comentario.getAutor().getBytes(StandardCharsets.UTF_8);
+        byte[] texto = comentario.getTexto().getBytes(StandardCharsets.UTF_8);
+
+        synchronized (this) {
+            int inicio = comenzarRegistro(COMENTAR, 4 + 4 + autor.length + 4 + texto.length + 1);
+            this.pendiente.putInt(producto.getIdentificador().aDecimal());
+            this.pendiente.putInt(autor.length).put(autor);
+            this.pendiente.putInt(texto.length).put(texto);
+            this.pendiente.put((byte) comentario.getPuntuacion());
+            return terminarRegistro(inicio);
+        }
+    }
+
+    /**
+     * Vuelca inmediatamente a disco todos los registros pendientes
+     *
+     * @throws IOException Si falla la escritura, incluida cualquier escritura fallida en segundo plano
+     */
+    public void sincronizar() throws IOException {
+        IOException error = this.errorEscritura;
+        if (error != null)
+            throw error;
+
+        volcar();
+    }
+
+    /**
+     * Escribe una instantánea del inventario y pasa a un registro nuevo. Las operaciones solo se detienen mientras se
+     * capturan las referencias, las cantidades en stock y el número de comentarios de los productos y se cambia de
+     * registro; la instantánea se codifica y se escribe después a partir de lo capturado, sin bloquear el inventario
+     *
+     * @param productos Productos del inventario
+     * @throws IOException Si no se puede escribir la instantánea
+     */
+    public void tomarInstantanea(Iterable<Producto> productos) throws IOException {
+        synchronized (this.cerrojoInstantaneas) {
+            List<Producto> capturados = new ArrayList<>();
+            int[] cantidades;
+            int[] comentarios;
+            long nueva;
+
+            this.cerrojoOperaciones.writeLock().lock();
+            try {
+                if (this.cerrada)
+                    throw new IOException("La persistencia está cerrada");
+                for (Producto producto : productos)
+                    capturados.add(producto);
+
+                cantidades = new int[capturados.size()];
+                comentarios = new int[capturados.size()];
+                for (int i = 0; i < capturados.size(); i++) {
+                    cantidades[i] = capturados.get(i).getCantidad();
+                    comentarios[i] = capturados.get(i).getNumeroComentarios();
+                }
+                nueva = cambiarRegistro();
+            } finally {
+                this.cerrojoOperaciones.writeLock().unlock();
+            }
+
+            Path temporal = this.directorio.resolve(FICHERO_INSTANTANEA + ".tmp");
+            try (FileChannel canal = FileChannel.open(temporal, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer cabecera = ByteBuffer.allocate(CABECERA_FICHERO);
+                cabecera.putInt(MAGICO).putShort(VERSION).putLong(nueva);
+                cabecera.flip();
+                escribirCompleto(canal, cabecera);
+
+                for (int desde = 0; desde < capturados.size(); desde += PRODUCTOS_BLOQUE) {
+                    int hasta = Math.min(capturados.size(), desde + PRODUCTOS_BLOQUE);
+                    escribirBloque(canal, FormatoBinario.codificar(capturados.subList(desde, hasta),
+                            Arrays.copyOfRange(cantidades, desde, hasta), Arrays.copyOfRange(comentarios, desde, hasta)));
+                }
+                canal.force(true);
+            }
+            Files.move(temporal, this.directorio.resolve(FICHERO_INSTANTANEA),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            // Hasta este punto la recuperación usa la instantánea anterior y todos los registros posteriores a ella
+            for (Map.Entry<Long, Path> registro : registros().headMap(nueva).entrySet())
+                Files.deleteIfExists(registro.getValue());
+        }
+    }
+
+    /**
+     * Toma una instantánea del inventario periódicamente en segundo plano, de forma que los registros no crezcan sin
+     * límite. Los errores se comunican al destino de errores y no detienen las instantáneas siguientes
+     *
+     * @param periodoMilisegundos Tiempo entre dos instantáneas consecutivas
+     * @param productos           Proporciona los productos del inventario en el momento de cada instantánea
+     */
+    public void programarInstantaneas(long periodoMilisegundos, Supplier<Iterable<Producto>> productos) {
+        this.escritor.scheduleWithFixedDelay(() -> {
+            try {
+                tomarInstantanea(productos.get());
+            } catch (IOException | RuntimeException e) {
+                this.informeErrores.accept("No se ha podido guardar la instantánea periódica: " + e.getMessage(), null);
+            }
+        }, periodoMilisegundos, periodoMilisegundos, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Detiene el volcado y las instantáneas periódicas, espera a las operaciones en curso, vuelca los registros pendientes
+     * y cierra el registro. Las operaciones que comiencen después no se registran. Cerrar varias veces no tiene efecto
+     *
+     * @throws IOException Si falla el último volcado o falló alguno anterior
+     */
+    public void cerrar() throws IOException {
+        this.cerrojoOperaciones.writeLock().lock();
+        try {
+            if (this.cerrada)
+                return;
+            this.cerrada = true;
+        } finally {
+            this.cerrojoOperaciones.writeLock().unlock();
+        }
+
+        try {
+            Runtime.getRuntime().removeShutdownHook(this.cierre);
+        } catch (IllegalStateException e) {
+            // La JVM ya está terminando: es el propio hilo de cierre el que cierra la persistencia
+        }
+
+        this.escritor.shutdown();
+        try {
+            this.escritor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        try {
+            volcar();
+        } finally {
+            this.canalRegistro.close();
+        }
+
+        IOException error = this.errorEscritura;
+        if (error != null)
+            throw error;
+    }
+
+    /**
+     * Reserva espacio en el búfer pendiente y escribe la cabecera de un registro. Debe llamarse con el cerrojo del objeto adquirido
+     *
+     * @param tipo           Tipo de operación registrada
+     * @param tamanoContenido Número de bytes del contenido del registro
+     * @return Posición del búfer en la que comienza el registro
+     */
+    private int comenzarRegistro(byte tipo, int tamanoContenido) {
+        if (this.pendiente.remaining() < CABECERA_REGISTRO + tamanoContenido) {
+            ByteBuffer ampliado = ByteBuffer.allocate(Math.max(this.pendiente.capacity() * 2, this.pendiente.position() + CABECERA_REGISTRO + tamanoContenido));
+            this.pendiente.flip();
+            ampliado.put(this.pendiente);
+            this.pendiente = ampliado;
+        }
+
+        int inicio = this.pendiente.position();
+        this.pendiente.put(tipo).putInt(0).putInt(0);
+        return inicio;
+    }
+
+    /**
+     * Completa la cabecera de un registro con su longitud y su suma de verificación. Debe llamarse con el cerrojo del objeto adquirido
+     *
+     * @param inicio Posición del búfer en la que comienza el registro
+     * @return Número del registro, creciente, con el que esperar a que esté en disco
+     */
+    private long terminarRegistro(int inicio) {
+        int longitud = this.pendiente.position() - inicio - CABECERA_REGISTRO;
+        this.crc.reset();
+        this.crc.update(this.pendiente.array(), inicio + CABECERA_REGISTRO, longitud);
+
+        this.pendiente.putInt(inicio + 1, longitud);
+        this.pendiente.putInt(inicio + 5, (int) this.crc.getValue());
+        return ++this.registrados;
+    }
+
+    /**
+     * Escribe en disco en una única operación todos los registros acumulados desde el último volcado
+     *
+     * @throws IOException Si falla la escritura
+     */
+    private void volcar() throws IOException {
+        synchronized (this.cerrojoVolcado) {
+            ByteBuffer lote;
+            long hasta;
+            synchronized (this) {
+                if (this.pendiente.position() == 0)
+                    return;
+
+                lote = this.pendiente;
+                hasta = this.registrados;
+                this.pendiente = this.reserva;
+            }
+
+            try {
+                lote.flip();
+                while (lote.hasRemaining())
+                    this.canalRegistro.write(lote);
+                this.canalRegistro.force(false);
+                this.volcados = hasta;
+            } finally {
+                lote.clear();
+                synchronized (this) {
+                    this.reserva = lote;
+                }
+            }
+        }
+    }
+
+    /**
+     * Tarea del hilo de cierre de la JVM. Los errores se comunican al destino de errores, ya que no hay a quién lanzarlos
+     */
+    private void cerrarAlTerminar() {
+        try {
+            cerrar();
+        } catch (IOException e) {
+            this.informeErrores.accept("No se ha podido cerrar la persistencia: " + e.getMessage(), null);
+        }
+    }
+
+    /**
+     * Tarea periódica del hilo escritor. Los errores se guardan para notificarlos en la siguiente sincronización
+     */
+    private void volcarPeriodicamente() {
+        try {
+            volcar();
+        } catch (IOException e) {
+            this.errorEscritura = e;
+            this.informeErrores.accept("No se ha podido volcar el registro de operaciones: " + e.getMessage(), null);
+        }
+    }
+
+    /**
+     * Vuelca el registro actual y continúa en uno nuevo de la generación siguiente. Debe llamarse con el cerrojo
+     * exclusivo de las operaciones adquirido
+     *
+     * @return Generación del registro nuevo, que es la de la instantánea que lo precede
+     * @throws IOException Si no se puede crear el registro nuevo
+     */
+    private long cambiarRegistro() throws IOException {
+        synchronized (this.cerrojoVolcado) {
+            volcar();
+
+            long nueva = this.generacion + 1;
+            FileChannel siguiente = FileChannel.open(rutaRegistro(nueva), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            escribirCabeceraRegistro(siguiente, nueva);
+            siguiente.force(true);
+
+            this.canalRegistro.close();
+            this.canalRegistro = siguiente;
+            this.generacion = nueva;
+            return nueva;
+        }
+    }
+
+    /**
+     * Escribe la cabecera de un registro
+     *
+     * @param canal      Canal del registro
+     * @param generacion Generación del registro
+     * @throws IOException Si falla la escritura
+     */
+    private static void escribirCabeceraRegistro(FileChannel canal, long generacion) throws IOException {
+        ByteBuffer cabecera = ByteBuffer.allocate(CABECERA_FICHERO);
+        cabecera.putInt(MAGICO).putShort(VERSION).putLong(generacion);
+        cabecera.flip();
+
+        canal.position(0);
+        escribirCompleto(canal, cabecera);
+    }
+
+    /**
+     * Calcula la ruta del registro de una generación
+     *
+     * @param generacion Generación del registro
+     * @return Ruta del fichero del registro
+     */
+    private Path rutaRegistro(long generacion) {
+        return this.directorio.resolve(PREFIJO_REGISTRO + generacion + SUFIJO_REGISTRO);
+    }
+
+    /**
+     * Localiza los registros del directorio
+     *
+     * @return Ruta de cada registro ordenada por su generación
+     * @throws IOException Si no se puede recorrer el directorio
+     */
+    private TreeMap<Long, Path> registros() throws IOException {
+        TreeMap<Long, Path> registros = new TreeMap<>();
+        try (DirectoryStream<Path> ficheros = Files.newDirectoryStream(this.directorio, PREFIJO_REGISTRO + "*" + SUFIJO_REGISTRO)) {
+            for (Path fichero : ficheros) {
+                String nombre = fichero.getFileName().toString();
+                try {
+                    registros.put(Long.parseLong(nombre.substring(PREFIJO_REGISTRO.length(), nombre.length() - SUFIJO_REGISTRO.length())), fichero);
+                } catch (NumberFormatException e) {
+                    // No es un registro de la persistencia
+                }
+            }
+        }
+        return registros;
+    }
+
+    /**
+     * Carga los productos de una instantánea en el inventario
+     *
+     * @param instantanea Ruta del fichero de la instantánea
+     * @param gestor      GestorStock en el que cargar los productos
+     * @return Generación de la instantánea
+     * @throws IOException Si el fichero no se puede leer o no es una instantánea válida
+     */
+    private long cargarInstantanea(Path instantanea, GestorStock gestor) throws IOException {
+        try (FileChannel canal = FileChannel.open(instantanea, StandardOpenOption.READ)) {
+            ByteBuffer cabecera = leerCompleto(canal, CABECERA_FICHERO);
+            if (cabecera == null || cabecera.getInt() != MAGICO || cabecera.getShort() != VERSION)
+                throw new IOException("La instantánea " + instantanea + " no es válida");
+            long generacion = cabecera.getLong();
+
+            ByteBuffer longitud;
+            while ((longitud = leerCompleto(canal, 4)) != null) {
+                int tamano = longitud.getInt();
+                ByteBuffer bloque = tamano < 0 || tamano > canal.size() - canal.position() ? null : leerCompleto(canal, tamano);
+                if (bloque == null)
+                    throw new IOException("La instantánea " + instantanea + " está truncada");
+
+                // FormatoBinario devuelve cada producto con sus comentarios, por lo que se indexan al agregarlo
+                try {
+                    FormatoBinario formato = FormatoBinario.abrir(bloque);
+                    for (int i = 0; i < formato.getNumeroProductos(); i++)
+                        gestor.agregarProducto(formato.leerProducto(i));
+                } catch (IllegalArgumentException e) {
+                    throw new IOException("La instantánea " + instantanea + " no es válida", e);
+                }
+            }
+            return generacion;
+        }
+    }
+
+    /**
+     * Reaplica sobre el inventario las operaciones de un registro
+     *
+     * @param registro   Ruta del registro
+     * @param generacion Generación que debe indicar la cabecera del registro
+     * @param gestor     GestorStock sobre el que reaplicar las operaciones
+     * @return Posición del registro hasta la que su contenido es válido. Devuelve 0 si el registro debe descartarse completo
+     * @throws IOException Si el registro no se puede leer
+     */
+    private long reaplicarRegistro(Path registro, long generacion, GestorStock gestor) throws IOException {
+        try (FileChannel canal = FileChannel.open(registro, StandardOpenOption.READ)) {
+            ByteBuffer cabecera = leerCompleto(canal, CABECERA_FICHERO);
+            if (cabecera == null || cabecera.getInt() != MAGICO || cabecera.getShort() != VERSION || cabecera.getLong() != generacion)
+                return 0;
+
+            long valido = canal.position();
+            ByteBuffer encabezado;
+            while ((encabezado = leerCompleto(canal, CABECERA_REGISTRO)) != null) {
+                byte tipo = encabezado.get();
+                int longitud = encabezado.getInt();
+                int suma = encabezado.getInt();
+                if (longitud < 0 || longitud > canal.size() - canal.position())
+                    break;
+
+                ByteBuffer contenido = leerCompleto(canal, longitud);
+                this.crc.reset();
+                this.crc.update(contenido.duplicate());
+                if ((int) this.crc.getValue() != suma)
+                    break;
+
+                reaplicar(tipo, contenido, gestor);
+                valido = canal.position();
+            }
+            return valido;
+        }
+    }
+
+    /**
+     * Reaplica una operación registrada sobre el inventario. Las ventas y reposiciones se aplican como variaciones de la
+     * cantidad en stock, sin volver a comprobar el stock ni lanzar reposiciones, ya que estas también están registradas
+     *
+     * @param tipo      Tipo de operación
+     * @param contenido Contenido del registro
+     * @param gestor    GestorStock sobre el que reaplicar la operación
+     */
+    private void reaplicar(byte tipo, ByteBuffer contenido, GestorStock gestor) {
+        switch (tipo) {
+            case AGREGAR:
+                gestor.agregarProducto(FormatoBinario.abrir(contenido).leerProducto(0));
+                break;
+            case ELIMINAR:
+                Producto eliminado = buscar(gestor, contenido.getInt());
+                if (eliminado != null)
+                    gestor.eliminarProducto(eliminado);
+                break;
+            case VENDER:
+                Producto vendido = buscar(gestor, contenido.getInt());
+                if (vendido != null)
+                    vendido.ajustarCantidad(-contenido.getInt());
+                break;
+            case REPONER:
+                Producto repuesto = buscar(gestor, contenido.getInt());
+                if (repuesto != null)
+                    repuesto.ajustarCantidad(contenido.getInt());
+                break;
+            case COMENTAR:
+                Producto comentado = buscar(gestor, contenido.getInt());
+                if (comentado != null)
+                    gestor.comentarProducto(comentado, new Comentario(leerCadena(contenido), leerCadena(contenido), contenido.get()));
+                break;
+            default:
+                this.informeErrores.accept("Tipo de registro desconocido (" + tipo + ")", null);
+        }
+    }
+
+    /**
+     * Busca un producto del inventario por el entero decimal de su identificador
+     *
+     * @param gestor        GestorStock en el que buscar
+     * @param identificador Entero decimal del identificador
+     * @return Producto buscado. En caso de no encontrarlo devuelve el valor null
+     */
+    private Producto buscar(GestorStock gestor, int identificador) {
+        return gestor.recuperarProducto(new Identificador(identificador).valorDe());
+    }
+
+    /**
+     * Escribe un bloque de productos codificado con FormatoBinario en la instantánea, precedido de su longitud
+     *
+     * @param canal      Canal de la instantánea
+     * @param codificado Bloque codificado
+     * @throws IOException Si falla la escritura
+     */
+    private static void escribirBloque(FileChannel canal, ByteBuffer codificado) throws IOException {
+        ByteBuffer longitud = ByteBuffer.allocate(4);
+        longitud.putInt(codificado.remaining()).flip();
+        escribirCompleto(canal, longitud);
+        escribirCompleto(canal, codificado);
+    }
+
+    /**
+     * Escribe un búfer completo en un canal
+     *
+     * @param canal  Canal en el que escribir
+     * @param origen Búfer a escribir
+     * @throws IOException Si falla la escritura
+     */
+    private static void escribirCompleto(FileChannel canal, ByteBuffer origen) throws IOException {
+        while (origen.hasRemaining())
+            canal.write(origen);
+    }
+
+    /**
+     * Lee un número exacto de bytes de un canal
+     *
+     * @param canal    Canal del que leer
+     * @param longitud Número de bytes a leer
+     * @return Búfer con los bytes leídos, listo para leerse. Devuelve null si el canal termina antes
+     * @throws IOException Si falla la lectura
+     */
+    private static ByteBuffer leerCompleto(FileChannel canal, int longitud) throws IOException {
+        ByteBuffer destino = ByteBuffer.allocate(longitud);
+        while (destino.hasRemaining())
+            if (canal.read(destino) < 0)
+                return null;
+
+        destino.flip();
+        return destino;
+    }
+
+    /**
+     * Lee una cadena escrita como su longitud en bytes seguida de su codificación UTF-8
+     *
+     * @param origen Búfer del que leer
+     * @return Cadena leída
+     */
+    private static String leerCadena(ByteBuffer origen) {
+        byte[] bytes = new byte[origen.getInt()];
+        origen.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,209 @@
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+
+/**
+ * Planificador asíncrono de reposiciones de stock. Los productos que caen por debajo de su stock mínimo se encolan en lugar
+ * de reponerse en el hilo del comprador, y un hilo en segundo plano los repone por lotes en cada ciclo. La cola se ordena por
+ * la prioridad de reabastecimiento del producto y, a igual prioridad, por el déficit de stock en el momento de la solicitud
+ *
+ * @author : Juan Pablo García Plaza Pérez - Jose Ángel Concha Carrasco
+ * @grupo : Wild True
+ */
+
+public class PlanificadorReposicion {
+
+    private PriorityBlockingQueue<Solicitud> cola;
+    private Set<Producto> pendientes;                                   // Productos con una solicitud en la cola
+    private ScheduledExecutorService ejecutor;
+    private int tamanoLote;
+    private LongAdder reposicionesRealizadas;
+    private LongAdder tiempoTotalReposicion;                            // Nanosegundos acumulados entre solicitud y reposición
+    private AtomicLong tiempoMaximoReposicion;
+    private LongAdder fallosReposicion;
+    private BiConsumer<String, Producto> informeErrores;                // Destino de los errores de las reposiciones
+    private Predicate<Producto> reposicion;                             // Realiza la reposición de un producto
+
+    /**
+     * Solicitud de reposición de un producto
+     */
+    private static class Solicitud {
+        private final Producto producto;
+        private final int prioridad;
+        private final int deficit;
+        private final long instante;
+
+        private Solicitud(Producto producto) {
+            this.producto = producto;
+            this.prioridad = producto.getPrioridad().ordinal();
+            this.deficit = producto.getStockMinimo() - producto.getCantidad();
+            this.instante = System.nanoTime();
+        }
+    }
+
+    /**
+     * Constructor parametrizado de la clase. Lanza el hilo que procesa las solicitudes periódicamente
+     *
+     * @param periodoMilisegundos Tiempo entre dos ciclos de reposición consecutivos
+     * @param tamanoLote          Número máximo de productos repuestos en cada ciclo
+     */
+    public PlanificadorReposicion(long periodoMilisegundos, int tamanoLote) {
+        this(periodoMilisegundos, tamanoLote, (error, producto) -> System.out.println("ERROR: " + error + " (" + producto.getNombre() + ")"));
+    }
+
+    /**
+     * Constructor parametrizado de la clase. Lanza el hilo que procesa las solicitudes periódicamente e informa de los
+     * errores de las reposiciones al destino indicado
+     *
+     * @param periodoMilisegundos Tiempo entre dos ciclos de reposición consecutivos
+     * @param tamanoLote          Número máximo de productos repuestos en cada ciclo
+     * @param informeErrores      Recibe la descripción de cada error y el producto cuya reposición lo produjo
+     */
+    public PlanificadorReposicion(long periodoMilisegundos, int tamanoLote, BiConsumer<String, Producto> informeErrores) {
+        this(periodoMilisegundos, tamanoLote, informeErrores, Producto::reponerStock);
+    }
+
+    /**
+     * Constructor parametrizado de la clase. Lanza el hilo que procesa las solicitudes periódicamente, informa de los
+     * errores al destino indicado y repone cada producto mediante la función indicada, lo que permite al inventario
+     * realizar la reposición dentro de una de sus operaciones
+     *
+     * @param periodoMilisegundos Tiempo entre dos ciclos de reposición consecutivos
+     * @param tamanoLote          Número máximo de productos repuestos en cada ciclo
+     * @param informeErrores      Recibe la descripción de cada error y el producto cuya reposición lo produjo
+     * @param reposicion          Repone un producto e indica si se ha repuesto
+     */
+    public PlanificadorReposicion(long periodoMilisegundos, int tamanoLote, BiConsumer<String, Producto> informeErrores,
+                                  Predicate<Producto> reposicion) {
+        Comparator<Solicitud> orden = Comparator.<Solicitud>comparingInt(solicitud -> solicitud.prioridad).reversed()
+                .thenComparing(Comparator.<Solicitud>comparingInt(solicitud -> solicitud.deficit).reversed())
+                .thenComparingLong(solicitud -> solicitud.instante);
+
+        this.cola = new PriorityBlockingQueue<>(64, orden);
+        this.pendientes = ConcurrentHashMap.newKeySet();
+        this.tamanoLote = tamanoLote;
+        this.reposicionesRealizadas = new LongAdder();
+        this.tiempoTotalReposicion = new LongAdder();
+        this.tiempoMaximoReposicion = new AtomicLong();
+        this.fallosReposicion = new LongAdder();
+        this.informeErrores = informeErrores;
+        this.reposicion = reposicion;
+
+        this.ejecutor = Executors.newSingleThreadScheduledExecutor(tarea -> {
+            Thread hilo = new Thread(tarea, "planificador-reposicion");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        this.ejecutor.scheduleWithFixedDelay(this::procesarLote, periodoMilisegundos, periodoMilisegundos, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Solicita la reposición de un producto. Si el producto ya tiene una solicitud pendiente no se vuelve a encolar
+     *
+     * @param producto Producto a reponer
+     * @return Booleano indicando si se ha encolado una nueva solicitud
+     */
+    public boolean solicitar(Producto producto) {
+        if (!this.pendientes.add(producto))
+            return false;
+
+        this.cola.add(new Solicitud(producto));
+        return true;
+    }
+
+    /**
+     * Consulta el número de solicitudes pendientes de procesar
+     *
+     * @return Profundidad de la cola de reposiciones
+     */
+    public int getProfundidadCola() {
+        return this.cola.size();
+    }
+
+    /**
+     * Consulta el número de reposiciones realizadas desde que se creó el planificador
+     *
+     * @return Número de reposiciones realizadas
+     */
+    public long getReposicionesRealizadas() {
+        return this.reposicionesRealizadas.sum();
+    }
+
+    /**
+     * Consulta el tiempo medio transcurrido entre la solicitud de una reposición y su realización
+     *
+     * @return Tiempo medio en milisegundos. Devuelve 0 si aún no se ha realizado ninguna reposición
+     */
+    public double getTiempoMedioReposicion() {
+        long realizadas = this.reposicionesRealizadas.sum();
+        return realizadas == 0 ? 0 : this.tiempoTotalReposicion.sum() / 1e6 / realizadas;
+    }
+
+    /**
+     * Consulta el mayor tiempo transcurrido entre la solicitud de una reposición y su realización
+     *
+     * @return Tiempo máximo en milisegundos
+     */
+    public double getTiempoMaximoReposicion() {
+        return this.tiempoMaximoReposicion.get() / 1e6;
+    }
+
+    /**
+     * Consulta el número de reposiciones que han terminado con una excepción
+     *
+     * @return Número de reposiciones fallidas
+     */
+    public long getFallosReposicion() {
+        return this.fallosReposicion.sum();
+    }
+
+    /**
+     * Detiene el planificador. Las solicitudes que queden en la cola no se procesan
+     */
+    public void detener() {
+        this.ejecutor.shutdownNow();
+    }
+
+    /**
+     * Procesa un lote de solicitudes, empezando por las de mayor prioridad. Una excepción en la reposición de un producto
+     * se informa y no interrumpe el lote: si se propagara, el ejecutor cancelaría la tarea periódica sin avisar y no se
+     * volvería a reponer ningún producto. Las ventas solo solicitan la reposición al cruzar el umbral del stock mínimo, así
+     * que el producto fallido que siga por debajo se vuelve a solicitar para el siguiente ciclo
+     */
+    private void procesarLote() {
+        List<Producto> fallidos = new ArrayList<>();
+        for (int i = 0; i < this.tamanoLote; i++) {
+            Solicitud solicitud = this.cola.poll();
+            if (solicitud == null)
+                break;
+
+            this.pendientes.remove(solicitud.producto);
+            try {
+                if (this.reposicion.test(solicitud.producto)) {
+                    long tiempo = System.nanoTime() - solicitud.instante;
+                    this.reposicionesRealizadas.increment();
+                    this.tiempoTotalReposicion.add(tiempo);
+                    this.tiempoMaximoReposicion.accumulateAndGet(tiempo, Math::max);
+                }
+            } catch (RuntimeException e) {
+                this.fallosReposicion.increment();
+                this.informeErrores.accept("No se ha podido reponer el producto: " + e, solicitud.producto);
+                fallidos.add(solicitud.producto);
+            }
+        }
+
+        for (Producto producto : fallidos)
+            if (producto.getCantidad() < producto.getStockMinimo())
+                solicitar(producto);
+    }
+}
\ No newline at end of file
@@ -1,6 +1,14 @@
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collections;
+import java.util.GregorianCalendar;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.ObjIntConsumer;
 
 /**
  * TODO DESCRIPCION
@@ -11,15 +19,133 @@ import java.util.List;
 
 public class Producto {
 
+    private static final int STOCK_MINIMO_POR_DEFECTO = 10;             // Stock mínimo asignado a los productos nuevos
+    private static final int PUNTUACION_MINIMA = 1;
+    private static final int PUNTUACION_MAXIMA = 5;
+    private static final AtomicReferenceFieldUpdater<Producto, Renderizado> RENDERIZADO =
+            AtomicReferenceFieldUpdater.newUpdater(Producto.class, Renderizado.class, "renderizado");
+    private static final AtomicLongFieldUpdater<Producto> CONSERVADA =
+            AtomicLongFieldUpdater.newUpdater(Producto.class, "conservada");
+    private static final long MASCARA_CANTIDAD = 0xFFFFFFFFL;
+    private static final int BITS_PUNTUACION = 3;
+    private static final long MASCARA_PUNTUACION = (1 << BITS_PUNTUACION) - 1;
+    private static final long[] SIN_AUTORES = new long[0];
+
     private String nombre;
     private Identificador identificador;
-    private int cantidad;
+    private volatile AtomicInteger cantidad;                            // Modificado solo mediante CAS. Es null si vive en la columna
     private int stockMinimo;
     private PRIORIDAD_PRODUCTO prioridad;
     private FABRICANTES fabricante;
-    private Calendar fechaLanzamiento;
+    private Calendar fechaLanzamiento;                                  // Es null si vive en la columna
     private boolean esReacondicionado;
-    private List<Comentario> comentarios;
+    private volatile Almacen almacen;                                   // Comentarios en el heap o referencias a la arena
+    private long[] autores;                                             // Hash de cada autor (32 bits altos) y posición de su comentario más uno (32 bits bajos)
+    private int[] histograma;                                           // Número de comentarios por cada puntuación
+    private volatile PlanificadorReposicion planificador;               // Si es null la reposición se realiza en el hilo del comprador
+    private volatile EstimadorReposicion estimador;                     // Si es null se repone según la prioridad del producto
+    private volatile ObservadorStock observador;                        // Recibe los cruces del umbral de stock mínimo
+    private volatile ObjIntConsumer<Producto> registroReposiciones;     // Recibe las unidades de cada reposición realizada
+    private volatile boolean bajoMinimo;                                // Último estado respecto al umbral notificado al observador
+    private volatile long agregados;                                    // Número de comentarios (32 bits altos) y suma de puntuaciones (32 bits bajos)
+    private volatile Renderizado renderizado;                           // Detalles formateados guardados en CacheDetalles, o null
+    private volatile ControlEpocas epocas;                              // Control de las instantáneas del inventario, o null
+    private volatile long conservada;                                   // Época (32 bits altos) y cantidad previa a su primera escritura (32 bits bajos)
+    private InventarioColumnar columnas;                                // Inventario columnar al que está vinculado, o null
+    private int fila;                                                   // Fila del producto en el inventario columnar
+
+    /**
+     * Detalles formateados del producto, sin la cantidad en stock. La cantidad se intercala en cada lectura, de modo que
+     * las ventas y las reposiciones no invalidan el formateo. Solo se invalida al publicar un comentario o al cambiar los
+     * comentarios de almacenamiento. Si los comentarios están en la arena no se guardan formateados, ya que retenerlos en
+     * el heap anularía el ahorro de la arena; se formatean en cada lectura
+     */
+    private static class Renderizado {
+        private final String cabecera;                                  // Nombre e identificador, hasta la cantidad
+        private final String cola;                                      // Resto de detalles básicos
+        private final String colaCompleta;                              // Resto de detalles completos
+        private final String comentarios;                               // Es null si los comentarios están en la arena
+        private final int numeroComentarios;                            // Comentarios incluidos. Sirve como sello de versión
+        private volatile Vista basica;                                  // Últimos detalles básicos devueltos como cadena
+        private volatile Vista completa;                                // Últimos detalles completos devueltos como cadena
+        private volatile boolean usado;                                 // Leído desde la última pasada del reloj de CacheDetalles
+
+        private Renderizado(String cabecera, String cola, String colaCompleta, String comentarios, int numeroComentarios) {
+            this.cabecera = cabecera;
+            this.cola = cola;
+            this.colaCompleta = colaCompleta;
+            this.comentarios = comentarios;
+            this.numeroComentarios = numeroComentarios;
+        }
+
+        /**
+         * Estima los caracteres que ocupa el formateo, incluidas las dos cadenas completas que puede llegar a guardar
+         */
+        private long tamano() {
+            int comentarios = this.comentarios == null ? 0 : this.comentarios.length();
+            return 3L * (this.cabecera.length() + comentarios) + 2L * (this.cola.length() + this.colaCompleta.length());
+        }
+    }
+
+    /**
+     * Cadena de detalles ya compuesta para una cantidad en stock concreta
+     */
+    private static class Vista {
+        private final int cantidad;
+        private final String texto;
+
+        private Vista(int cantidad, String texto) {
+            this.cantidad = cantidad;
+            this.texto = texto;
+        }
+    }
+
+    /**
+     * Almacenamiento de los comentarios publicados. Los huecos se rellenan en orden antes de incrementar el número de
+     * comentarios, y al ampliarse o cambiar de arena se sustituye por uno nuevo ya completo, de forma que un lector que lee
+     * primero el número de comentarios y después el almacén siempre encuentra esos comentarios, sin usar cerrojos
+     */
+    private static class Almacen {
+        private static final Almacen VACIO = new Almacen(null, new Comentario[0], null);
+
+        private final ArenaComentarios arena;                           // Arena de los comentarios, o null si están en el heap
+        private final Comentario[] objetos;                             // Comentarios en el heap, o null si están en la arena
+        private final long[] referencias;                               // Referencia en la arena (bits altos) y puntuación (3 bits bajos)
+
+        private Almacen(ArenaComentarios arena, Comentario[] objetos, long[] referencias) {
+            this.arena = arena;
+            this.objetos = objetos;
+            this.referencias = referencias;
+        }
+
+        /**
+         * Capacidad del almacén en número de comentarios
+         */
+        private int capacidad() {
+            return this.arena == null ? this.objetos.length : this.referencias.length;
+        }
+
+        /**
+         * Genera un almacén igual con el doble de capacidad
+         */
+        private Almacen ampliar() {
+            int capacidad = Math.max(4, 2 * capacidad());
+            if (this.arena == null)
+                return new Almacen(null, Arrays.copyOf(this.objetos, capacidad), null);
+            return new Almacen(this.arena, null, Arrays.copyOf(this.referencias, capacidad));
+        }
+
+        /**
+         * Reconstruye el comentario de una posición ya publicada
+         */
+        private Comentario leer(int posicion) {
+            if (this.arena == null)
+                return this.objetos[posicion];
+
+            long referencia = this.referencias[posicion];
+            return this.arena.leer(referencia >>> BITS_PUNTUACION, (int) (referencia & MASCARA_PUNTUACION));
+        }
+    }
 
     /**
      * Constructor parametrizado de la clase. Genera un producto a partir de su nombre, fabricante, prioridad de reabastecimiento,
@@ -33,7 +159,62 @@ public class Producto {
      * @param esReacondicionado Estado actual del producto. Representa si es de segunda mano o nuevo
      */
     public Producto(String nombre, FABRICANTES fabricante, PRIORIDAD_PRODUCTO prioridad, Calendar fechaLanzamiento, boolean esReacondicionado) {
-        // TODO - implement Producto.Producto
+        this(GeneradorIdentificador.recuperarInstancia().generarIdentificador(), nombre, fabricante, prioridad, fechaLanzamiento, esReacondicionado);
+    }
+
+    /**
+     * Constructor parametrizado de la clase. Genera un producto nuevo con un identificador ya reservado, por ejemplo de un
+     * bloque obtenido con GeneradorIdentificador.reservarBloque en una importación masiva
+     *
+     * @param identificador     Identificador reservado para el producto
+     * @param nombre            Nombre del producto
+     * @param fabricante        Valor del tipo enumerado de FABRICANTES
+     * @param prioridad         Valor del tipo enumerado PRIORIDAD_PRODUCTO
+     * @param fechaLanzamiento  Fecha de lanzamiento reprensentada por el tipo Calendar asociado
+     * @param esReacondicionado Estado actual del producto
+     */
+    public Producto(Identificador identificador, String nombre, FABRICANTES fabricante, PRIORIDAD_PRODUCTO prioridad,
+                    Calendar fechaLanzamiento, boolean esReacondicionado) {
+        this.nombre = nombre;
+        this.identificador = identificador;
+        this.stockMinimo = STOCK_MINIMO_POR_DEFECTO;
+        this.prioridad = prioridad;
+        this.fabricante = fabricante;
+        this.fechaLanzamiento = fechaLanzamiento;
+        this.esReacondicionado = esReacondicionado;
+        this.almacen = Almacen.VACIO;
+        this.autores = SIN_AUTORES;
+        this.histograma = new int[PUNTUACION_MAXIMA];
+        this.cantidad = new AtomicInteger(unidadesReposicion());
+        this.bajoMinimo = false;
+    }
+
+    /**
+     * Constructor parametrizado de la clase. Restaura un producto previamente persistido conservando su identificador y su stock
+     *
+     * @param identificador     Identificador que se asignó al producto cuando se creó
+     * @param nombre            Nombre del producto
+     * @param fabricante        Valor del tipo enumerado de FABRICANTES
+     * @param prioridad         Valor del tipo enumerado PRIORIDAD_PRODUCTO
+     * @param fechaLanzamiento  Fecha de lanzamiento reprensentada por el tipo Calendar asociado
+     * @param esReacondicionado Estado actual del producto
+     * @param cantidad          Cantidad en stock del producto
+     * @param stockMinimo       Cantidad en stock mínima del producto
+     */
+    public Producto(Identificador identificador, String nombre, FABRICANTES fabricante, PRIORIDAD_PRODUCTO prioridad,
+                    Calendar fechaLanzamiento, boolean esReacondicionado, int cantidad, int stockMinimo) {
+        this.nombre = nombre;
+        this.identificador = identificador;
+        this.stockMinimo = stockMinimo;
+        this.prioridad = prioridad;
+        this.fabricante = fabricante;
+        this.fechaLanzamiento = fechaLanzamiento;
+        this.esReacondicionado = esReacondicionado;
+        this.almacen = Almacen.VACIO;
+        this.autores = SIN_AUTORES;
+        this.histograma = new int[PUNTUACION_MAXIMA];
+        this.cantidad = new AtomicInteger(cantidad);
+        this.bajoMinimo = cantidad < stockMinimo;
     }
 
     /**
@@ -60,7 +241,7 @@ public class Producto {
      * @return Cantidad actual en stock del producto
      */
     public int getCantidad() {
-        return this.cantidad;
+        return leerCantidad();
     }
 
     /**
@@ -78,7 +259,7 @@ public class Producto {
      * @return Factor de prioridad con el que debe restablecerse el stock del producto
      */
     public PRIORIDAD_PRODUCTO getPrioridad() {
-        // TODO - implement Producto.getPrioridad
+        return this.prioridad;
     }
 
     /**
@@ -86,8 +267,8 @@ public class Producto {
      *
      * @return Fabricante del producto
      */
-    public String getFrabricante() {
-        // TODO - implement Producto.getFrabricante
+    public FABRICANTES getFabricante() {
+        return this.fabricante;
     }
 
     /**
@@ -96,9 +277,41 @@ public class Producto {
      * @return Objeto Calendar que representa la fecha de lanzamiento del producto
      */
     public Calendar getFechaLanzamiento() {
-        return this.fechaLanzamiento;
+        Calendar fecha = this.fechaLanzamiento;
+        return fecha != null ? fecha : fechaDesdeDia(this.columnas.getDiaLanzamiento(this.fila));
     }
--
+
+    /**
+     * Consulta la fecha de lanzamiento como número de días transcurridos desde el 1 de enero de 1970
+     *
+     * @return Número de días desde la época hasta la fecha de lanzamiento
+     */
+    public long getDiaLanzamiento() {
+        Calendar fecha = this.fechaLanzamiento;
+        return fecha != null ? diaDesdeFecha(fecha) : this.columnas.getDiaLanzamiento(this.fila);
+    }
+
+    /**
+     * Convierte una fecha en el número de días transcurridos desde el 1 de enero de 1970
+     *
+     * @param fecha Fecha a convertir
+     * @return Número de días desde la época
+     */
+    public static long diaDesdeFecha(Calendar fecha) {
+        return LocalDate.of(fecha.get(Calendar.YEAR), fecha.get(Calendar.MONTH) + 1, fecha.get(Calendar.DAY_OF_MONTH)).toEpochDay();
+    }
+
+    /**
+     * Convierte un número de días transcurridos desde el 1 de enero de 1970 en su fecha correspondiente
+     *
+     * @param dia Número de días desde la época
+     * @return Objeto Calendar que representa la fecha
+     */
+    public static Calendar fechaDesdeDia(long dia) {
+        LocalDate fecha = LocalDate.ofEpochDay(dia);
+        return new GregorianCalendar(fecha.getYear(), fecha.getMonthValue() - 1, fecha.getDayOfMonth());
+    }
+
     /**
      * Método accesor del atributo 'esReacondicionado'
      *
@@ -108,6 +321,108 @@ public class Producto {
         return this.esReacondicionado;
     }
 
+    /**
+     * Consulta los comentarios publicados sobre el producto. No usa cerrojos
+     *
+     * @return Lista no modificable con los comentarios del producto
+     */
+    public List<Comentario> getComentarios() {
+        return getComentarios(0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Consulta una página de los comentarios publicados sobre el producto, en orden de publicación. Si los comentarios se
+     * guardan en la arena del inventario, solo se reconstruyen los de la página. No usa cerrojos, por lo que no espera a
+     * los comentarios que se estén publicando a la vez
+     *
+     * @param desde  Posición del primer comentario de la página
+     * @param limite Número máximo de comentarios de la página
+     * @return Lista no modificable con los comentarios de la página. Está vacía si no hay comentarios en esas posiciones
+     */
+    public List<Comentario> getComentarios(int desde, int limite) {
+        // El número de comentarios se lee antes que el almacén: cualquier almacén posterior ya contiene esas posiciones
+        int total = getNumeroComentarios();
+        Almacen actual = this.almacen;
+        if (desde < 0 || limite <= 0 || desde >= total)
+            return Collections.emptyList();
+
+        int hasta = (int) Math.min(total, (long) desde + limite);
+        List<Comentario> pagina = new ArrayList<>(hasta - desde);
+        for (int i = desde; i < hasta; i++)
+            pagina.add(actual.leer(i));
+        return Collections.unmodifiableList(pagina);
+    }
+
+    /**
+     * Asigna la arena en la que se guardan los comentarios del producto. Los comentarios ya publicados se trasladan a la
+     * nueva arena, o de vuelta al heap si se retira, y sus registros en la arena anterior se dan por liberados
+     *
+     * @param arena Arena de comentarios del inventario. Si es null los comentarios se guardan en el heap
+     */
+    public synchronized void asignarArena(ArenaComentarios arena) {
+        Almacen anterior = this.almacen;
+        if (arena == anterior.arena)
+            return;
+
+        int total = getNumeroComentarios();
+        Almacen nuevo;
+        if (arena == null) {
+            nuevo = new Almacen(null, new Comentario[Math.max(4, total)], null);
+            for (int i = 0; i < total; i++)
+                nuevo.objetos[i] = anterior.leer(i);
+        } else {
+            nuevo = new Almacen(arena, null, new long[Math.max(4, total)]);
+            for (int i = 0; i < total; i++)
+                nuevo.referencias[i] = referenciar(arena, anterior.leer(i));
+        }
+        this.almacen = nuevo;
+
+        if (anterior.arena != null)
+            for (int i = 0; i < total; i++)
+                anterior.arena.liberar(anterior.referencias[i] >>> BITS_PUNTUACION);
+    }
+
+    /**
+     * Consulta el número de comentarios publicados sobre el producto sin recorrer la lista de comentarios
+     *
+     * @return Número de comentarios del producto
+     */
+    public int getNumeroComentarios() {
+        return (int) (this.agregados >>> 32);
+    }
+
+    /**
+     * Consulta la puntuación media de los comentarios del producto sin recorrer la lista de comentarios
+     *
+     * @return Puntuación media entre 1 y 5. Devuelve 0 si el producto no tiene comentarios
+     */
+    public double getPuntuacionMedia() {
+        // Número y suma se leen de una sola variable, por lo que siempre son coherentes entre sí
+        long actual = this.agregados;
+        int numero = (int) (actual >>> 32);
+
+        return numero == 0 ? 0 : (double) (int) actual / numero;
+    }
+
+    /**
+     * Consulta en una sola lectura el número de comentarios y la suma de sus puntuaciones, coherentes entre sí. La usa
+     * GestorStock para fijar la valoración de cada producto antes de compararla
+     *
+     * @return Número de comentarios (32 bits altos) y suma de puntuaciones (32 bits bajos)
+     */
+    long getAgregados() {
+        return this.agregados;
+    }
+
+    /**
+     * Consulta cuántos comentarios ha recibido el producto con cada puntuación
+     *
+     * @return Vector cuya posición i contiene el número de comentarios con puntuación i + 1
+     */
+    public synchronized int[] getHistogramaPuntuaciones() {
+        return this.histograma.clone();
+    }
+
     /**
      * Decrementa la cantidad en stock actual por el número de unidades del pedido
      *
@@ -115,7 +430,241 @@ public class Producto {
      * @return Booleano indicando si se ha permitido o no el decremento del stock del producto
      */
     public boolean pedir(int cantidad) {
-        // TODO - implement Producto.pedir
+        ControlEpocas control = this.epocas;
+        long epoca = control != null ? control.entrar() : 0;
+        try {
+            return pedir(cantidad, epoca);
+        } finally {
+            if (control != null)
+                control.salir(epoca);
+        }
+    }
+
+    /**
+     * Decrementa la cantidad en stock dentro de una operación ya registrada en el control de épocas
+     *
+     * @param cantidad Número en el que decrementar el stock actual del producto
+     * @param epoca    Época de la operación, o 0 si el producto no tiene control de épocas
+     * @return Booleano indicando si se ha permitido o no el decremento del stock del producto
+     */
+    boolean pedir(int cantidad, long epoca) {
+        int anterior = reservar(cantidad, epoca);
+        if (anterior < 0)
+            return false;
+
+        confirmarReserva(anterior, cantidad, epoca);
+        return true;
+    }
+
+    /**
+     * Retira atómicamente unidades del stock sin lanzar la reposición. La reserva debe confirmarse o cancelarse posteriormente
+     *
+     * @param cantidad Número de unidades a reservar. Solo se admiten valores positivos mayores que 0
+     * @return Cantidad en stock previa a la reserva. Devuelve -1 si no hay suficiente stock o la cantidad no es válida
+     */
+    public int reservar(int cantidad) {
+        ControlEpocas control = this.epocas;
+        long epoca = control != null ? control.entrar() : 0;
+        try {
+            return reservar(cantidad, epoca);
+        } finally {
+            if (control != null)
+                control.salir(epoca);
+        }
+    }
+
+    /**
+     * Retira unidades del stock dentro de una operación ya registrada en el control de épocas
+     *
+     * @param cantidad Número de unidades a reservar
+     * @param epoca    Época de la operación, o 0 si el producto no tiene control de épocas
+     * @return Cantidad en stock previa a la reserva. Devuelve -1 si no hay suficiente stock o la cantidad no es válida
+     */
+    int reservar(int cantidad, long epoca) {
+        if (cantidad <= 0)
+            return -1;
+
+        conservar(epoca);
+        int anterior;
+        do {
+            anterior = leerCantidad();
+            if (anterior < cantidad)
+                return -1;
+        } while (!cambiarCantidad(anterior, anterior - cantidad));
+
+        return anterior;
+    }
+
+    /**
+     * Confirma una reserva previa. Solo la reserva cuya operación CAS llevó la cantidad en stock de estar en el stock mínimo
+     * o por encima a quedar por debajo lanza la reposición del producto; las ventas posteriores por debajo del umbral no
+     * vuelven a lanzarla
+     *
+     * @param anterior Cantidad en stock previa a la reserva, tal y como la devolvió el método reservar
+     * @param cantidad Número de unidades reservadas
+     */
+    public void confirmarReserva(int anterior, int cantidad) {
+        ControlEpocas control = this.epocas;
+        long epoca = control != null ? control.entrar() : 0;
+        try {
+            confirmarReserva(anterior, cantidad, epoca);
+        } finally {
+            if (control != null)
+                control.salir(epoca);
+        }
+    }
+
+    /**
+     * Confirma una reserva previa dentro de una operación ya registrada en el control de épocas. La reposición que se
+     * realice en el hilo del comprador forma parte de la misma operación
+     *
+     * @param anterior Cantidad en stock previa a la reserva
+     * @param cantidad Número de unidades reservadas
+     * @param epoca    Época de la operación, o 0 si el producto no tiene control de épocas
+     */
+    void confirmarReserva(int anterior, int cantidad, long epoca) {
+        if (cruzaUmbral(anterior, cantidad))
+            lanzarReposicion(epoca);
+        sincronizarUmbral();
+    }
+
+    /**
+     * Comprueba si una reserva es la que ha llevado la cantidad en stock por debajo del stock mínimo. Cada operación CAS
+     * parte de una cantidad distinta, por lo que entre reservas concurrentes solo una cruza el umbral
+     *
+     * @param anterior Cantidad en stock previa a la reserva
+     * @param cantidad Número de unidades reservadas
+     * @return Booleano indicando si la reserva cruza el umbral del stock mínimo
+     */
+    private boolean cruzaUmbral(int anterior, int cantidad) {
+        return anterior >= this.stockMinimo && anterior - cantidad < this.stockMinimo;
+    }
+
+    /**
+     * Lanza la reposición del producto si su cantidad en stock sigue por debajo del stock mínimo. Con planificador la
+     * solicitud no se duplica si ya hay una pendiente; sin él, reponerStock vuelve a comprobar la cantidad en su operación
+     * CAS, de forma que una reposición concurrente no se suma a esta
+     *
+     * @param epoca Época de la operación, o 0 si el producto no tiene control de épocas
+     */
+    private void lanzarReposicion(long epoca) {
+        if (leerCantidad() >= this.stockMinimo)
+            return;
+
+        PlanificadorReposicion actual = this.planificador;
+        if (actual != null)
+            actual.solicitar(this);
+        else
+            reponerStock(epoca);
+    }
+
+    /**
+     * Asigna el planificador que se encarga de reponer el producto en segundo plano
+     *
+     * @param planificador Planificador de reposiciones. Si es null la reposición vuelve a realizarse en el hilo del comprador
+     */
+    public void asignarPlanificador(PlanificadorReposicion planificador) {
+        this.planificador = planificador;
+    }
+
+    /**
+     * Asigna la estrategia que decide cuántas unidades se reponen
+     *
+     * @param estimador Estrategia de reposición. Si es null se vuelve a reponer según la prioridad de reabastecimiento
+     */
+    public void asignarEstimador(EstimadorReposicion estimador) {
+        this.estimador = estimador;
+    }
+
+    /**
+     * Cancela una reserva previa devolviendo las unidades al stock. Si la reserva era la que cruzó el umbral del stock
+     * mínimo y, aun devolviendo sus unidades, otras reservas mantienen la cantidad por debajo, la cancelación lanza la
+     * reposición en su lugar, ya que ninguna otra reserva volverá a cruzar el umbral
+     *
+     * @param anterior Cantidad en stock previa a la reserva, tal y como la devolvió el método reservar
+     * @param cantidad Número de unidades reservadas
+     */
+    public void cancelarReserva(int anterior, int cantidad) {
+        ControlEpocas control = this.epocas;
+        long epoca = control != null ? control.entrar() : 0;
+        try {
+            cancelarReserva(anterior, cantidad, epoca);
+        } finally {
+            if (control != null)
+                control.salir(epoca);
+        }
+    }
+
+    /**
+     * Cancela una reserva previa dentro de una operación ya registrada en el control de épocas
+     *
+     * @param anterior Cantidad en stock previa a la reserva
+     * @param cantidad Número de unidades reservadas
+     * @param epoca    Época de la operación, o 0 si el producto no tiene control de épocas
+     */
+    void cancelarReserva(int anterior, int cantidad, long epoca) {
+        conservar(epoca);
+        int actual = sumarCantidad(cantidad);
+        if (cruzaUmbral(anterior, cantidad) && actual < this.stockMinimo)
+            lanzarReposicion(epoca);
+        sincronizarUmbral();
+    }
+
+    /**
+     * Asigna el control de épocas con el que el inventario toma instantáneas consistentes de su stock
+     *
+     * @param epocas Control de épocas del inventario. Si es null las escrituras dejan de conservar la cantidad previa
+     */
+    public void asignarEpocas(ControlEpocas epocas) {
+        this.epocas = epocas;
+    }
+
+    /**
+     * Devuelve la cantidad en stock que tenía el producto al terminar la época de una instantánea abierta. Se lee primero
+     * la cantidad actual y después la conservada: si la conservada aún no corresponde a la época siguiente, ninguna
+     * escritura posterior a la instantánea había modificado todavía la cantidad leída
+     *
+     * @param instantanea Época de la instantánea, tal y como la devolvió ControlEpocas.abrirInstantanea
+     * @return Cantidad en stock en el instante de la instantánea
+     */
+    public int getCantidad(long instantanea) {
+        int actual = leerCantidad();
+        long conservada = this.conservada;
+        return (conservada >>> 32) == instantanea + 1 ? (int) conservada : actual;
+    }
+
+    /**
+     * Conserva la cantidad en stock previa a la primera escritura del producto en una época. Todas las escrituras de la
+     * época pasan antes por aquí y las de la época anterior ya han terminado, por lo que la primera operación CAS que
+     * etiqueta la época lee la cantidad anterior a cualquier escritura de esta
+     *
+     * @param epoca Época de la escritura, o 0 si el producto no tiene control de épocas
+     */
+    private void conservar(long epoca) {
+        long previa = this.conservada;
+        if (epoca != 0 && (previa >>> 32) != epoca)
+            CONSERVADA.compareAndSet(this, previa, (epoca << 32) | (leerCantidad() & MASCARA_CANTIDAD));
+    }
+
+    /**
+     * Consulta si la cantidad en stock del producto está por debajo de su stock mínimo
+     *
+     * @return Booleano indicando si el producto está por debajo de su stock mínimo
+     */
+    public boolean estaBajoMinimo() {
+        return this.bajoMinimo;
+    }
+
+    /**
+     * Asigna el observador que recibe los cruces del umbral de stock mínimo del producto. Si en el momento de asignarlo
+     * el producto ya está por debajo de su stock mínimo se le notifica inmediatamente
+     *
+     * @param observador Observador de los cruces del umbral. Si es null se deja de notificar
+     */
+    public synchronized void asignarObservador(ObservadorStock observador) {
+        this.observador = observador;
+        if (observador != null && this.bajoMinimo)
+            observador.umbralCruzado(this, true);
     }
 
     /**
@@ -124,8 +673,164 @@ public class Producto {
      *
      * @return Booleano indicando si se ha permitido o no el reabastecimiento de stock del producto
      */
-    private boolean reponerStock() {
-        // TODO - implement Producto.reponerStock
+    public boolean reponerStock() {
+        ControlEpocas control = this.epocas;
+        long epoca = control != null ? control.entrar() : 0;
+        try {
+            return reponerStock(epoca);
+        } finally {
+            if (control != null)
+                control.salir(epoca);
+        }
+    }
+
+    /**
+     * Repone la cantidad en stock dentro de una operación ya registrada en el control de épocas
+     *
+     * @param epoca Época de la operación, o 0 si el producto no tiene control de épocas
+     * @return Booleano indicando si se ha permitido o no el reabastecimiento de stock del producto
+     */
+    boolean reponerStock(long epoca) {
+        int estimadas = unidadesReposicion();
+        conservar(epoca);
+        int actual;
+        int unidades;
+        do {
+            actual = leerCantidad();
+            if (actual >= this.stockMinimo)
+                return false;
+
+            // Solo se repone al cruzar el umbral, así que la reposición debe devolver el stock al menos hasta el mínimo
+            unidades = Math.max(estimadas, this.stockMinimo - actual);
+        } while (!cambiarCantidad(actual, actual + unidades));
+
+        ObjIntConsumer<Producto> registro = this.registroReposiciones;
+        if (registro != null)
+            registro.accept(this, unidades);
+        sincronizarUmbral();
+        return true;
+    }
+
+    /**
+     * Asigna el destino al que se comunica cada reposición realizada, por ejemplo para registrarla en la persistencia del
+     * inventario. Se invoca en el hilo que repone, dentro de su operación
+     *
+     * @param registroReposiciones Destino de las reposiciones. Si es null se deja de comunicar
+     */
+    public void asignarRegistroReposiciones(ObjIntConsumer<Producto> registroReposiciones) {
+        this.registroReposiciones = registroReposiciones;
+    }
+
+    /**
+     * Suma una variación a la cantidad en stock sin comprobar el stock disponible ni lanzar reposiciones. Solo la usa
+     * PersistenciaStock para reaplicar las ventas y reposiciones registradas, que ya se comprobaron al realizarse
+     *
+     * @param unidades Variación de la cantidad en stock, negativa para las ventas
+     */
+    void ajustarCantidad(int unidades) {
+        sumarCantidad(unidades);
+        sincronizarUmbral();
+    }
+
+    /**
+     * Vincula el producto a una fila de un inventario columnar: copia en ella sus atributos y a partir de ese momento su
+     * cantidad en stock y su fecha de lanzamiento se leen y se modifican en las columnas, liberando su AtomicInteger y su
+     * Calendar. Solo la usa IndiceProductos, antes de que el producto sea visible en el inventario
+     *
+     * @param columnas Inventario columnar
+     * @param fila     Posición del producto en IndiceProductos
+     */
+    void vincular(InventarioColumnar columnas, int fila) {
+        columnas.ocupar(fila, this);
+        this.columnas = columnas;
+        this.fila = fila;
+        this.fechaLanzamiento = null;
+
+        // La escritura volátil publica la fila a los hilos que lean después la cantidad
+        this.cantidad = null;
+    }
+
+    /**
+     * Desvincula el producto de su fila al eliminarlo del inventario, recuperando su propia cantidad en stock y su fecha.
+     * Una venta que estuviera en curso sobre el producto eliminado puede no reflejarse en la cantidad recuperada
+     */
+    void desvincular() {
+        if (this.cantidad != null)
+            return;
+
+        this.fechaLanzamiento = fechaDesdeDia(this.columnas.getDiaLanzamiento(this.fila));
+        this.cantidad = new AtomicInteger(this.columnas.getCantidad(this.fila));
+    }
+
+    /**
+     * Lee la cantidad en stock del propio producto o de su fila. Se lee primero el campo volátil, que publica la fila
+     *
+     * @return Cantidad en stock actual
+     */
+    private int leerCantidad() {
+        AtomicInteger propia = this.cantidad;
+        return propia != null ? propia.get() : this.columnas.getCantidad(this.fila);
+    }
+
+    /**
+     * Sustituye atómicamente la cantidad en stock si no ha cambiado
+     *
+     * @param esperada Cantidad leída previamente
+     * @param nueva    Cantidad a asignar
+     * @return Booleano indicando si se ha sustituido
+     */
+    private boolean cambiarCantidad(int esperada, int nueva) {
+        AtomicInteger propia = this.cantidad;
+        return propia != null ? propia.compareAndSet(esperada, nueva) : this.columnas.cambiarCantidad(this.fila, esperada, nueva);
+    }
+
+    /**
+     * Suma atómicamente una variación a la cantidad en stock
+     *
+     * @param unidades Variación de la cantidad
+     * @return Cantidad resultante
+     */
+    private int sumarCantidad(int unidades) {
+        AtomicInteger propia = this.cantidad;
+        return propia != null ? propia.addAndGet(unidades) : this.columnas.sumarCantidad(this.fila, unidades);
+    }
+
+    /**
+     * Notifica al observador si la cantidad en stock ha cruzado el umbral del stock mínimo desde la última notificación.
+     * En el caso habitual (sin cruce) solo cuesta una lectura; las notificaciones se serializan con el cerrojo del producto
+     * y se vuelve a leer la cantidad dentro de él, de forma que el último estado notificado siempre coincide con el real
+     */
+    private void sincronizarUmbral() {
+        if ((leerCantidad() < this.stockMinimo) == this.bajoMinimo)
+            return;
+
+        synchronized (this) {
+            boolean bajo = leerCantidad() < this.stockMinimo;
+            if (bajo == this.bajoMinimo)
+                return;
+
+            this.bajoMinimo = bajo;
+            ObservadorStock actual = this.observador;
+            if (actual != null)
+                actual.umbralCruzado(this, bajo);
+        }
+    }
+
+    /**
+     * Calcula el número de unidades con las que se repone el producto. Si tiene asignado un estimador se usa su estimación;
+     * en caso contrario, cuanto mayor es la prioridad del producto más unidades se reponen
+     *
+     * @return Número de unidades a reponer
+     */
+    private int unidadesReposicion() {
+        EstimadorReposicion actual = this.estimador;
+        if (actual != null) {
+            int unidades = actual.unidadesReposicion(this);
+            if (unidades > 0)
+                return unidades;
+        }
+
+        return this.stockMinimo * (this.prioridad.ordinal() + 1);
     }
 
     /**
@@ -134,8 +839,91 @@ public class Producto {
      * @param comentario Objeto de la clase Comentario que representa el comentario a añadir a la colección de comentarios
      * @return Booleano indicando si el comentario fue publicado. Devuelve falso en caso de que no sea válido y no se publicará
      */
-    public boolean comentar(Comentario comentario) {
-        // TODO - implement Producto.comentar
+    public synchronized boolean comentar(Comentario comentario) {
+        if (comentario == null || comentario.getPuntuacion() < PUNTUACION_MINIMA || comentario.getPuntuacion() > PUNTUACION_MAXIMA)
+            return false;
+        if (haComentado(comentario.getAutor()))
+            return false;
+
+        // El hueco se rellena antes de publicar el nuevo número de comentarios para que los lectores sin cerrojo lo vean completo
+        int posicion = getNumeroComentarios();
+        Almacen actual = this.almacen;
+        if (posicion == actual.capacidad()) {
+            actual = actual.ampliar();
+            this.almacen = actual;
+        }
+        if (actual.arena == null)
+            actual.objetos[posicion] = comentario;
+        else
+            actual.referencias[posicion] = referenciar(actual.arena, comentario);
+        registrarAutor(comentario.getAutor(), posicion);
+        this.histograma[comentario.getPuntuacion() - PUNTUACION_MINIMA]++;
+        this.agregados += (1L << 32) + comentario.getPuntuacion();
+        return true;
+    }
+
+    /**
+     * Comprueba si un autor ya ha comentado el producto. Solo se guarda el hash de cada autor junto a la posición de su
+     * comentario, así que una coincidencia del hash se confirma leyendo el autor de ese comentario. Debe llamarse con el
+     * cerrojo del producto adquirido
+     *
+     * @param autor Autor a buscar
+     * @return Booleano indicando si el autor ya tiene un comentario publicado
+     */
+    private boolean haComentado(String autor) {
+        long[] tabla = this.autores;
+        int hash = autor.hashCode();
+        int mascara = tabla.length - 1;
+        for (int i = hash & mascara; tabla.length > 0 && tabla[i] != 0; i = (i + 1) & mascara)
+            if ((int) (tabla[i] >>> 32) == hash && this.almacen.leer((int) tabla[i] - 1).getAutor().equals(autor))
+                return true;
+
+        return false;
+    }
+
+    /**
+     * Registra el autor de un comentario recién publicado, ampliando la tabla para mantenerla como mucho medio llena. Debe
+     * llamarse con el cerrojo del producto adquirido
+     *
+     * @param autor    Autor del comentario
+     * @param posicion Posición del comentario
+     */
+    private void registrarAutor(String autor, int posicion) {
+        long[] tabla = this.autores;
+        if (2 * (posicion + 1) > tabla.length) {
+            long[] ampliada = new long[Math.max(8, 2 * tabla.length)];
+            for (long entrada : tabla)
+                if (entrada != 0)
+                    insertarAutor(ampliada, entrada);
+            tabla = ampliada;
+            this.autores = ampliada;
+        }
+        insertarAutor(tabla, ((long) autor.hashCode() << 32) | (posicion + 1));
+    }
+
+    /**
+     * Inserta una entrada en la primera posición libre de su secuencia de sondeo
+     *
+     * @param tabla   Tabla de autores con posiciones libres
+     * @param entrada Hash del autor y posición de su comentario más uno
+     */
+    private static void insertarAutor(long[] tabla, long entrada) {
+        int mascara = tabla.length - 1;
+        int i = (int) (entrada >>> 32) & mascara;
+        while (tabla[i] != 0)
+            i = (i + 1) & mascara;
+        tabla[i] = entrada;
+    }
+
+    /**
+     * Escribe un comentario en una arena
+     *
+     * @param arena      Arena en la que escribir
+     * @param comentario Comentario a escribir
+     * @return Referencia al comentario en la arena junto a su puntuación
+     */
+    private static long referenciar(ArenaComentarios arena, Comentario comentario) {
+        return (arena.escribir(comentario.getAutor(), comentario.getTexto()) << BITS_PUNTUACION) | comentario.getPuntuacion();
     }
 
     /**
@@ -145,7 +933,17 @@ public class Producto {
      * @return Cadena formatrada de información del producto
      */
     public String detalles() {
-        // TODO - implement Producto.detalles
+        return componer(false);
+    }
+
+    /**
+     * Añade los detalles más relevantes del producto al final de un StringBuilder. Permite reutilizar el mismo búfer
+     * al formatear muchos productos seguidos
+     *
+     * @param destino StringBuilder al que se añaden los detalles formateados
+     */
+    public void detalles(StringBuilder destino) {
+        formatear(destino, false);
     }
 
     /**
@@ -154,7 +952,247 @@ public class Producto {
      * @return Cadena con todos los detalles del producto
      */
     public String detallesCompletos() {
-        // TODO - implement Producto.detallesCompletos
+        return componer(true);
+    }
+
+    /**
+     * Añade todos los detalles del producto al final de un StringBuilder. Permite reutilizar el mismo búfer
+     * al formatear muchos productos seguidos
+     *
+     * @param destino StringBuilder al que se añaden los detalles formateados
+     */
+    public void detallesCompletos(StringBuilder destino) {
+        formatear(destino, true);
+    }
+
+    /**
+     * Añade los detalles del producto al final de un StringBuilder mostrando una cantidad en stock dada en lugar de la
+     * actual, por ejemplo la leída de una instantánea del inventario
+     *
+     * @param destino   StringBuilder al que se añaden los detalles formateados
+     * @param completos Indica si se incluyen el stock mínimo y la prioridad de reabastecimiento
+     * @param cantidad  Cantidad en stock a mostrar
+     */
+    public void detalles(StringBuilder destino, boolean completos, int cantidad) {
+        formatear(destino, completos, cantidad);
+    }
+
+    /**
+     * Formatea los detalles del producto directamente sobre un StringBuilder
+     *
+     * @param destino   StringBuilder al que se añaden los detalles formateados
+     * @param completos Indica si se incluyen el stock mínimo y la prioridad de reabastecimiento
+     */
+    private void formatear(StringBuilder destino, boolean completos) {
+        formatear(destino, completos, getCantidad());
+    }
+
+    /**
+     * Formatea los detalles del producto con una cantidad en stock dada directamente sobre un StringBuilder
+     *
+     * @param destino   StringBuilder al que se añaden los detalles formateados
+     * @param completos Indica si se incluyen el stock mínimo y la prioridad de reabastecimiento
+     * @param cantidad  Cantidad en stock a mostrar
+     */
+    private void formatear(StringBuilder destino, boolean completos, int cantidad) {
+        CacheDetalles cache = CacheDetalles.recuperarInstancia();
+        if (!cache.estaActiva()) {
+            formatearCabecera(destino);
+            destino.append(cantidad);
+            formatearCola(destino, completos);
+            formatearComentarios(destino);
+            return;
+        }
+
+        Renderizado actual = renderizadoActual(cache);
+        destino.append(actual.cabecera).append(cantidad).append(completos ? actual.colaCompleta : actual.cola);
+        if (actual.comentarios != null)
+            destino.append(actual.comentarios);
+        else
+            formatearComentarios(destino);
+    }
+
+    /**
+     * Devuelve los detalles del producto como cadena. Si la cantidad en stock no ha cambiado desde la última vez que se
+     * pidieron se devuelve la misma cadena, sin componerla de nuevo
+     *
+     * @param completos Indica si se incluyen el stock mínimo y la prioridad de reabastecimiento
+     * @return Cadena con los detalles del producto
+     */
+    private String componer(boolean completos) {
+        CacheDetalles cache = CacheDetalles.recuperarInstancia();
+        if (!cache.estaActiva()) {
+            StringBuilder destino = new StringBuilder();
+            formatear(destino, completos);
+            return destino.toString();
+        }
+
+        Renderizado actual = renderizadoActual(cache);
+        int cantidadActual = getCantidad();
+        if (actual.comentarios == null) {
+            StringBuilder destino = new StringBuilder();
+            destino.append(actual.cabecera).append(cantidadActual).append(completos ? actual.colaCompleta : actual.cola);
+            formatearComentarios(destino);
+            return destino.toString();
+        }
+
+        Vista vista = completos ? actual.completa : actual.basica;
+        if (vista != null && vista.cantidad == cantidadActual)
+            return vista.texto;
+
+        String cola = completos ? actual.colaCompleta : actual.cola;
+        String texto = new StringBuilder(actual.cabecera.length() + 11 + cola.length() + actual.comentarios.length())
+                .append(actual.cabecera).append(cantidadActual).append(cola).append(actual.comentarios).toString();
+        if (completos)
+            actual.completa = new Vista(cantidadActual, texto);
+        else
+            actual.basica = new Vista(cantidadActual, texto);
+        return texto;
+    }
+
+    /**
+     * Recupera el formateo guardado si sigue al día, o formatea de nuevo el producto en caso contrario
+     *
+     * @param cache Caché de detalles formateados
+     * @return Detalles formateados al día
+     */
+    private Renderizado renderizadoActual(CacheDetalles cache) {
+        Renderizado actual = this.renderizado;
+        boolean acierto = alDia(actual);
+        if (!acierto)
+            actual = renderizar(cache);
+        else if (!actual.usado)
+            actual.usado = true;
+
+        cache.registrarLectura(acierto);
+        return actual;
+    }
+
+    /**
+     * Comprueba si un formateo guardado incluye todos los comentarios publicados y corresponde a su almacenamiento actual
+     *
+     * @param renderizado Formateo guardado, o null
+     * @return Booleano indicando si el formateo puede usarse
+     */
+    private boolean alDia(Renderizado renderizado) {
+        return renderizado != null && renderizado.numeroComentarios == getNumeroComentarios()
+                && (renderizado.comentarios == null) == (this.almacen.arena != null);
+    }
+
+    /**
+     * Formatea de nuevo los detalles del producto y los guarda, anotando el cambio de ocupación en la caché
+     *
+     * @param cache Caché de detalles formateados
+     * @return Detalles formateados al día
+     */
+    private synchronized Renderizado renderizar(CacheDetalles cache) {
+        // Bajo el cerrojo del producto la lista de comentarios no cambia mientras se formatea
+        Renderizado previo = this.renderizado;
+        if (alDia(previo))
+            return previo;
+
+        StringBuilder buffer = new StringBuilder(128);
+        formatearCabecera(buffer);
+        String cabecera = buffer.toString();
+        buffer.setLength(0);
+        formatearCola(buffer, false);
+        String cola = buffer.toString();
+        buffer.setLength(0);
+        formatearCola(buffer, true);
+        String colaCompleta = buffer.toString();
+        String comentarios = null;
+        if (this.almacen.arena == null) {
+            buffer.setLength(0);
+            formatearComentarios(buffer);
+            comentarios = buffer.toString();
+        }
+        Renderizado nuevo = new Renderizado(cabecera, cola, colaCompleta, comentarios, getNumeroComentarios());
+
+        // La caché puede haber descartado el formateo previo mientras tanto
+        if (RENDERIZADO.compareAndSet(this, previo, nuevo))
+            cache.anotar(this, previo == null, nuevo.tamano() - (previo == null ? 0 : previo.tamano()));
+        else if (RENDERIZADO.compareAndSet(this, null, nuevo))
+            cache.anotar(this, true, nuevo.tamano());
+        return nuevo;
+    }
+
+    /**
+     * Consulta y reinicia la marca de lectura del formateo guardado. La usa CacheDetalles para dar una segunda oportunidad
+     * a los formateos leídos recientemente
+     *
+     * @return Booleano indicando si el formateo guardado se ha leído desde la última consulta
+     */
+    public boolean renderizadoReciente() {
+        Renderizado actual = this.renderizado;
+        if (actual == null || !actual.usado)
+            return false;
+
+        actual.usado = false;
+        return true;
+    }
+
+    /**
+     * Descarta el formateo guardado. La usa CacheDetalles al superar su capacidad
+     *
+     * @return Número de caracteres liberados
+     */
+    public long descartarRenderizado() {
+        Renderizado previo = RENDERIZADO.getAndSet(this, null);
+        return previo == null ? 0 : previo.tamano();
+    }
+
+    /**
+     * Formatea el nombre y el identificador del producto, hasta la etiqueta de la cantidad
+     *
+     * @param destino StringBuilder al que se añade el texto formateado
+     */
+    private void formatearCabecera(StringBuilder destino) {
+        destino.append(this.nombre).append(" [");
+        Identificador.codificar(this.identificador.aDecimal(), destino);
+        destino.append("] | Cantidad: ");
+    }
+
+    /**
+     * Formatea los detalles del producto posteriores a la cantidad
+     *
+     * @param destino   StringBuilder al que se añade el texto formateado
+     * @param completos Indica si se incluyen el stock mínimo y la prioridad de reabastecimiento
+     */
+    private void formatearCola(StringBuilder destino, boolean completos) {
+        if (completos)
+            destino.append(" | Stock mínimo: ").append(this.stockMinimo).append(" | Prioridad: ").append(this.prioridad);
+        destino.append(" | Fabricante: ").append(this.fabricante).append(" | Lanzamiento: ");
+        Calendar fecha = getFechaLanzamiento();
+        anadirDosCifras(destino, fecha.get(Calendar.DAY_OF_MONTH)).append('/');
+        anadirDosCifras(destino, fecha.get(Calendar.MONTH) + 1).append('/');
+        destino.append(fecha.get(Calendar.YEAR));
+        destino.append(" | Estado: ").append(this.esReacondicionado ? "Reacondicionado" : "Nuevo");
+    }
+
+    /**
+     * Formatea la lista de comentarios del producto
+     *
+     * @param destino StringBuilder al que se añade el texto formateado
+     */
+    private void formatearComentarios(StringBuilder destino) {
+        for (Comentario comentario : getComentarios()) {
+            destino.append("\n\t- ");
+            comentario.comentarioCompleto(destino);
+        }
+    }
+
+    /**
+     * Añade un número de al menos dos cifras, completando con un cero a la izquierda si hace falta
+     *
+     * @param destino StringBuilder al que se añade el número
+     * @param numero  Número no negativo a añadir
+     * @return El propio StringBuilder, para encadenar llamadas
+     */
+    private static StringBuilder anadirDosCifras(StringBuilder destino, int numero) {
+        if (numero < 10)
+            destino.append('0');
+
+        return destino.append(numero);
     }
 
 }
\ No newline at end of file
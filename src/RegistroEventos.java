@@ -0,0 +1,346 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Registro asíncrono de los mensajes y errores del inventario. Los hilos que registran un evento solo lo depositan en una
+ * cola circular acotada y sin cerrojos, y un hilo en segundo plano la vacía por lotes escribiendo en el flujo de salida.
+ * De este modo las ventas y los comentarios no esperan nunca a la entrada/salida de la consola o de un fichero.
+ * Cuando la cola está llena se aplica la política indicada al crear el registro
+ *
+ * @author : Juan Pablo García Plaza Pérez - Jose Ángel Concha Carrasco
+ * @grupo : Wild True
+ */
+
+public class RegistroEventos {
+
+    private static final int TAMANO_LOTE = 256;                         // Eventos escritos como máximo entre dos volcados del flujo
+    private static final long ESPERA_NANOSEGUNDOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final int ESPERAS_ACTIVAS = 16;                      // Intentos cediendo el procesador antes de dormir con la cola llena
+    private static final long CERRADA = Long.MIN_VALUE;                 // Marca de la posición de escritura de una cola cerrada
+
+    private Evento[] eventos;
+    private AtomicLongArray secuencias;                                 // Secuencia de cada hueco. Indica si está libre u ocupado
+    private int mascara;
+    private AtomicLong posicionEscritura;                               // Siguiente posición que reservarán los productores, o CERRADA
+    private long posicionLectura;                                       // Siguiente posición a leer. Solo la usa el hilo escritor
+    private POLITICA_REGISTRO politica;
+    private Writer salida;
+    private Thread escritor;
+    private volatile boolean activo;
+    private volatile boolean escritorDormido;
+    private Queue<Thread> productoresDormidos;                          // Productores esperando hueco con la política ESPERAR
+    private LongAdder registrados;
+    private LongAdder descartados;
+    private LongAdder escritos;
+    private LongAdder fallosEscritura;
+
+    /**
+     * Evento pendiente de escribir. Se guarda sin formatear para que el coste de componer la línea recaiga en el hilo escritor
+     */
+    private static class Evento {
+        private final boolean error;
+        private final String origen;
+        private final String mensaje;
+
+        private Evento(boolean error, String origen, String mensaje) {
+            this.error = error;
+            this.origen = origen;
+            this.mensaje = mensaje;
+        }
+    }
+
+    /**
+     * Constructor parametrizado de la clase. Lanza el hilo escritor
+     *
+     * @param destino   Flujo en el que se escriben los eventos. El registro no lo cierra al detenerse
+     * @param capacidad Número de eventos que caben en la cola. Se redondea a la siguiente potencia de dos
+     * @param politica  Comportamiento cuando la cola está llena
+     */
+    public RegistroEventos(OutputStream destino, int capacidad, POLITICA_REGISTRO politica) {
+        int huecos = Integer.highestOneBit(Math.max(2, capacidad - 1)) << 1;
+
+        this.eventos = new Evento[huecos];
+        this.secuencias = new AtomicLongArray(huecos);
+        for (int i = 0; i < huecos; i++)
+            this.secuencias.set(i, i);
+        this.mascara = huecos - 1;
+        this.posicionEscritura = new AtomicLong();
+        this.politica = politica;
+        this.salida = new BufferedWriter(new OutputStreamWriter(destino, StandardCharsets.UTF_8), 1 << 16);
+        this.registrados = new LongAdder();
+        this.descartados = new LongAdder();
+        this.escritos = new LongAdder();
+        this.fallosEscritura = new LongAdder();
+        this.productoresDormidos = new ConcurrentLinkedQueue<>();
+        this.activo = true;
+
+        this.escritor = new Thread(this::escribir, "registro-eventos");
+        this.escritor.setDaemon(true);
+        this.escritor.start();
+    }
+
+    /**
+     * Registra un error de una operación del inventario
+     *
+     * @param error    Cadena con información en relación al error
+     * @param producto Nombre del producto que generó el error. Puede ser nulo
+     * @return Booleano indicando si el evento se ha encolado. Devuelve falso si se ha descartado
+     */
+    public boolean registrarError(String error, String producto) {
+        return encolar(new Evento(true, producto, error));
+    }
+
+    /**
+     * Registra un mensaje informativo dirigido a un usuario
+     *
+     * @param origen  Nombre de quien emite el mensaje
+     * @param mensaje Mensaje a registrar
+     * @return Booleano indicando si el evento se ha encolado. Devuelve falso si se ha descartado
+     */
+    public boolean registrarMensaje(String origen, String mensaje) {
+        return encolar(new Evento(false, origen, mensaje));
+    }
+
+    /**
+     * Consulta el número de eventos encolados desde que se creó el registro
+     *
+     * @return Número de eventos registrados
+     */
+    public long getEventosRegistrados() {
+        return this.registrados.sum();
+    }
+
+    /**
+     * Consulta el número de eventos descartados por encontrar la cola llena o el registro detenido
+     *
+     * @return Número de eventos descartados
+     */
+    public long getEventosDescartados() {
+        return this.descartados.sum();
+    }
+
+    /**
+     * Consulta el número de eventos ya escritos en el flujo de salida
+     *
+     * @return Número de eventos escritos
+     */
+    public long getEventosEscritos() {
+        return this.escritos.sum();
+    }
+
+    /**
+     * Consulta el número de lotes que no se han podido escribir por un error de entrada/salida
+     *
+     * @return Número de fallos de escritura
+     */
+    public long getFallosEscritura() {
+        return this.fallosEscritura.sum();
+    }
+
+    /**
+     * Detiene el registro. Primero se cierra la cola, de forma que ningún productor puede reservar ya un hueco; después el
+     * escritor termina de escribir todos los eventos encolados, incluidos los que se estaban publicando al cerrarla, y vuelca
+     * el flujo, pero no lo cierra. Los eventos registrados después de detenerlo se descartan
+     */
+    public void detener() {
+        long posicion;
+        do {
+            posicion = this.posicionEscritura.get();
+        } while (posicion >= 0 && !this.posicionEscritura.compareAndSet(posicion, posicion | CERRADA));
+
+        this.activo = false;
+        LockSupport.unpark(this.escritor);
+        despertarProductores();
+
+        try {
+            this.escritor.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Deposita un evento en la cola. Cada productor reserva un hueco avanzando la posición de escritura y lo publica
+     * actualizando la secuencia del hueco, de forma que no se necesita ningún cerrojo. Si la cola está cerrada la reserva
+     * falla, por lo que todo evento encolado se escribe aunque el registro se detenga justo después
+     *
+     * @param evento Evento a encolar
+     * @return Booleano indicando si el evento se ha encolado
+     */
+    private boolean encolar(Evento evento) {
+        long posicion = this.posicionEscritura.get();
+        int llena = 0;
+
+        while (posicion >= 0) {
+            int hueco = (int) (posicion & this.mascara);
+            long diferencia = this.secuencias.get(hueco) - posicion;
+
+            if (diferencia == 0) {
+                if (this.posicionEscritura.compareAndSet(posicion, posicion + 1)) {
+                    this.eventos[hueco] = evento;
+                    this.secuencias.lazySet(hueco, posicion + 1);
+                    this.registrados.increment();
+                    if (this.escritorDormido)
+                        LockSupport.unpark(this.escritor);
+                    return true;
+                }
+                posicion = this.posicionEscritura.get();
+            } else if (diferencia < 0) {
+                // La cola está llena
+                if (this.politica == POLITICA_REGISTRO.DESCARTAR)
+                    break;
+                LockSupport.unpark(this.escritor);
+                esperarHueco(hueco, posicion, llena++);
+                posicion = this.posicionEscritura.get();
+            } else {
+                posicion = this.posicionEscritura.get();
+            }
+        }
+
+        this.descartados.increment();
+        return false;
+    }
+
+    /**
+     * Espera a que el escritor libere el hueco de una posición con la cola llena. Los primeros intentos solo ceden el
+     * procesador; a partir de ahí el productor se encola y se duerme hasta que el escritor lo despierta al terminar un lote.
+     * La espera está acotada por si el aviso del escritor se cruza con el productor al encolarse
+     *
+     * @param hueco    Hueco de la cola que se quiere ocupar
+     * @param posicion Posición de escritura que se quiere reservar
+     * @param intento  Número de veces que el productor ha encontrado la cola llena
+     */
+    private void esperarHueco(int hueco, long posicion, int intento) {
+        if (intento < ESPERAS_ACTIVAS) {
+            Thread.yield();
+            return;
+        }
+
+        Thread actual = Thread.currentThread();
+        this.productoresDormidos.offer(actual);
+        if (this.secuencias.get(hueco) < posicion && this.posicionEscritura.get() >= 0)
+            LockSupport.parkNanos(this, ESPERA_NANOSEGUNDOS);
+        this.productoresDormidos.remove(actual);
+    }
+
+    /**
+     * Despierta a los productores que esperan hueco en la cola
+     */
+    private void despertarProductores() {
+        Thread productor;
+        while ((productor = this.productoresDormidos.poll()) != null)
+            LockSupport.unpark(productor);
+    }
+
+    /**
+     * Extrae el siguiente evento de la cola. Solo lo invoca el hilo escritor
+     *
+     * @return Siguiente evento, o nulo si la cola está vacía
+     */
+    private Evento desencolar() {
+        int hueco = (int) (this.posicionLectura & this.mascara);
+        if (this.secuencias.get(hueco) != this.posicionLectura + 1)
+            return null;
+
+        Evento evento = this.eventos[hueco];
+        this.eventos[hueco] = null;
+        this.secuencias.lazySet(hueco, this.posicionLectura + this.eventos.length);
+        this.posicionLectura++;
+        return evento;
+    }
+
+    /**
+     * Bucle del hilo escritor. Vacía la cola por lotes y vuelca el flujo al terminar cada lote. Cuando no hay eventos se
+     * duerme hasta que un productor lo despierta o pasa el tiempo de espera
+     */
+    private void escribir() {
+        while (true) {
+            int lote = 0;
+            Evento evento;
+
+            while (lote < TAMANO_LOTE && (evento = desencolar()) != null) {
+                escribirEvento(evento);
+                lote++;
+            }
+
+            if (lote > 0) {
+                volcar();
+                this.escritos.add(lote);
+                if (!this.productoresDormidos.isEmpty())
+                    despertarProductores();
+                continue;
+            }
+
+            // La cola se cierra antes de desactivar el registro, así que la posición de escritura ya no cambia
+            if (!this.activo && (this.posicionEscritura.get() & ~CERRADA) == this.posicionLectura)
+                return;
+
+            this.escritorDormido = true;
+            if (hayEventoPendiente())
+                this.escritorDormido = false;
+            else {
+                LockSupport.parkNanos(this, ESPERA_NANOSEGUNDOS);
+                this.escritorDormido = false;
+            }
+        }
+    }
+
+    /**
+     * Comprueba si el siguiente hueco a leer ya está publicado
+     *
+     * @return Booleano indicando si hay un evento listo para escribir
+     */
+    private boolean hayEventoPendiente() {
+        return this.secuencias.get((int) (this.posicionLectura & this.mascara)) == this.posicionLectura + 1;
+    }
+
+    /**
+     * Escribe un evento con el mismo formato que se mostraba por consola
+     *
+     * @param evento Evento a escribir
+     */
+    private void escribirEvento(Evento evento) {
+        try {
+            if (evento.error) {
+                this.salida.write("ERROR: ");
+                this.salida.write(evento.mensaje);
+                if (evento.origen != null) {
+                    this.salida.write(" (");
+                    this.salida.write(evento.origen);
+                    this.salida.write(')');
+                }
+            } else {
+                this.salida.write('[');
+                this.salida.write(String.valueOf(evento.origen));
+                this.salida.write("] ");
+                this.salida.write(evento.mensaje);
+            }
+            this.salida.write(System.lineSeparator());
+        } catch (IOException e) {
+            this.fallosEscritura.increment();
+        }
+    }
+
+    /**
+     * Vuelca al flujo de salida los eventos escritos en el búfer
+     */
+    private void volcar() {
+        try {
+            this.salida.flush();
+        } catch (IOException e) {
+            this.fallosEscritura.increment();
+        }
+    }
+
+}
\ No newline at end of file
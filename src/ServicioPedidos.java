@@ -0,0 +1,291 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Servicio que atiende de forma asíncrona las peticiones de los clientes sobre un inventario. Las peticiones se encolan y se
+ * resuelven en un conjunto fijo de hilos, devolviendo inmediatamente un resultado futuro, de forma que miles de clientes
+ * simulados pueden operar a la vez sin necesitar un hilo cada uno.
+ *
+ * Los pedidos de un mismo producto se agrupan: mientras un hilo atiende los pedidos pendientes de un producto, los nuevos
+ * pedidos de ese producto se acumulan en su cola y se sirven juntos en la siguiente ronda con una única venta, siempre que
+ * haya stock para todos ellos. Si no lo hay se sirven uno a uno en orden de llegada. Agrupados o no, cada pedido registra su
+ * propia latencia en las métricas del inventario y se notifica a su cliente igual que en Cliente.pedirProducto. La cola de
+ * un producto se descarta en cuanto se vacía, por lo que el servicio no retiene los productos que ya no reciben pedidos
+ *
+ * @author : Juan Pablo García Plaza Pérez - Jose Ángel Concha Carrasco
+ * @grupo : Wild True
+ */
+
+public class ServicioPedidos {
+
+    private GestorStock gestor;
+    private ExecutorService ejecutor;
+    private Map<Producto, ColaProducto> colas;                          // Pedidos pendientes de cada producto. Solo hay colas con pedidos
+    private HistogramaLatencias latencias;                              // Desde que se recibe un pedido hasta que se resuelve
+    private LongAdder pedidosAgrupados;                                 // Pedidos servidos dentro de una venta agrupada
+    private LongAdder ventasAgrupadas;
+
+    /**
+     * Pedido pendiente de un cliente
+     */
+    private static class Pedido {
+        private final Cliente cliente;
+        private final String alias;
+        private final int cantidad;
+        private final long instante;
+        private final CompletableFuture<Boolean> resultado;
+
+        private Pedido(Cliente cliente, String alias, int cantidad) {
+            this.cliente = cliente;
+            this.alias = alias;
+            this.cantidad = cantidad;
+            this.instante = System.nanoTime();
+            this.resultado = new CompletableFuture<>();
+        }
+    }
+
+    /**
+     * Cola de pedidos pendientes de un producto. Solo un hilo la atiende en cada momento
+     */
+    private static class ColaProducto {
+        private final Queue<Pedido> pedidos = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean programada = new AtomicBoolean();
+    }
+
+    /**
+     * Constructor parametrizado de la clase
+     *
+     * @param gestor      Inventario sobre el que se resuelven las peticiones
+     * @param numeroHilos Número de hilos que atienden las peticiones
+     */
+    public ServicioPedidos(GestorStock gestor, int numeroHilos) {
+        AtomicInteger contador = new AtomicInteger();
+
+        this.gestor = gestor;
+        this.colas = new ConcurrentHashMap<>();
+        this.latencias = new HistogramaLatencias();
+        this.pedidosAgrupados = new LongAdder();
+        this.ventasAgrupadas = new LongAdder();
+        this.ejecutor = Executors.newFixedThreadPool(numeroHilos, tarea -> {
+            Thread hilo = new Thread(tarea, "servicio-pedidos-" + contador.incrementAndGet());
+            hilo.setDaemon(true);
+            return hilo;
+        });
+    }
+
+    /**
+     * Encola el pedido de un número de unidades de un producto favorito de un cliente
+     *
+     * @param cliente  Cliente que realiza el pedido
+     * @param alias    Alias con el que el cliente guardó el producto favorito
+     * @param cantidad Número de unidades a pedir
+     * @return Resultado futuro indicando si se pudo servir el pedido. Es falso si el alias no corresponde a ningún favorito
+     * o no hay stock suficiente
+     */
+    public CompletableFuture<Boolean> pedirProducto(Cliente cliente, String alias, int cantidad) {
+        Producto producto = cliente.recuperarFavorito(alias);
+        if (producto == null || cantidad <= 0)
+            return CompletableFuture.completedFuture(false);
+
+        // El pedido se encola dentro de compute para que la cola no se descarte entre su búsqueda y el encolado
+        Pedido pedido = new Pedido(cliente, alias, cantidad);
+        ColaProducto cola = this.colas.compute(producto, (clave, actual) -> {
+            ColaProducto destino = actual != null ? actual : new ColaProducto();
+            destino.pedidos.add(pedido);
+            return destino;
+        });
+        programar(producto, cola);
+        return pedido.resultado;
+    }
+
+    /**
+     * Encola la publicación de un comentario de un cliente sobre uno de sus productos favoritos
+     *
+     * @param cliente    Cliente que publica el comentario
+     * @param alias      Alias con el que el cliente guardó el producto favorito
+     * @param texto      Cuerpo del comentario
+     * @param puntuacion Calificación del producto
+     * @return Resultado futuro indicando si se pudo publicar el comentario
+     */
+    public CompletableFuture<Boolean> comentarProducto(Cliente cliente, String alias, String texto, int puntuacion) {
+        return ejecutar(() -> cliente.comentarProducto(alias, texto, puntuacion));
+    }
+
+    /**
+     * Encola la incorporación de un producto a la colección de favoritos de un cliente
+     *
+     * @param cliente  Cliente que añade el favorito
+     * @param producto Producto a añadir
+     * @param alias    Nombre con el que recordar el producto favorito
+     * @return Resultado futuro indicando si se pudo añadir el favorito
+     */
+    public CompletableFuture<Boolean> agregarFavorito(Cliente cliente, Producto producto, String alias) {
+        return ejecutar(() -> cliente.agregarFavorito(producto, alias));
+    }
+
+    /**
+     * Consulta el número de productos con pedidos pendientes o en curso
+     *
+     * @return Número de colas de pedidos activas
+     */
+    public int numeroColas() {
+        return this.colas.size();
+    }
+
+    /**
+     * Método accesor del atributo 'latencias'
+     *
+     * @return Histograma con la latencia de los pedidos, desde que se reciben hasta que se resuelven
+     */
+    public HistogramaLatencias getLatencias() {
+        return this.latencias;
+    }
+
+    /**
+     * Consulta el número de pedidos que se han servido dentro de una venta agrupada con otros pedidos del mismo producto
+     *
+     * @return Número de pedidos agrupados
+     */
+    public long getPedidosAgrupados() {
+        return this.pedidosAgrupados.sum();
+    }
+
+    /**
+     * Consulta el número de ventas agrupadas realizadas sobre el inventario
+     *
+     * @return Número de ventas agrupadas
+     */
+    public long getVentasAgrupadas() {
+        return this.ventasAgrupadas.sum();
+    }
+
+    /**
+     * Detiene el servicio. Las peticiones pendientes no se atienden
+     */
+    public void detener() {
+        this.ejecutor.shutdownNow();
+    }
+
+    /**
+     * Ejecuta una petición en los hilos del servicio
+     *
+     * @param peticion Petición a ejecutar
+     * @return Resultado futuro de la petición
+     */
+    private CompletableFuture<Boolean> ejecutar(Supplier<Boolean> peticion) {
+        try {
+            return CompletableFuture.supplyAsync(peticion, this.ejecutor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(false);
+        }
+    }
+
+    /**
+     * Programa la atención de la cola de un producto si no hay ya un hilo atendiéndola
+     *
+     * @param producto Producto de la cola
+     * @param cola     Cola de pedidos del producto
+     */
+    private void programar(Producto producto, ColaProducto cola) {
+        if (!cola.programada.compareAndSet(false, true))
+            return;
+
+        try {
+            this.ejecutor.execute(() -> atender(producto, cola));
+        } catch (RejectedExecutionException e) {
+            // El servicio está detenido: se rechazan los pedidos pendientes
+            Pedido pedido;
+            while ((pedido = cola.pedidos.poll()) != null)
+                pedido.resultado.complete(false);
+            cola.programada.set(false);
+            descartar(producto, cola);
+        }
+    }
+
+    /**
+     * Atiende los pedidos pendientes de un producto hasta vaciar su cola, y después la descarta
+     *
+     * @param producto Producto de la cola
+     * @param cola     Cola de pedidos del producto
+     */
+    private void atender(Producto producto, ColaProducto cola) {
+        List<Pedido> ronda = new ArrayList<>();
+        do {
+            Pedido pedido;
+            while ((pedido = cola.pedidos.poll()) != null)
+                ronda.add(pedido);
+
+            servir(producto, ronda);
+            ronda.clear();
+            cola.programada.set(false);
+
+            // Un pedido encolado justo antes de liberar la cola debe atenderse aquí, porque su autor no la ha podido programar
+        } while (!cola.pedidos.isEmpty() && cola.programada.compareAndSet(false, true));
+
+        descartar(producto, cola);
+    }
+
+    /**
+     * Elimina la cola de un producto si está vacía y ningún hilo la está atendiendo. Se comprueba dentro de computeIfPresent,
+     * que se excluye con el encolado de pedirProducto, así que un pedido nunca queda en una cola ya descartada
+     *
+     * @param producto Producto de la cola
+     * @param cola     Cola de pedidos del producto
+     */
+    private void descartar(Producto producto, ColaProducto cola) {
+        this.colas.computeIfPresent(producto, (clave, actual) ->
+                actual == cola && actual.pedidos.isEmpty() && !actual.programada.get() ? null : actual);
+    }
+
+    /**
+     * Sirve una ronda de pedidos de un producto. Si hay stock para todos se sirven con una única venta
+     *
+     * @param producto Producto pedido
+     * @param ronda    Pedidos de la ronda, en orden de llegada
+     */
+    private void servir(Producto producto, List<Pedido> ronda) {
+        if (ronda.isEmpty())
+            return;
+
+        long total = 0;
+        for (Pedido pedido : ronda)
+            total += pedido.cantidad;
+
+        if (ronda.size() > 1 && total <= producto.getCantidad() && this.gestor.venderProducto((int) total, producto)) {
+            this.ventasAgrupadas.increment();
+            this.pedidosAgrupados.add(ronda.size());
+            for (Pedido pedido : ronda)
+                resolver(pedido, true);
+            return;
+        }
+
+        for (Pedido pedido : ronda)
+            resolver(pedido, this.gestor.venderProducto(pedido.cantidad, producto));
+    }
+
+    /**
+     * Resuelve un pedido, registra su latencia en el servicio y en las métricas del inventario y se lo notifica a su cliente
+     *
+     * @param pedido  Pedido a resolver
+     * @param servido Indica si el pedido se ha servido
+     */
+    private void resolver(Pedido pedido, boolean servido) {
+        long latencia = System.nanoTime() - pedido.instante;
+        this.latencias.registrar(latencia);
+        pedido.cliente.notificarPedido(pedido.alias, pedido.cantidad, servido, latencia);
+        pedido.resultado.complete(servido);
+    }
+
+}
\ No newline at end of file
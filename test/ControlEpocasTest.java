@@ -0,0 +1,104 @@
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Prueba de estrés del control de épocas: varios hilos venden pedidos conjuntos mientras otros leen informes con
+ * instantáneas. Cada pedido vende las mismas unidades de los dos productos de una pareja, por lo que en cualquier instante
+ * consistente las dos cantidades de cada pareja coinciden y el total del inventario solo puede bajar
+ *
+ * @author : Juan Pablo García Plaza Pérez - Jose Ángel Concha Carrasco
+ * @grupo : Wild True
+ */
+
+public class ControlEpocasTest {
+
+    private static final int PAREJAS = 200;
+    private static final int CANTIDAD_INICIAL = 1 << 24;
+    private static final int VENDEDORES = 6;
+    private static final int LECTORES = 3;
+    private static final long DURACION_MILISEGUNDOS = 1500;
+
+    @Test
+    public void instantaneasConsistentesConVentasConcurrentes() throws InterruptedException {
+        GestorStock gestor = GestorStock.crearInstancia();
+        List<Producto> productos = new ArrayList<>();
+        for (int i = 0; i < 2 * PAREJAS; i++)
+            productos.add(new Producto(new Identificador(36 * 36 * 36 + i), "Producto " + i, FABRICANTES.values()[i % 10],
+                    PRIORIDAD_PRODUCTO.MEDIA, new GregorianCalendar(2020, 0, 1), false, CANTIDAD_INICIAL, 0));
+        assertEquals(2 * PAREJAS, gestor.agregarProductos(productos));
+
+        long fin = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(DURACION_MILISEGUNDOS);
+        AtomicLong vendidas = new AtomicLong();
+        AtomicLong informes = new AtomicLong();
+        AtomicReference<Throwable> fallo = new AtomicReference<>();
+        List<Thread> hilos = new ArrayList<>();
+
+        for (int i = 0; i < VENDEDORES; i++)
+            hilos.add(new Thread(() -> {
+                ThreadLocalRandom aleatorio = ThreadLocalRandom.current();
+                Map<Producto, Integer> pedido = new HashMap<>();
+                while (System.nanoTime() < fin && fallo.get() == null) {
+                    int pareja = aleatorio.nextInt(PAREJAS);
+                    int unidades = 1 + aleatorio.nextInt(3);
+                    pedido.clear();
+                    pedido.put(productos.get(2 * pareja), unidades);
+                    pedido.put(productos.get(2 * pareja + 1), unidades);
+                    if (gestor.venderProductos(pedido))
+                        vendidas.addAndGet(2L * unidades);
+                }
+            }));
+
+        for (int i = 0; i < LECTORES; i++)
+            hilos.add(new Thread(() -> {
+                long anterior = Long.MAX_VALUE;
+                StringBuilder informe = new StringBuilder();
+                while (System.nanoTime() < fin && fallo.get() == null) {
+                    try (InstantaneaStock instantanea = gestor.abrirInstantaneaStock()) {
+                        for (int pareja = 0; pareja < PAREJAS; pareja++)
+                            assertEquals("Pareja " + pareja, instantanea.getCantidad(productos.get(2 * pareja)),
+                                    instantanea.getCantidad(productos.get(2 * pareja + 1)));
+
+                        long total = gestor.unidadesEnStock(instantanea);
+                        assertTrue("El total de una instantánea posterior no puede ser mayor", total <= anterior);
+                        anterior = total;
+
+                        informe.setLength(0);
+                        int cursor = -1;
+                        do {
+                            cursor = gestor.escribirInforme(informe, false, null, null, cursor, 64, instantanea);
+                        } while (cursor != -1);
+                        assertEquals(2 * PAREJAS, informe.chars().filter(caracter -> caracter == '\n').count());
+                        informes.incrementAndGet();
+                    } catch (Throwable e) {
+                        fallo.compareAndSet(null, e);
+                    }
+                }
+            }));
+
+        for (Thread hilo : hilos)
+            hilo.start();
+        for (Thread hilo : hilos)
+            hilo.join();
+
+        assertNull(String.valueOf(fallo.get()), fallo.get());
+        assertTrue("No se ha leído ningún informe", informes.get() > 0);
+        try (InstantaneaStock instantanea = gestor.abrirInstantaneaStock()) {
+            assertEquals(2L * PAREJAS * CANTIDAD_INICIAL - vendidas.get(), gestor.unidadesEnStock(instantanea));
+            assertEquals(2L * PAREJAS * CANTIDAD_INICIAL - vendidas.get(), gestor.unidadesEnStock(null));
+        }
+    }
+
+}
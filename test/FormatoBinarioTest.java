@@ -0,0 +1,213 @@
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Pruebas del formato binario: una codificación se decodifica con todos sus atributos, comentarios y favoritos, y cualquier
+ * codificación corrupta provoca una IllegalArgumentException sin avanzar la secuencia de identificadores
+ *
+ * @author : Juan Pablo García Plaza Pérez - Jose Ángel Concha Carrasco
+ * @grupo : Wild True
+ */
+
+public class FormatoBinarioTest {
+
+    private static final int BASE = 36 * 36 * 36 * 3;                   // Identificadores propios, lejos de los de otras pruebas
+    private static final int CORRUPTO = BASE + 1000;                    // Identificador que solo aparece en registros corruptos
+    private static final String TEXTO = "Buena relación calidad precio";
+
+    @Test
+    public void conservaProductosComentariosYClientes() {
+        Producto primero = nuevoProducto(BASE, FABRICANTES.APPLE, PRIORIDAD_PRODUCTO.ALTA);
+        Producto segundo = new Producto(new Identificador(BASE + 1), "Altavoz", FABRICANTES.values()[3], PRIORIDAD_PRODUCTO.BAJA,
+                new GregorianCalendar(1965, 6, 20), true, 0, 12);
+        assertTrue(primero.comentar(new Comentario("ana", TEXTO, 5)));
+        assertTrue(primero.comentar(new Comentario("luis", "Llegó con retraso", 1)));
+        assertTrue(segundo.comentar(new Comentario("ana", "Suena bien", 4)));
+
+        GestorStock gestor = GestorStock.crearInstancia();
+        assertTrue(gestor.agregarProducto(primero));
+        assertTrue(gestor.agregarProducto(segundo));
+        Cliente cliente = new Cliente(new Identificador(BASE + 2), "marta", 34, "Cáceres", gestor);
+        assertTrue(cliente.agregarFavorito(primero, "portátil"));
+        assertTrue(cliente.agregarFavorito(segundo, "altavoz"));
+
+        FormatoBinario lector = FormatoBinario.abrir(FormatoBinario.codificar(Arrays.asList(primero, segundo),
+                Collections.singletonList(cliente)));
+        assertEquals(2, lector.getNumeroProductos());
+        assertEquals(1, lector.getNumeroClientes());
+        assertEquals(BASE + 1, lector.leerIdentificadorProducto(1));
+        assertEquals(primero.getCantidad(), lector.leerCantidadProducto(0));
+        comprobarProducto(primero, lector.leerProducto(0));
+        comprobarProducto(segundo, lector.leerProducto(1));
+
+        Cliente leido = lector.leerCliente(0, gestor);
+        assertEquals(BASE + 2, leido.getIdentificador().aDecimal());
+        assertEquals("marta", leido.getNombre());
+        assertEquals(34, leido.getEdad());
+        assertEquals("Cáceres", leido.getLocalidad());
+        Map<String, Producto> favoritos = leido.getFavoritos();
+        assertEquals(2, favoritos.size());
+        assertSame(primero, favoritos.get("portátil"));
+        assertSame(segundo, favoritos.get("altavoz"));
+    }
+
+    @Test
+    public void rechazaMagicoYVersionIncorrectos() {
+        byte[] bytes = codificar(nuevoProducto(CORRUPTO, FABRICANTES.APPLE, PRIORIDAD_PRODUCTO.MEDIA));
+        byte[] magico = bytes.clone();
+        magico[0] ^= 0x01;
+        abrirCorrupto(magico);
+
+        byte[] version = bytes.clone();
+        version[4] = 2;
+        abrirCorrupto(version);
+    }
+
+    @Test
+    public void rechazaCodificacionesTruncadas() {
+        byte[] bytes = codificar(nuevoProducto(CORRUPTO, FABRICANTES.APPLE, PRIORIDAD_PRODUCTO.MEDIA));
+        for (int longitud = 0; longitud < bytes.length; longitud++)
+            abrirCorrupto(Arrays.copyOf(bytes, longitud));
+    }
+
+    @Test
+    public void rechazaOrdinalesFueraDeRango() {
+        Producto producto = nuevoProducto(CORRUPTO, FABRICANTES.APPLE, PRIORIDAD_PRODUCTO.MEDIA);
+        byte[] bytes = codificar(producto);
+
+        // El byte del fabricante es el único que cambia al codificar el mismo producto con otro fabricante
+        byte[] fabricante = bytes.clone();
+        int posicion = diferencia(bytes, codificar(nuevoProducto(CORRUPTO, FABRICANTES.BENQ, PRIORIDAD_PRODUCTO.MEDIA)));
+        fabricante[posicion] = (byte) FABRICANTES.values().length;
+        leerCorrupto(fabricante);
+
+        byte[] prioridad = bytes.clone();
+        posicion = diferencia(bytes, codificar(nuevoProducto(CORRUPTO, FABRICANTES.APPLE, PRIORIDAD_PRODUCTO.BAJA)));
+        prioridad[posicion] = -1;
+        leerCorrupto(prioridad);
+    }
+
+    @Test
+    public void rechazaReferenciasYPuntuacionesNoValidas() {
+        Producto producto = nuevoProducto(CORRUPTO, FABRICANTES.APPLE, PRIORIDAD_PRODUCTO.MEDIA);
+        assertTrue(producto.comentar(new Comentario("ana", TEXTO, 3)));
+        byte[] bytes = codificar(producto);
+
+        // El registro termina con la referencia al autor, el texto y la puntuación del comentario; después solo queda el
+        // número de clientes
+        int puntuacion = bytes.length - 2;
+        int autor = puntuacion - TEXTO.getBytes(StandardCharsets.UTF_8).length - 2;
+        assertEquals(3, bytes[puntuacion]);
+        assertEquals(0, bytes[autor]);
+
+        byte[] referencia = bytes.clone();
+        referencia[autor] = 1;
+        leerCorrupto(referencia);
+
+        for (byte valor : new byte[]{0, 6, -3}) {
+            byte[] fueraDeRango = bytes.clone();
+            fueraDeRango[puntuacion] = valor;
+            leerCorrupto(fueraDeRango);
+        }
+    }
+
+    /**
+     * Comprueba que un producto decodificado conserva todos los atributos y comentarios del original
+     */
+    private static void comprobarProducto(Producto original, Producto leido) {
+        assertEquals(original.getIdentificador().aDecimal(), leido.getIdentificador().aDecimal());
+        assertEquals(original.getNombre(), leido.getNombre());
+        assertEquals(original.getCantidad(), leido.getCantidad());
+        assertEquals(original.getStockMinimo(), leido.getStockMinimo());
+        assertEquals(original.getFabricante(), leido.getFabricante());
+        assertEquals(original.getPrioridad(), leido.getPrioridad());
+        assertEquals(original.getDiaLanzamiento(), leido.getDiaLanzamiento());
+        assertEquals(original.getEsReacondicionado(), leido.getEsReacondicionado());
+        assertArrayEquals(original.getHistogramaPuntuaciones(), leido.getHistogramaPuntuaciones());
+
+        List<Comentario> esperados = original.getComentarios();
+        List<Comentario> comentarios = leido.getComentarios();
+        assertEquals(esperados.size(), comentarios.size());
+        for (int i = 0; i < esperados.size(); i++) {
+            assertEquals(esperados.get(i).getAutor(), comentarios.get(i).getAutor());
+            assertEquals(esperados.get(i).getTexto(), comentarios.get(i).getTexto());
+            assertEquals(esperados.get(i).getPuntuacion(), comentarios.get(i).getPuntuacion());
+        }
+    }
+
+    /**
+     * Comprueba que abrir una codificación corrupta falla con una IllegalArgumentException
+     */
+    private static void abrirCorrupto(byte[] bytes) {
+        try {
+            FormatoBinario.abrir(ByteBuffer.wrap(bytes));
+            fail("Se ha abierto una codificación corrupta de " + bytes.length + " bytes");
+        } catch (IllegalArgumentException e) {
+            assertNotNull(e.getMessage());
+        }
+    }
+
+    /**
+     * Comprueba que leer el único producto de una codificación corrupta falla con una IllegalArgumentException y no avanza
+     * la secuencia de identificadores
+     */
+    private static void leerCorrupto(byte[] bytes) {
+        FormatoBinario lector = FormatoBinario.abrir(ByteBuffer.wrap(bytes));
+        int siguiente = GeneradorIdentificador.recuperarInstancia().consultarIdentificador().aDecimal();
+        try {
+            lector.leerProducto(0);
+            fail("Se ha decodificado un producto corrupto");
+        } catch (IllegalArgumentException e) {
+            assertEquals(siguiente, GeneradorIdentificador.recuperarInstancia().consultarIdentificador().aDecimal());
+        }
+    }
+
+    /**
+     * Codifica un único producto sin clientes
+     */
+    private static byte[] codificar(Producto producto) {
+        ByteBuffer datos = FormatoBinario.codificar(Collections.singletonList(producto), Collections.<Cliente>emptyList());
+        byte[] bytes = new byte[datos.remaining()];
+        datos.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Localiza el único byte en el que difieren dos codificaciones de la misma longitud
+     */
+    private static int diferencia(byte[] primera, byte[] segunda) {
+        assertEquals(primera.length, segunda.length);
+        int posicion = -1;
+        for (int i = 0; i < primera.length; i++) {
+            if (primera[i] != segunda[i]) {
+                assertEquals(-1, posicion);
+                posicion = i;
+            }
+        }
+        assertTrue(posicion >= 0);
+        return posicion;
+    }
+
+    /**
+     * Genera un producto de prueba
+     */
+    private static Producto nuevoProducto(int identificador, FABRICANTES fabricante, PRIORIDAD_PRODUCTO prioridad) {
+        return new Producto(new Identificador(identificador), "Portátil 15\"", fabricante, prioridad,
+                new GregorianCalendar(2021, 10, 3), false, 250, 20);
+    }
+
+}
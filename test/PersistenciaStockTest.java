@@ -0,0 +1,187 @@
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.GregorianCalendar;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Pruebas del registro de operaciones y las instantáneas: cada prueba opera sobre un inventario con la persistencia
+ * activa, la desactiva y comprueba lo que recupera un inventario nuevo al activarla sobre el mismo directorio
+ *
+ * @author : Juan Pablo García Plaza Pérez - Jose Ángel Concha Carrasco
+ * @grupo : Wild True
+ */
+
+public class PersistenciaStockTest {
+
+    private static final int BASE = 36 * 36 * 36 * 2;                   // Identificadores propios, lejos de los de otras pruebas
+    private static final int CANTIDAD_INICIAL = 100;
+    private static final long INTERVALO_MILISEGUNDOS = 60_000;          // Ningún volcado periódico durante las pruebas
+
+    @Rule
+    public TemporaryFolder carpeta = new TemporaryFolder();
+
+    @Test
+    public void recuperaStockYComentariosAlReabrir() throws IOException {
+        File directorio = carpeta.newFolder();
+        GestorStock gestor = abrir(directorio, true);
+        Producto primero = nuevoProducto(0);
+        Producto segundo = nuevoProducto(1);
+        assertTrue(gestor.agregarProducto(primero));
+        assertTrue(gestor.agregarProducto(segundo));
+        assertTrue(gestor.venderProducto(7, primero));
+        assertTrue(gestor.venderProducto(3, segundo));
+        assertTrue(gestor.comentarProducto(primero, new Comentario("ana", "Funciona bien", 4)));
+        assertTrue(gestor.comentarProducto(primero, new Comentario("luis", "Llegó con retraso", 2)));
+        assertTrue(gestor.eliminarProducto(segundo));
+        assertTrue(gestor.desactivarPersistencia());
+
+        GestorStock recuperado = abrir(directorio, true);
+        Producto leido = buscar(recuperado, 0);
+        assertNotNull(leido);
+        assertNull(buscar(recuperado, 1));
+        assertEquals(CANTIDAD_INICIAL - 7, leido.getCantidad());
+
+        List<Comentario> comentarios = leido.getComentarios();
+        assertEquals(2, comentarios.size());
+        assertEquals("ana", comentarios.get(0).getAutor());
+        assertEquals("Funciona bien", comentarios.get(0).getTexto());
+        assertEquals(4, comentarios.get(0).getPuntuacion());
+        assertEquals("luis", comentarios.get(1).getAutor());
+        assertEquals(2, comentarios.get(1).getPuntuacion());
+        assertTrue(recuperado.desactivarPersistencia());
+    }
+
+    @Test
+    public void desactivarVuelcaLasOperacionesAsincronas() throws IOException {
+        File directorio = carpeta.newFolder();
+        GestorStock gestor = abrir(directorio, false);
+        Producto producto = nuevoProducto(0);
+        assertTrue(gestor.agregarProducto(producto));
+        assertTrue(gestor.venderProducto(5, producto));
+        assertTrue(gestor.desactivarPersistencia());
+        assertFalse(gestor.sincronizarPersistencia());
+
+        GestorStock recuperado = abrir(directorio, false);
+        assertEquals(CANTIDAD_INICIAL - 5, buscar(recuperado, 0).getCantidad());
+        assertTrue(recuperado.desactivarPersistencia());
+    }
+
+    @Test
+    public void descartaElRegistroFinalTruncado() throws IOException {
+        File directorio = carpeta.newFolder();
+        GestorStock gestor = abrir(directorio, true);
+        Producto producto = nuevoProducto(0);
+        assertTrue(gestor.agregarProducto(producto));
+        assertTrue(gestor.venderProducto(4, producto));
+        assertTrue(gestor.comentarProducto(producto, new Comentario("ana", "Comentario a medio escribir", 5)));
+        assertTrue(gestor.desactivarPersistencia());
+
+        File registro = new File(directorio, "stock.0.wal");
+        try (RandomAccessFile fichero = new RandomAccessFile(registro, "rw")) {
+            fichero.setLength(fichero.length() - 3);
+        }
+
+        GestorStock recuperado = abrir(directorio, true);
+        Producto leido = buscar(recuperado, 0);
+        assertEquals(CANTIDAD_INICIAL - 4, leido.getCantidad());
+        assertEquals(0, leido.getNumeroComentarios());
+
+        // El registro se recorta hasta el último registro válido, así que lo escrito después se recupera a continuación
+        assertTrue(recuperado.venderProducto(1, leido));
+        assertTrue(recuperado.desactivarPersistencia());
+        assertEquals(CANTIDAD_INICIAL - 5, buscar(abrir(directorio, true), 0).getCantidad());
+    }
+
+    @Test
+    public void descartaElRegistroFinalConSumaIncorrecta() throws IOException {
+        File directorio = carpeta.newFolder();
+        GestorStock gestor = abrir(directorio, true);
+        Producto producto = nuevoProducto(0);
+        assertTrue(gestor.agregarProducto(producto));
+        assertTrue(gestor.venderProducto(4, producto));
+        assertTrue(gestor.venderProducto(6, producto));
+        assertTrue(gestor.desactivarPersistencia());
+
+        // Se altera la cantidad de la última venta, que ocupa los últimos cuatro bytes del registro
+        File registro = new File(directorio, "stock.0.wal");
+        try (RandomAccessFile fichero = new RandomAccessFile(registro, "rw")) {
+            fichero.seek(fichero.length() - 1);
+            int ultimo = fichero.read();
+            fichero.seek(fichero.length() - 1);
+            fichero.write(ultimo ^ 0x7F);
+        }
+
+        GestorStock recuperado = abrir(directorio, true);
+        assertEquals(CANTIDAD_INICIAL - 4, buscar(recuperado, 0).getCantidad());
+        assertTrue(recuperado.desactivarPersistencia());
+    }
+
+    @Test
+    public void recuperaInstantaneaYRegistroPosterior() throws IOException {
+        File directorio = carpeta.newFolder();
+        GestorStock gestor = abrir(directorio, true);
+        Producto primero = nuevoProducto(0);
+        Producto segundo = nuevoProducto(1);
+        assertTrue(gestor.agregarProducto(primero));
+        assertTrue(gestor.agregarProducto(segundo));
+        assertTrue(gestor.venderProducto(10, primero));
+        assertTrue(gestor.comentarProducto(primero, new Comentario("ana", "Antes de la instantánea", 3)));
+        assertTrue(gestor.tomarInstantanea());
+
+        assertTrue(gestor.venderProducto(2, primero));
+        assertTrue(gestor.comentarProducto(primero, new Comentario("luis", "Después de la instantánea", 5)));
+        assertTrue(gestor.eliminarProducto(segundo));
+        assertTrue(gestor.agregarProducto(nuevoProducto(2)));
+        assertTrue(gestor.desactivarPersistencia());
+
+        assertTrue(new File(directorio, "stock.snapshot").exists());
+        assertFalse(new File(directorio, "stock.0.wal").exists());
+        assertTrue(new File(directorio, "stock.1.wal").exists());
+
+        GestorStock recuperado = abrir(directorio, true);
+        Producto leido = buscar(recuperado, 0);
+        assertEquals(CANTIDAD_INICIAL - 12, leido.getCantidad());
+        assertEquals(2, leido.getNumeroComentarios());
+        assertEquals("Antes de la instantánea", leido.getComentarios().get(0).getTexto());
+        assertEquals("Después de la instantánea", leido.getComentarios().get(1).getTexto());
+        assertNull(buscar(recuperado, 1));
+        assertNotNull(buscar(recuperado, 2));
+        assertTrue(recuperado.desactivarPersistencia());
+    }
+
+    /**
+     * Genera un inventario nuevo con la persistencia activa sobre un directorio
+     */
+    private static GestorStock abrir(File directorio, boolean esperarVolcado) {
+        GestorStock gestor = GestorStock.crearInstancia();
+        assertTrue(gestor.activarPersistencia(directorio, INTERVALO_MILISEGUNDOS, esperarVolcado));
+        return gestor;
+    }
+
+    /**
+     * Genera un producto de prueba sin reposición automática
+     */
+    private static Producto nuevoProducto(int posicion) {
+        return new Producto(new Identificador(BASE + posicion), "Producto " + posicion, FABRICANTES.values()[posicion],
+                PRIORIDAD_PRODUCTO.MEDIA, new GregorianCalendar(2020, 0, 1), false, CANTIDAD_INICIAL, 0);
+    }
+
+    /**
+     * Busca un producto de prueba en un inventario
+     */
+    private static Producto buscar(GestorStock gestor, int posicion) {
+        return gestor.recuperarProducto(new Identificador(BASE + posicion).valorDe());
+    }
+
+}